@@ -0,0 +1,84 @@
+package com.udacity.webcrawler;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A {@link VisitedUrlSet} backed by a Bloom filter, for crawls where memory matters more than
+ * exactness.
+ *
+ * <p>The filter is sized up front for an expected number of URLs and a false-positive rate: about
+ * 1.2 bytes per URL at a 1% rate, or 1.8 bytes at 0.1%. A false positive makes the crawler skip a
+ * URL it has never visited. A URL that has been visited is never reported as new again, with one
+ * exception: when several threads add the same new URL at exactly the same time, more than one of
+ * them may be told it is new. If more URLs than expected are added, the false-positive rate rises
+ * above the configured one.
+ *
+ * <p>Bits are set with compare-and-set, so {@link #add(String)} is lock-free.
+ */
+final class BloomFilterVisitedUrlSet implements VisitedUrlSet {
+  private final AtomicLongArray bits;
+  private final long bitCount;
+  private final int hashCount;
+  private final AtomicInteger size = new AtomicInteger();
+
+  /**
+   * Creates an empty Bloom filter.
+   *
+   * @param expectedSize      the number of URLs the filter is sized for.
+   * @param falsePositiveRate the probability, between 0 and 1, that a URL that has not been added
+   *                          is reported as visited once {@code expectedSize} URLs have been.
+   */
+  BloomFilterVisitedUrlSet(int expectedSize, double falsePositiveRate) {
+    if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+      throw new IllegalArgumentException("falsePositiveRate must be between 0 and 1");
+    }
+    long n = Math.max(1, expectedSize);
+    // The optimal number of bits is -n ln(p) / ln(2)^2, and of hash functions (m / n) ln(2).
+    long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+    int words = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (m + 63) / 64));
+    this.bits = new AtomicLongArray(words);
+    this.bitCount = (long) words * 64;
+    this.hashCount = (int) Math.max(1, Math.round((double) bitCount / n * Math.log(2)));
+  }
+
+  @Override
+  public boolean add(String url) {
+    // Derives all the hash functions from two halves of the fingerprint (Kirsch and
+    // Mitzenmacher, "Less Hashing, Same Performance").
+    long fingerprint = FingerprintVisitedUrlSet.fingerprint(url);
+    int hash1 = (int) fingerprint;
+    int hash2 = (int) (fingerprint >>> 32);
+    boolean changed = false;
+    for (int i = 1; i <= hashCount; i++) {
+      long combined = hash1 + (long) i * hash2;
+      changed |= setBit(Math.floorMod(combined, bitCount));
+    }
+    if (changed) {
+      size.incrementAndGet();
+    }
+    return changed;
+  }
+
+  @Override
+  public int size() {
+    return size.get();
+  }
+
+  /**
+   * Sets the given bit, and returns true if it was not already set.
+   */
+  private boolean setBit(long index) {
+    int word = (int) (index >>> 6);
+    long mask = 1L << index;
+    long value = bits.get(word);
+    while ((value & mask) == 0) {
+      long witness = bits.compareAndExchange(word, value, value | mask);
+      if (witness == value) {
+        return true;
+      }
+      value = witness;
+    }
+    return false;
+  }
+}
@@ -0,0 +1,101 @@
+package com.udacity.webcrawler;
+
+import com.udacity.webcrawler.parser.WordDictionary;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The word counts of a crawl, indexed by {@link WordDictionary} word ID, and added to by many
+ * threads at once.
+ *
+ * <p>The counts are kept in {@link AtomicLongArray} chunks that double in size, the first holding
+ * the counts of the first {@value #FIRST_CHUNK_SIZE} IDs. Chunks are created the first time one of
+ * their IDs is counted and are never copied, so the array grows with the dictionary without
+ * stopping the threads adding to it. Adding to a count is a single atomic add, with no hashing
+ * and no allocation.
+ */
+final class ConcurrentWordCounts implements WordCountAggregator {
+  private static final int FIRST_CHUNK_BITS = 10;
+  private static final int FIRST_CHUNK_SIZE = 1 << FIRST_CHUNK_BITS;
+
+  // Chunk k holds the counts of the IDs from FIRST_CHUNK_SIZE * (2^k - 1), and there are 2^k times
+  // as many of them as in the first chunk. Together they cover more IDs than a dictionary can hold.
+  private final AtomicReferenceArray<AtomicLongArray> chunks =
+      new AtomicReferenceArray<>(Integer.SIZE - FIRST_CHUNK_BITS);
+
+  private volatile boolean empty = true;
+
+  @Override
+  public void add(int id, long count) {
+    if (id < 0) {
+      throw new IllegalArgumentException("Word IDs cannot be negative: " + id);
+    }
+    long position = (long) id + FIRST_CHUNK_SIZE;
+    int chunkIndex = 63 - Long.numberOfLeadingZeros(position) - FIRST_CHUNK_BITS;
+    AtomicLongArray chunk = chunks.get(chunkIndex);
+    if (chunk == null) {
+      chunk = createChunk(chunkIndex);
+    }
+    chunk.getAndAdd((int) (position - Long.highestOneBit(position)), count);
+    if (empty) {
+      empty = false;
+    }
+  }
+
+  @Override
+  public long get(int id) {
+    long position = (long) id + FIRST_CHUNK_SIZE;
+    AtomicLongArray chunk =
+        chunks.get(63 - Long.numberOfLeadingZeros(position) - FIRST_CHUNK_BITS);
+    return chunk == null ? 0 : chunk.get((int) (position - Long.highestOneBit(position)));
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return empty;
+  }
+
+  /**
+   * Calls the given action with the ID and count of every word with a count, in order of ID, up
+   * to the given ID (exclusive). Counts added meanwhile may or may not be seen.
+   */
+  void forEach(int endId, IdCountConsumer action) {
+    int id = 0;
+    for (int k = 0; k < chunks.length() && id < endId; k++) {
+      int chunkSize = FIRST_CHUNK_SIZE << k;
+      AtomicLongArray chunk = chunks.get(k);
+      if (chunk == null) {
+        id += chunkSize;
+        continue;
+      }
+      for (int i = 0; i < chunkSize && id < endId; i++, id++) {
+        long count = chunk.get(i);
+        if (count != 0) {
+          action.accept(id, count);
+        }
+      }
+    }
+  }
+
+  @Override
+  public long[] snapshot(int endId) {
+    long[] counts = new long[endId];
+    forEach(endId, (id, count) -> counts[id] = count);
+    return counts;
+  }
+
+  private AtomicLongArray createChunk(int chunkIndex) {
+    AtomicLongArray chunk = new AtomicLongArray(FIRST_CHUNK_SIZE << chunkIndex);
+    // If another thread created the chunk first, use that one.
+    return chunks.compareAndSet(chunkIndex, null, chunk) ? chunk : chunks.get(chunkIndex);
+  }
+
+  /**
+   * An action that is given a word ID and its count.
+   */
+  @FunctionalInterface
+  interface IdCountConsumer {
+    void accept(int id, long count);
+  }
+}
@@ -0,0 +1,91 @@
+package com.udacity.webcrawler;
+
+import com.udacity.webcrawler.json.CrawlResult;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntSupplier;
+
+/**
+ * Tracks the crawl a {@link WebCrawler} is running, so {@link WebCrawler#snapshot()} can read its
+ * results so far from another thread.
+ *
+ * <p>Every crawl in progress is tracked, until it finishes. A snapshot is only defined while a
+ * single crawl is running: with none it is empty, and with more than one it fails, since the
+ * results of different crawls cannot be told apart.
+ */
+final class CrawlProgress {
+  private final Clock clock;
+  private final int popularWordCount;
+  private final Set<Tracking> running = ConcurrentHashMap.newKeySet();
+
+  /**
+   * @param clock            the clock the deadlines are checked against.
+   * @param popularWordCount the number of popular words a snapshot includes.
+   */
+  CrawlProgress(Clock clock, int popularWordCount) {
+    this.clock = Objects.requireNonNull(clock);
+    this.popularWordCount = popularWordCount;
+  }
+
+  /**
+   * Starts tracking a crawl. The crawler must close the returned {@link Tracking} before it closes
+   * the counts, so no snapshot reads them afterwards.
+   *
+   * @param deadline    the deadline of the crawl.
+   * @param counts      the word counts of the crawl.
+   * @param urlsVisited the number of URLs the crawl has visited so far.
+   */
+  Tracking track(Instant deadline, CrawlWordCounts counts, IntSupplier urlsVisited) {
+    Tracking tracking = new Tracking(deadline, counts, urlsVisited);
+    running.add(tracking);
+    return tracking;
+  }
+
+  /**
+   * Returns the results so far of the crawl being tracked, or an empty result if there is none.
+   *
+   * @throws IllegalStateException if more than one crawl is running.
+   */
+  CrawlResult snapshot() {
+    Iterator<Tracking> iterator = running.iterator();
+    if (!iterator.hasNext()) {
+      return new CrawlResult.Builder().build();
+    }
+    Tracking crawl = iterator.next();
+    if (iterator.hasNext()) {
+      throw new IllegalStateException(
+          "Cannot take a snapshot while more than one crawl is running");
+    }
+    return new CrawlResult.Builder()
+        .setWordCounts(crawl.counts.popularWordsSoFar(popularWordCount))
+        .setUrlsVisited(crawl.urlsVisited.getAsInt())
+        .setDeadlineExceeded(clock.instant().isAfter(crawl.deadline))
+        .setWordCountErrorBound(crawl.counts.errorBound())
+        .build();
+  }
+
+  /**
+   * A crawl being tracked. Closing it stops tracking it.
+   */
+  final class Tracking implements AutoCloseable {
+    private final Instant deadline;
+    private final CrawlWordCounts counts;
+    private final IntSupplier urlsVisited;
+
+    private Tracking(Instant deadline, CrawlWordCounts counts, IntSupplier urlsVisited) {
+      this.deadline = Objects.requireNonNull(deadline);
+      this.counts = Objects.requireNonNull(counts);
+      this.urlsVisited = Objects.requireNonNull(urlsVisited);
+    }
+
+    @Override
+    public void close() {
+      running.remove(this);
+    }
+  }
+}
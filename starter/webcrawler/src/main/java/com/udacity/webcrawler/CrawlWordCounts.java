@@ -0,0 +1,69 @@
+package com.udacity.webcrawler;
+
+import com.udacity.webcrawler.parser.PageParser;
+import com.udacity.webcrawler.parser.WordDictionary;
+
+import java.util.Map;
+
+/**
+ * The word counts of a single crawl, which the crawler adds the counts of every page it parses to.
+ *
+ * <p>Implementations are safe to use from many threads at once.
+ */
+interface CrawlWordCounts extends AutoCloseable {
+
+  /**
+   * Returns the {@link WordDictionary} the next page should be parsed with.
+   *
+   * <p>Counts kept by word ID return their own dictionary, which lives as long as the crawl, so
+   * the pages added to them need no word looked up again. By default, every page gets a new
+   * dictionary, which is dropped with the page.
+   */
+  default WordDictionary pageDictionary() {
+    return new WordDictionary();
+  }
+
+  /**
+   * Adds the word counts of the given page.
+   */
+  void add(PageParser.Result page);
+
+  /**
+   * Returns true if no word has been counted.
+   */
+  boolean isEmpty();
+
+  /**
+   * Returns the counts as a new {@link Map} from words.
+   */
+  Map<String, Integer> toMap();
+
+  /**
+   * Returns the top {@code popularWordCount} words and their counts, in the order of
+   * {@link WordCounts#sort(Map, int)}.
+   */
+  Map<String, Integer> popularWords(int popularWordCount);
+
+  /**
+   * Returns the top {@code popularWordCount} words and their counts so far, like
+   * {@link #popularWords(int)}, while pages are still being added. Implementations that keep the
+   * popular words up to date as pages are added return them without going through every word.
+   */
+  default Map<String, Integer> popularWordsSoFar(int popularWordCount) {
+    return popularWords(popularWordCount);
+  }
+
+  /**
+   * Returns how much higher than the true counts the counts may be. See
+   * {@link com.udacity.webcrawler.json.CrawlResult#getWordCountErrorBound()}.
+   */
+  int errorBound();
+
+  /**
+   * Releases any resources held outside of the Java heap, or by threads that outlive the crawl.
+   * Crawlers close the counts once the crawl result is built, after their {@link CrawlWriteGuard}
+   * has stopped any more calls to {@link #add(PageParser.Result)}.
+   */
+  @Override
+  default void close() {}
+}
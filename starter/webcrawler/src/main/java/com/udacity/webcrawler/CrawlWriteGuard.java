@@ -0,0 +1,56 @@
+package com.udacity.webcrawler;
+
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Stops the threads of a crawl from writing to its {@link CrawlWordCounts} and
+ * {@link VisitedPages} once the crawl result is being built.
+ *
+ * <p>A crawl cut short at its deadline returns without waiting for every thread to stop, and then
+ * closes its counts and visited pages, which may release memory-mapped files or delete files on
+ * disk. Every write is therefore made between {@link #tryEnter()} and {@link #exit()}, and the
+ * crawl calls {@link #close()} before it builds the result. Closing waits for the writes already
+ * under way, and no write starts after it.
+ *
+ * <p>Entering only takes the read lock of a {@link ReadWriteLock}, so threads do not wait for
+ * each other, only for the crawl to close.
+ */
+final class CrawlWriteGuard {
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  // Guarded by the lock.
+  private boolean closed;
+
+  /**
+   * Returns true if the calling thread may write, in which case it must call {@link #exit()} once
+   * it is done; or false if the crawl has been closed, and nothing may be written.
+   */
+  boolean tryEnter() {
+    lock.readLock().lock();
+    if (closed) {
+      lock.readLock().unlock();
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Ends the writes started by a successful {@link #tryEnter()}.
+   */
+  void exit() {
+    lock.readLock().unlock();
+  }
+
+  /**
+   * Waits for the writes under way to end, and stops any more from starting.
+   */
+  void close() {
+    lock.writeLock().lock();
+    try {
+      closed = true;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+}
@@ -0,0 +1,89 @@
+package com.udacity.webcrawler;
+
+import com.udacity.webcrawler.parser.PageParser;
+import com.udacity.webcrawler.parser.WordDictionary;
+
+import java.util.Map;
+
+/**
+ * The exact word counts of a crawl, added up by word ID in a {@link WordCountAggregator}.
+ *
+ * <p>The popular words can also be kept up to date in a {@link LivePopularWords} as every page is
+ * added, so they can be read while the crawl is running. Each word of the page is then read back
+ * once its count has been added, which only costs a lock for the words that may rank. That read is
+ * cheap for counts in a single shared table, but not for counts split across threads, which find
+ * the popular words only when they are asked for.
+ */
+final class ExactWordCounts implements CrawlWordCounts {
+  private final WordCountAggregator counts;
+  private final WordDictionary dictionary;
+  private final LivePopularWords livePopularWords;
+
+  /**
+   * @param counts               where to add up the counts.
+   * @param dictionary           the dictionary the word IDs belong to.
+   * @param livePopularWordCount the number of popular words to keep up to date as pages are
+   *                             added, or 0 to only find them when they are asked for.
+   */
+  ExactWordCounts(
+      WordCountAggregator counts, WordDictionary dictionary, int livePopularWordCount) {
+    this.counts = counts;
+    this.dictionary = dictionary;
+    this.livePopularWords = new LivePopularWords(livePopularWordCount);
+  }
+
+  @Override
+  public WordDictionary pageDictionary() {
+    return dictionary;
+  }
+
+  @Override
+  public void add(PageParser.Result page) {
+    page.forEachWordCount(dictionary, counts.adderForCurrentThread());
+    if (livePopularWords.limit() == 0) {
+      return;
+    }
+    page.forEachWordCount(dictionary, (id, count) -> {
+      long total = counts.get(id);
+      if (livePopularWords.mayRank(total)) {
+        livePopularWords.offer(dictionary.word(id), total);
+      }
+    });
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return counts.isEmpty();
+  }
+
+  @Override
+  public Map<String, Integer> toMap() {
+    return counts.toMap(dictionary);
+  }
+
+  @Override
+  public Map<String, Integer> popularWords(int popularWordCount) {
+    return WordCounts.sort(counts, dictionary, popularWordCount);
+  }
+
+  @Override
+  public Map<String, Integer> popularWordsSoFar(int popularWordCount) {
+    if (popularWordCount > livePopularWords.limit()) {
+      return popularWords(popularWordCount);
+    }
+    Map<String, Integer> popular = livePopularWords.snapshot();
+    return popularWordCount == livePopularWords.limit()
+        ? popular
+        : WordCounts.sort(popular, popularWordCount);
+  }
+
+  @Override
+  public int errorBound() {
+    return 0;
+  }
+
+  @Override
+  public void close() {
+    counts.close();
+  }
+}
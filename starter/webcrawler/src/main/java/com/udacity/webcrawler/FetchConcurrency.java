@@ -0,0 +1,16 @@
+package com.udacity.webcrawler;
+
+import javax.inject.Qualifier;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * A binding annotation for the maximum number of pages the web crawler may download at once.
+ *
+ * <p>The value bound to this annotation is the value of the {@code "fetchConcurrency"} option from
+ * the crawler configuration JSON, or the {@link TargetParallelism} if that option is unset.
+ */
+@Qualifier
+@Retention(RetentionPolicy.RUNTIME)
+public @interface FetchConcurrency {
+}
@@ -0,0 +1,292 @@
+package com.udacity.webcrawler;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A {@link VisitedUrlSet} that stores a 64-bit fingerprint of each URL, instead of the URL itself,
+ * in an open-addressed table of primitive longs.
+ *
+ * <p>Each URL costs about 11 bytes at the table's 3/4 maximum load, against well over 100 bytes
+ * for a {@code String} in a concurrent hash set. Two different URLs share a fingerprint with
+ * probability about {@code n^2 / 2^65}: around one in ten thousand for a crawl of a hundred
+ * million URLs, in which case the second URL is wrongly treated as visited.
+ *
+ * <p>The table can live on the Java heap, or in direct memory outside of it so it adds nothing to
+ * garbage collection work.
+ *
+ * <p>{@link #add(String)} is lock-free. A slot is claimed with a single compare-and-set, and a slot
+ * once filled never changes, so a thread looking for a fingerprint always finds it before it
+ * reaches an empty slot. When the table fills up, the thread that notices allocates a table twice
+ * the size and moves the fingerprints across. It first marks every empty slot of the old table as
+ * moved, one compare-and-set at a time; a thread that runs into a moved slot continues in the new
+ * table. Since every slot on a fingerprint's probe path before its own slot was already filled
+ * when it was inserted, no thread can skip over a fingerprint still in the old table, and each URL
+ * is reported as new exactly once.
+ */
+final class FingerprintVisitedUrlSet implements VisitedUrlSet {
+
+  /**
+   * The value of a slot that has never been filled.
+   */
+  private static final long EMPTY = 0;
+
+  /**
+   * The value of an empty slot whose table has been replaced by a larger one.
+   */
+  private static final long MOVED = 1;
+
+  private static final int MIN_CAPACITY = 1 << 10;
+
+  /**
+   * The largest number of slots a table on the heap may have.
+   */
+  private static final int MAX_HEAP_CAPACITY = 1 << 30;
+
+  /**
+   * The largest number of slots a table in direct memory may have, since a direct buffer holds
+   * less than 2^31 bytes.
+   */
+  private static final int MAX_DIRECT_CAPACITY = 1 << 27;
+
+  private final boolean offHeap;
+  private final int maxCapacity;
+  private final AtomicReference<Table> current;
+  private final AtomicInteger size = new AtomicInteger();
+
+  /**
+   * Creates an empty set.
+   *
+   * @param expectedSize the number of URLs the set is sized for up front. It grows as needed.
+   * @param offHeap      whether the table should be allocated outside of the Java heap.
+   */
+  FingerprintVisitedUrlSet(int expectedSize, boolean offHeap) {
+    this.offHeap = offHeap;
+    this.maxCapacity = offHeap ? MAX_DIRECT_CAPACITY : MAX_HEAP_CAPACITY;
+    long minimum = Math.max(MIN_CAPACITY, (long) expectedSize * 4 / 3);
+    long capacity = Long.highestOneBit(minimum * 2 - 1);
+    this.current = new AtomicReference<>(newTable((int) Math.min(capacity, maxCapacity)));
+  }
+
+  @Override
+  public boolean add(String url) {
+    long fingerprint = fingerprint(url);
+    Table table = current.get();
+    while (true) {
+      int result = table.insert(fingerprint);
+      if (result == Table.INSERTED) {
+        size.incrementAndGet();
+        if (table.isFull()) {
+          grow(table);
+        }
+        return true;
+      }
+      if (result == Table.PRESENT) {
+        return false;
+      }
+      // The table is being replaced. The next table is always published before any slot is
+      // marked as moved, so it is there to continue in.
+      table = table.next.get();
+    }
+  }
+
+  @Override
+  public int size() {
+    return size.get();
+  }
+
+  /**
+   * Returns the 64-bit fingerprint of the given URL. The result is never {@link #EMPTY} or
+   * {@link #MOVED}.
+   */
+  static long fingerprint(String url) {
+    // FNV-1a over the UTF-16 code units, followed by the MurmurHash3 finalizer so that every bit
+    // of the result depends on every character.
+    long hash = 0xcbf29ce484222325L;
+    for (int i = 0; i < url.length(); i++) {
+      hash ^= url.charAt(i);
+      hash *= 0x100000001b3L;
+    }
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+    return (hash == EMPTY || hash == MOVED) ? hash + 2 : hash;
+  }
+
+  /**
+   * Replaces the given table with one twice its size, unless another thread already is.
+   */
+  private void grow(Table table) {
+    if (table.capacity >= maxCapacity) {
+      // Past this point the table only fills up further, and probes get longer.
+      return;
+    }
+    if (table.next.get() != null) {
+      return;
+    }
+    Table next = newTable(table.capacity * 2);
+    if (!table.next.compareAndSet(null, next)) {
+      return;
+    }
+    for (int i = 0; i < table.capacity; i++) {
+      long value = table.slots.get(i);
+      while (value == EMPTY) {
+        if (table.slots.compareAndSet(i, EMPTY, MOVED)) {
+          break;
+        }
+        value = table.slots.get(i);
+      }
+      if (value != EMPTY && value != MOVED) {
+        // The next table may itself be being replaced already.
+        Table target = next;
+        while (target.insert(value) == Table.MOVED_ON) {
+          target = target.next.get();
+        }
+      }
+    }
+    table.migrated = true;
+
+    // Drop references to the tables that have been fully replaced, so they can be freed.
+    Table head = current.get();
+    while (head.migrated) {
+      current.compareAndSet(head, head.next.get());
+      head = current.get();
+    }
+    if (next.isFull()) {
+      grow(next);
+    }
+  }
+
+  private Table newTable(int capacity) {
+    return new Table(offHeap ? new DirectSlots(capacity) : new HeapSlots(capacity));
+  }
+
+  /**
+   * A fixed-size open-addressed table of fingerprints, using linear probing.
+   */
+  private static final class Table {
+    static final int INSERTED = 0;
+    static final int PRESENT = 1;
+    static final int MOVED_ON = 2;
+
+    final Slots slots;
+    final int capacity;
+    final int mask;
+    final int maxFilled;
+    final AtomicInteger filled = new AtomicInteger();
+    final AtomicReference<Table> next = new AtomicReference<>();
+    volatile boolean migrated;
+
+    Table(Slots slots) {
+      this.slots = slots;
+      this.capacity = slots.capacity();
+      this.mask = capacity - 1;
+      this.maxFilled = capacity / 4 * 3;
+    }
+
+    /**
+     * Inserts the fingerprint if it is absent.
+     *
+     * @return {@link #INSERTED}, {@link #PRESENT}, or {@link #MOVED_ON} if the fingerprint must be
+     *     looked for in the {@link #next} table instead.
+     */
+    int insert(long fingerprint) {
+      int index = (int) fingerprint & mask;
+      for (int probes = 0; probes < capacity; probes++) {
+        long value = slots.get(index);
+        if (value == EMPTY) {
+          if (slots.compareAndSet(index, EMPTY, fingerprint)) {
+            filled.incrementAndGet();
+            return INSERTED;
+          }
+          value = slots.get(index);
+        }
+        if (value == fingerprint) {
+          return PRESENT;
+        }
+        if (value == MOVED) {
+          return MOVED_ON;
+        }
+        index = (index + 1) & mask;
+      }
+      throw new IllegalStateException("The visited URL table is full.");
+    }
+
+    boolean isFull() {
+      return filled.get() > maxFilled && next.get() == null;
+    }
+  }
+
+  /**
+   * The storage of a {@link Table}: an array of longs supporting atomic compare-and-set.
+   */
+  private interface Slots {
+    int capacity();
+
+    long get(int index);
+
+    boolean compareAndSet(int index, long expected, long value);
+  }
+
+  private static final class HeapSlots implements Slots {
+    private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final long[] longs;
+
+    HeapSlots(int capacity) {
+      this.longs = new long[capacity];
+    }
+
+    @Override
+    public int capacity() {
+      return longs.length;
+    }
+
+    @Override
+    public long get(int index) {
+      return (long) LONGS.getAcquire(longs, index);
+    }
+
+    @Override
+    public boolean compareAndSet(int index, long expected, long value) {
+      return LONGS.compareAndSet(longs, index, expected, value);
+    }
+  }
+
+  /**
+   * Slots in direct memory. The memory is released when the buffer is garbage collected.
+   */
+  private static final class DirectSlots implements Slots {
+    private static final VarHandle LONGS =
+        MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private final ByteBuffer buffer;
+    private final int capacity;
+
+    DirectSlots(int capacity) {
+      this.capacity = capacity;
+      this.buffer = ByteBuffer.allocateDirect(capacity * Long.BYTES);
+    }
+
+    @Override
+    public int capacity() {
+      return capacity;
+    }
+
+    @Override
+    public long get(int index) {
+      return (long) LONGS.getAcquire(buffer, index * Long.BYTES);
+    }
+
+    @Override
+    public boolean compareAndSet(int index, long expected, long value) {
+      return LONGS.compareAndSet(buffer, index * Long.BYTES, expected, value);
+    }
+  }
+}
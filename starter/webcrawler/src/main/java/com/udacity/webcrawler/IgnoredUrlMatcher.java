@@ -0,0 +1,418 @@
+package com.udacity.webcrawler;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Decides whether a URL matches any of the ignored URL patterns, without trying every pattern in
+ * turn.
+ *
+ * <p>Most ignore rules are literals in disguise: a whole site
+ * ({@code "https?://ads\.example\.com/.*"}), a path prefix
+ * ({@code "http://example\.com/private/.*"}), or a single URL. When the list is compiled, each
+ * pattern is sorted by what it really needs:
+ * <ul>
+ *   <li>A literal URL goes into a hash set of exact URLs.</li>
+ *   <li>A literal followed by {@code ".*"} that covers a whole host goes into a hash set of
+ *       {@code "scheme://host/"} prefixes, and any other such literal into a prefix trie.</li>
+ *   <li>Any other pattern stays a regular expression. If it starts with a literal
+ *       {@code "scheme://host/"}, it can only match URLs on that host.</li>
+ * </ul>
+ * Optional characters and groups, as in {@code "https?"} and {@code "(www\.)?"}, are expanded
+ * into every literal they can stand for.
+ *
+ * <p>The regular expressions that can match a host's URLs are combined into a single alternation
+ * the first time a URL on that host is checked, and the result is cached per host, so each URL
+ * costs one hash lookup, one walk down the trie, and at most one regular expression match.
+ *
+ * <p>A URL matches if and only if one of the original patterns {@linkplain
+ * java.util.regex.Matcher#matches() matches} all of it. Instances are safe to use from many
+ * threads at once.
+ */
+final class IgnoredUrlMatcher {
+
+  /**
+   * The most literals a single pattern's optional parts are expanded into.
+   */
+  private static final int MAX_EXPANSIONS = 16;
+
+  /**
+   * The most hosts whose combined expressions are cached before the cache is emptied.
+   */
+  private static final int MAX_CACHED_HOSTS = 4096;
+
+  private static final HostRules NO_RULES = new HostRules(null, List.of());
+
+  private final List<Pattern> patterns;
+  private final Set<String> exactUrls = new HashSet<>();
+  private final Set<String> hostPrefixes = new HashSet<>();
+  private final TrieNode prefixes = new TrieNode();
+  private boolean hasPrefixes;
+  private final Map<String, List<Pattern>> expressionsByHost = new HashMap<>();
+  private final List<Pattern> expressionsForAnyHost = new ArrayList<>();
+  private final Map<String, HostRules> hostRules = new ConcurrentHashMap<>();
+
+  private IgnoredUrlMatcher(List<Pattern> patterns) {
+    this.patterns = List.copyOf(patterns);
+  }
+
+  /**
+   * Compiles the given patterns into a matcher.
+   */
+  static IgnoredUrlMatcher compile(List<Pattern> patterns) {
+    IgnoredUrlMatcher matcher = new IgnoredUrlMatcher(patterns);
+    for (Pattern pattern : patterns) {
+      matcher.add(pattern);
+    }
+    return matcher;
+  }
+
+  /**
+   * Returns true if the URL matches any of the patterns.
+   */
+  boolean matches(String url) {
+    if (patterns.isEmpty()) {
+      return false;
+    }
+    if (hasLineTerminator(url)) {
+      // The "." in ".*" does not match line terminators, which the literal rules do not model.
+      return matchesSlowly(url);
+    }
+    if (exactUrls.contains(url)) {
+      return true;
+    }
+    String host = hostKey(url);
+    if (host != null && hostPrefixes.contains(host)) {
+      return true;
+    }
+    if (hasPrefixes && prefixes.matchesPrefixOf(url)) {
+      return true;
+    }
+    HostRules rules = rulesFor(host == null ? "" : host);
+    if (rules.combined != null && rules.combined.matcher(url).matches()) {
+      return true;
+    }
+    for (Pattern pattern : rules.separate) {
+      if (pattern.matcher(url).matches()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private boolean matchesSlowly(String url) {
+    for (Pattern pattern : patterns) {
+      if (pattern.matcher(url).matches()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void add(Pattern pattern) {
+    String regex = pattern.pattern();
+    if (pattern.flags() == 0) {
+      Literals literals = Literals.parse(regex);
+      if (literals != null && (literals.rest.isEmpty() || literals.rest.equals("$"))) {
+        exactUrls.addAll(literals.values);
+        return;
+      }
+      if (literals != null && (literals.rest.equals(".*") || literals.rest.equals(".*$"))) {
+        for (String prefix : literals.values) {
+          if (prefix.equals(hostKey(prefix))) {
+            hostPrefixes.add(prefix);
+          } else {
+            prefixes.add(prefix);
+            hasPrefixes = true;
+          }
+        }
+        return;
+      }
+    }
+    String host = pattern.flags() == 0 ? Literals.requiredHost(regex) : null;
+    if (host == null) {
+      expressionsForAnyHost.add(pattern);
+    } else {
+      expressionsByHost.computeIfAbsent(host, h -> new ArrayList<>()).add(pattern);
+    }
+  }
+
+  private HostRules rulesFor(String host) {
+    HostRules rules = hostRules.get(host);
+    if (rules != null) {
+      return rules;
+    }
+    List<Pattern> candidates =
+        new ArrayList<>(expressionsByHost.getOrDefault(host, List.of()));
+    candidates.addAll(expressionsForAnyHost);
+    rules = HostRules.of(candidates);
+    if (hostRules.size() >= MAX_CACHED_HOSTS) {
+      hostRules.clear();
+    }
+    hostRules.put(host, rules);
+    return rules;
+  }
+
+  /**
+   * Returns the {@code "scheme://host/"} that starts the URL, including any user info and port,
+   * or null if it does not start with one.
+   */
+  static String hostKey(String url) {
+    int separator = url.indexOf("://");
+    if (separator <= 0) {
+      return null;
+    }
+    for (int i = 0; i < separator; i++) {
+      char c = url.charAt(i);
+      if (c == '/' || c == '?' || c == '#') {
+        return null;
+      }
+    }
+    int slash = url.indexOf('/', separator + 3);
+    return slash < 0 ? null : url.substring(0, slash + 1);
+  }
+
+  private static boolean hasLineTerminator(String url) {
+    for (int i = 0; i < url.length(); i++) {
+      char c = url.charAt(i);
+      if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * The regular expressions that may match the URLs of one host.
+   */
+  private static final class HostRules {
+    final Pattern combined;
+    final List<Pattern> separate;
+
+    HostRules(Pattern combined, List<Pattern> separate) {
+      this.combined = combined;
+      this.separate = separate;
+    }
+
+    static HostRules of(List<Pattern> patterns) {
+      if (patterns.isEmpty()) {
+        return NO_RULES;
+      }
+      if (patterns.size() == 1) {
+        return new HostRules(patterns.get(0), List.of());
+      }
+      // Back-references are numbered across the whole expression, so patterns that use them, or
+      // that otherwise cannot be combined, are matched on their own.
+      List<Pattern> separate = new ArrayList<>();
+      StringBuilder alternation = new StringBuilder();
+      for (Pattern pattern : patterns) {
+        if (pattern.flags() != 0 || hasBackReference(pattern.pattern())) {
+          separate.add(pattern);
+          continue;
+        }
+        if (alternation.length() > 0) {
+          alternation.append('|');
+        }
+        alternation.append("(?:").append(pattern.pattern()).append(')');
+      }
+      if (alternation.length() == 0) {
+        return new HostRules(null, separate);
+      }
+      try {
+        return new HostRules(Pattern.compile(alternation.toString()), separate);
+      } catch (PatternSyntaxException e) {
+        // For example, the same named group in two patterns.
+        return new HostRules(null, patterns);
+      }
+    }
+
+    private static boolean hasBackReference(String regex) {
+      for (int i = 0; i + 1 < regex.length(); i++) {
+        if (regex.charAt(i) == '\\') {
+          char next = regex.charAt(i + 1);
+          if ((next >= '1' && next <= '9') || next == 'k') {
+            return true;
+          }
+          i++;
+        }
+      }
+      return false;
+    }
+  }
+
+  /**
+   * A node of the trie of literal prefixes.
+   */
+  private static final class TrieNode {
+    private final Map<Character, TrieNode> children = new HashMap<>();
+    private boolean terminal;
+
+    void add(String prefix) {
+      TrieNode node = this;
+      for (int i = 0; i < prefix.length(); i++) {
+        node = node.children.computeIfAbsent(prefix.charAt(i), c -> new TrieNode());
+      }
+      node.terminal = true;
+    }
+
+    boolean matchesPrefixOf(String url) {
+      TrieNode node = this;
+      for (int i = 0; !node.terminal; i++) {
+        if (i == url.length()) {
+          return false;
+        }
+        node = node.children.get(url.charAt(i));
+        if (node == null) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  /**
+   * The literal strings a regular expression starts with, and the part of it that follows.
+   */
+  private static final class Literals {
+    private static final String METACHARACTERS = "\\^$.|?*+()[]{}";
+
+    final List<String> values;
+    final String rest;
+
+    private Literals(List<String> values, String rest) {
+      this.values = values;
+      this.rest = rest;
+    }
+
+    /**
+     * Reads the literal part at the start of the expression, expanding optional characters and
+     * groups of literals. Returns null if the expression has a top-level alternation, or if the
+     * optional parts expand into too many literals.
+     */
+    static Literals parse(String regex) {
+      if (hasTopLevelAlternation(regex)) {
+        return null;
+      }
+      int i = regex.startsWith("^") ? 1 : 0;
+      List<String> values = new ArrayList<>(List.of(""));
+      while (i < regex.length()) {
+        int atomStart = i;
+        String atom;
+        char c = regex.charAt(i);
+        if (c == '\\') {
+          if (i + 1 >= regex.length() || Character.isLetterOrDigit(regex.charAt(i + 1))) {
+            break;
+          }
+          atom = String.valueOf(regex.charAt(i + 1));
+          i += 2;
+        } else if (c == '(') {
+          int close = regex.indexOf(')', i);
+          int contentStart = regex.startsWith("(?:", i) ? i + 3 : i + 1;
+          if (close < 0 || regex.startsWith("(?", i) && contentStart == i + 1) {
+            break;
+          }
+          atom = unescape(regex.substring(contentStart, close));
+          if (atom == null) {
+            break;
+          }
+          i = close + 1;
+        } else if (METACHARACTERS.indexOf(c) >= 0) {
+          break;
+        } else {
+          atom = String.valueOf(c);
+          i++;
+        }
+
+        char quantifier = i < regex.length() ? regex.charAt(i) : 0;
+        boolean reluctantOrPossessive =
+            i + 1 < regex.length() && "?+".indexOf(regex.charAt(i + 1)) >= 0;
+        if (quantifier == '?' && !reluctantOrPossessive) {
+          if (values.size() * 2 > MAX_EXPANSIONS) {
+            return null;
+          }
+          List<String> expanded = new ArrayList<>(values.size() * 2);
+          for (String value : values) {
+            expanded.add(value);
+            expanded.add(value + atom);
+          }
+          values = expanded;
+          i++;
+        } else if (quantifier != 0 && "?*+{".indexOf(quantifier) >= 0) {
+          // The atom is repeated, so it is not part of the literal.
+          i = atomStart;
+          break;
+        } else {
+          values.replaceAll(value -> value + atom);
+        }
+      }
+      return new Literals(values, regex.substring(i));
+    }
+
+    /**
+     * Returns the {@code "scheme://host/"} every match of the expression starts with, or null if
+     * there is none.
+     */
+    static String requiredHost(String regex) {
+      Literals literals = parse(regex);
+      if (literals == null || literals.values.size() != 1) {
+        return null;
+      }
+      return hostKey(literals.values.get(0));
+    }
+
+    /**
+     * Returns the literal a group's content stands for, or null if it is not a plain literal.
+     */
+    private static String unescape(String content) {
+      StringBuilder literal = new StringBuilder();
+      for (int i = 0; i < content.length(); i++) {
+        char c = content.charAt(i);
+        if (c == '\\') {
+          if (i + 1 >= content.length() || Character.isLetterOrDigit(content.charAt(i + 1))) {
+            return null;
+          }
+          literal.append(content.charAt(++i));
+        } else if (METACHARACTERS.indexOf(c) >= 0) {
+          return null;
+        } else {
+          literal.append(c);
+        }
+      }
+      return literal.toString();
+    }
+
+    private static boolean hasTopLevelAlternation(String regex) {
+      int depth = 0;
+      boolean inClass = false;
+      for (int i = 0; i < regex.length(); i++) {
+        char c = regex.charAt(i);
+        if (c == '\\') {
+          if (regex.startsWith("Q", i + 1)) {
+            int end = regex.indexOf("\\E", i + 2);
+            i = end < 0 ? regex.length() : end + 1;
+          } else {
+            i++;
+          }
+        } else if (inClass) {
+          inClass = c != ']';
+        } else if (c == '[') {
+          inClass = true;
+        } else if (c == '(') {
+          depth++;
+        } else if (c == ')') {
+          depth--;
+        } else if (c == '|' && depth == 0) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+}
@@ -8,7 +8,8 @@ import java.lang.annotation.RetentionPolicy;
  * A binding annotation for the crawler's list of ignored URL patterns.
  *
  * <p>The value bound to this annotation is the value of the {@code "ignoredUrl"} option from the
- * crawler configuration JSON.
+ * crawler configuration JSON, both as a {@code List<Pattern>} and compiled into an
+ * {@code IgnoredUrlMatcher}.
  */
 @Qualifier
 @Retention(RetentionPolicy.RUNTIME)
@@ -0,0 +1,157 @@
+package com.udacity.webcrawler;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The most popular words of a crawl in progress, kept up to date as the counts of every page are
+ * merged, so they can be read at any time without going through every word.
+ *
+ * <p>Every time a word's count changes, its new count is offered. The words whose last count
+ * offered ranks among the top {@code limit} are kept in a binary heap, least popular at the root,
+ * ranked as by {@link WordCounts#sort(Map, int)}. A word that is not kept has never been offered
+ * with a count that ranks above the root, so the words kept are exactly the most popular ones.
+ *
+ * <p>Most words of a page are far less popular than the root, and {@link #mayRank(long)} rejects
+ * them without taking the lock.
+ */
+final class LivePopularWords {
+  private static final Comparator<Entry> LEAST_POPULAR_FIRST =
+      Comparator.<Entry>comparingLong(entry -> entry.count)
+          .thenComparingInt(entry -> entry.word.length())
+          .thenComparing(entry -> entry.word, Comparator.reverseOrder());
+
+  private final Entry[] heap;
+  private final Map<String, Entry> entries = new HashMap<>();
+  private int size;
+
+  // The lowest count kept, once the heap is full. A lower count cannot rank.
+  private volatile long threshold;
+
+  /**
+   * @param limit the number of popular words to keep.
+   */
+  LivePopularWords(int limit) {
+    this.heap = new Entry[limit];
+  }
+
+  /**
+   * Returns the number of popular words kept.
+   */
+  int limit() {
+    return heap.length;
+  }
+
+  /**
+   * Returns false if a word with the given count certainly does not rank among the popular words,
+   * and need not be offered.
+   */
+  boolean mayRank(long count) {
+    return heap.length > 0 && count >= threshold;
+  }
+
+  /**
+   * Offers the given count of the given word, which is its count at some point during the crawl.
+   * Counts only grow, so a lower count than the one last offered for the word is ignored.
+   */
+  synchronized void offer(String word, long count) {
+    if (heap.length == 0) {
+      return;
+    }
+    Entry entry = entries.get(word);
+    if (entry != null) {
+      if (count > entry.count) {
+        entry.count = count;
+        siftDown(entry.index);
+      }
+    } else if (size < heap.length) {
+      entry = new Entry(word, count);
+      entry.index = size;
+      heap[size++] = entry;
+      siftUp(entry.index);
+      entries.put(word, entry);
+    } else {
+      Entry candidate = new Entry(word, count);
+      if (LEAST_POPULAR_FIRST.compare(candidate, heap[0]) <= 0) {
+        return;
+      }
+      entries.remove(heap[0].word);
+      place(candidate, 0);
+      entries.put(word, candidate);
+      siftDown(0);
+    }
+    if (size == heap.length) {
+      threshold = heap[0].count;
+    }
+  }
+
+  /**
+   * Returns the popular words so far and their counts, the most popular first.
+   */
+  Map<String, Integer> snapshot() {
+    List<Entry> popular = new ArrayList<>(heap.length);
+    synchronized (this) {
+      for (int i = 0; i < size; i++) {
+        popular.add(new Entry(heap[i].word, heap[i].count));
+      }
+    }
+    popular.sort(LEAST_POPULAR_FIRST.reversed());
+    Map<String, Integer> result = new LinkedHashMap<>();
+    for (Entry entry : popular) {
+      result.put(entry.word, WordCounts.saturatedInt(entry.count));
+    }
+    return result;
+  }
+
+  private void siftUp(int index) {
+    Entry entry = heap[index];
+    while (index > 0) {
+      int parent = (index - 1) / 2;
+      if (LEAST_POPULAR_FIRST.compare(heap[parent], entry) <= 0) {
+        break;
+      }
+      place(heap[parent], index);
+      index = parent;
+    }
+    place(entry, index);
+  }
+
+  private void siftDown(int index) {
+    Entry entry = heap[index];
+    while (true) {
+      int child = 2 * index + 1;
+      if (child >= size) {
+        break;
+      }
+      if (child + 1 < size && LEAST_POPULAR_FIRST.compare(heap[child + 1], heap[child]) < 0) {
+        child++;
+      }
+      if (LEAST_POPULAR_FIRST.compare(heap[child], entry) >= 0) {
+        break;
+      }
+      place(heap[child], index);
+      index = child;
+    }
+    place(entry, index);
+  }
+
+  private void place(Entry entry, int index) {
+    heap[index] = entry;
+    entry.index = index;
+  }
+
+  private static final class Entry {
+    final String word;
+    long count;
+    int index;
+
+    Entry(String word, long count) {
+      this.word = word;
+      this.count = count;
+    }
+  }
+}
@@ -0,0 +1,254 @@
+package com.udacity.webcrawler;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A {@link VisitedUrlSet} that keeps its fingerprint table in memory-mapped files, for crawls whose
+ * visited URLs do not fit in the heap.
+ *
+ * <p>URLs are stored as the same 64-bit fingerprints as in {@link FingerprintVisitedUrlSet}. The
+ * table is split into {@value #SEGMENTS} segments by the top bits of the fingerprint, and each
+ * segment is an open-addressed table in its own file, mapped with {@link FileChannel#map}. The
+ * operating system pages the files in and out as needed, so only the recently touched parts of the
+ * table take up memory, and none of it is on the heap. The files are sparse, so sizing them for
+ * the expected number of URLs costs no disk space up front.
+ *
+ * <p>Inserting into a segment is a compare-and-set on the mapped memory, done under the segment's
+ * read lock. When a segment fills up, it takes its write lock, rehashes into a file twice the size,
+ * and deletes the old file.
+ *
+ * <p>Crawls see the same URLs over and over, so a small direct-mapped cache of fingerprints known
+ * to be in the table sits in front of it, answering most repeated lookups without touching the
+ * mapped pages.
+ *
+ * <p>{@link #close()} deletes the files. Adding to a closed set treats every URL as visited.
+ */
+final class MappedVisitedUrlSet implements VisitedUrlSet {
+  private static final int SEGMENT_BITS = 6;
+  private static final int SEGMENTS = 1 << SEGMENT_BITS;
+  private static final int MIN_SEGMENT_CAPACITY = 1 << 10;
+
+  /**
+   * The largest number of slots in a segment, since a single mapping holds less than 2^31 bytes.
+   */
+  private static final int MAX_SEGMENT_CAPACITY = 1 << 27;
+
+  private static final int CACHE_SIZE = 1 << 16;
+
+  private static final VarHandle MAPPED_LONGS =
+      MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+  private static final VarHandle CACHED_LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+
+  private final Path directory;
+  private final Segment[] segments = new Segment[SEGMENTS];
+  private final long[] cache = new long[CACHE_SIZE];
+  private final AtomicInteger size = new AtomicInteger();
+  private volatile boolean closed;
+
+  /**
+   * Creates an empty set, with its files in a new directory.
+   *
+   * @param parent       the directory to create the set's own directory in.
+   * @param expectedSize the number of URLs the files are sized for up front. They grow as needed.
+   * @throws UncheckedIOException if the files could not be created.
+   */
+  MappedVisitedUrlSet(Path parent, int expectedSize) {
+    long perSegment = Math.max(MIN_SEGMENT_CAPACITY, (long) expectedSize * 4 / 3 / SEGMENTS);
+    int capacity = (int) Math.min(Long.highestOneBit(perSegment * 2 - 1), MAX_SEGMENT_CAPACITY);
+    try {
+      Files.createDirectories(parent);
+      this.directory = Files.createTempDirectory(parent, "visited-urls-");
+      for (int i = 0; i < SEGMENTS; i++) {
+        segments[i] = new Segment(i, capacity);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not create the visited URL files", e);
+    }
+  }
+
+  @Override
+  public boolean add(String url) {
+    long fingerprint = FingerprintVisitedUrlSet.fingerprint(url);
+    int cacheIndex = (int) fingerprint & (CACHE_SIZE - 1);
+    if ((long) CACHED_LONGS.getOpaque(cache, cacheIndex) == fingerprint) {
+      return false;
+    }
+    Segment segment = segments[(int) (fingerprint >>> (Long.SIZE - SEGMENT_BITS))];
+    boolean added;
+    try {
+      added = segment.add(fingerprint);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not grow the visited URL files", e);
+    }
+    if (added) {
+      size.incrementAndGet();
+    }
+    if (!closed) {
+      CACHED_LONGS.setOpaque(cache, cacheIndex, fingerprint);
+    }
+    return added;
+  }
+
+  @Override
+  public int size() {
+    return size.get();
+  }
+
+  /**
+   * Deletes the set's files. URLs added afterwards are all treated as visited.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    for (Segment segment : segments) {
+      segment.close();
+    }
+    try {
+      Files.deleteIfExists(directory);
+    } catch (IOException e) {
+      directory.toFile().deleteOnExit();
+    }
+  }
+
+  /**
+   * One of the independently growing tables the set is split into.
+   */
+  private final class Segment {
+    private final int id;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Replaced only while holding the write lock.
+    private Path file;
+    private MappedByteBuffer slots;
+    private int capacity;
+    private int maxFilled;
+    private int generation;
+    private final AtomicInteger filled = new AtomicInteger();
+
+    Segment(int id, int capacity) throws IOException {
+      this.id = id;
+      map(capacity);
+    }
+
+    /**
+     * Inserts the fingerprint if it is absent, and returns true if it was.
+     */
+    boolean add(long fingerprint) throws IOException {
+      boolean added;
+      lock.readLock().lock();
+      try {
+        if (slots == null) {
+          return false;
+        }
+        added = insert(slots, capacity - 1, fingerprint);
+      } finally {
+        lock.readLock().unlock();
+      }
+      if (added && filled.incrementAndGet() > maxFilled) {
+        grow();
+      }
+      return added;
+    }
+
+    private void grow() throws IOException {
+      lock.writeLock().lock();
+      try {
+        if (slots == null || filled.get() <= maxFilled || capacity >= MAX_SEGMENT_CAPACITY) {
+          return;
+        }
+        Path oldFile = file;
+        MappedByteBuffer oldSlots = slots;
+        int oldCapacity = capacity;
+        map(capacity * 2);
+        for (int i = 0; i < oldCapacity; i++) {
+          long value = oldSlots.getLong(i * Long.BYTES);
+          if (value != 0) {
+            insert(slots, capacity - 1, value);
+          }
+        }
+        delete(oldFile);
+      } finally {
+        lock.writeLock().unlock();
+      }
+    }
+
+    void close() {
+      lock.writeLock().lock();
+      try {
+        slots = null;
+        delete(file);
+      } finally {
+        lock.writeLock().unlock();
+      }
+    }
+
+    /**
+     * Maps a new, empty file with the given number of slots.
+     */
+    private void map(int newCapacity) throws IOException {
+      Path newFile = directory.resolve("segment-" + id + "-" + generation++ + ".bin");
+      try (FileChannel channel =
+               FileChannel.open(
+                   newFile,
+                   StandardOpenOption.CREATE_NEW,
+                   StandardOpenOption.READ,
+                   StandardOpenOption.WRITE,
+                   StandardOpenOption.SPARSE)) {
+        // Mapping past the end of the file extends it; the mapping outlives the channel.
+        slots = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) newCapacity * Long.BYTES);
+      }
+      slots.order(ByteOrder.nativeOrder());
+      file = newFile;
+      capacity = newCapacity;
+      maxFilled = newCapacity / 4 * 3;
+    }
+  }
+
+  /**
+   * Inserts the fingerprint into the table if it is absent, with linear probing.
+   *
+   * @return true if it was inserted, or false if it was already present.
+   */
+  private static boolean insert(MappedByteBuffer slots, int mask, long fingerprint) {
+    int index = (int) fingerprint & mask;
+    for (int probes = 0; probes <= mask; probes++) {
+      long offset = (long) index * Long.BYTES;
+      long value = (long) MAPPED_LONGS.getAcquire(slots, (int) offset);
+      if (value == 0) {
+        if (MAPPED_LONGS.compareAndSet(slots, (int) offset, 0L, fingerprint)) {
+          return true;
+        }
+        value = (long) MAPPED_LONGS.getAcquire(slots, (int) offset);
+      }
+      if (value == fingerprint) {
+        return false;
+      }
+      index = (index + 1) & mask;
+    }
+    throw new IllegalStateException("The visited URL file is full.");
+  }
+
+  /**
+   * Deletes a file that may still be mapped. On most systems the space is reclaimed once the
+   * mapping is garbage collected; where open files cannot be deleted, it is deleted on exit.
+   */
+  private static void delete(Path file) {
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException e) {
+      file.toFile().deleteOnExit();
+    }
+  }
+}
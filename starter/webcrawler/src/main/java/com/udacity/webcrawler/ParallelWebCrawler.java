@@ -1,31 +1,69 @@
+package com.udacity.webcrawler;
+
 import com.udacity.webcrawler.json.CrawlResult;
 import com.udacity.webcrawler.parser.PageParser;
 import com.udacity.webcrawler.parser.PageParserFactory;
+import com.udacity.webcrawler.parser.UrlCanonicalizer;
+import com.udacity.webcrawler.parser.WordDictionary;
+import com.udacity.webcrawler.profiler.Profiler;
 
 import javax.inject.Inject;
+import javax.inject.Provider;
 import java.time.Clock;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.RecursiveAction;
-import java.util.regex.Pattern;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A concrete implementation of {@link WebCrawler} that runs multiple threads on a
  * {@link ForkJoinPool} to fetch and process multiple web pages in parallel.
+ *
+ * <p>The pool's parallelism is the {@link TargetParallelism}, capped at the number of cores.
+ * Downloads go through a {@link ForkJoinPool.ManagedBlocker}, so while a worker is blocked on the
+ * network the pool may start a compensation thread to keep the CPUs busy. The total number of
+ * threads, and therefore of concurrent downloads, is capped at the {@link FetchConcurrency}.
+ *
+ * <p>Each call to {@link #crawl(List)} runs as its own {@link CrawlSession}, which owns the
+ * visited URLs and word counts of that crawl only. A single instance can therefore serve any
+ * number of crawls, one after another or at the same time, on one shared pool, and a finished
+ * session's state is garbage once its result has been built. {@link #close()} stops the pool.
  */
 final class ParallelWebCrawler implements WebCrawler {
+  /**
+   * The largest number of threads a {@link ForkJoinPool} accepts.
+   */
+  private static final int MAX_POOL_SIZE = 0x7fff;
+
+  /**
+   * How long an idle compensation thread is kept before it is retired.
+   */
+  private static final Duration KEEP_ALIVE = Duration.ofSeconds(60);
+
+  /**
+   * How long past the deadline {@link #crawl(List)} waits for in-flight pages before it returns.
+   */
+  private static final Duration DEADLINE_SLACK = Duration.ofMillis(250);
+
   private final Clock clock;
   private final Duration timeout;
   private final int popularWordCount;
   private final ForkJoinPool pool;
-  private final List<Pattern> ignoredUrls;
+  private final IgnoredUrlMatcher ignoredUrls;
   private final int maxDepth;
   private final PageParserFactory parserFactory;
-  private final ConcurrentHashMap<String, Integer> counts;
-  private final ConcurrentHashMap<String, Integer> visitedUrls;
+  private final Provider<VisitedPages> visitedPageRecords;
+  private final Provider<CrawlWordCounts> wordCountRecords;
+  private final CrawlProgress progress;
+  private final UrlCanonicalizer canonicalizer;
+  private final Profiler profiler;
 
   @Inject
   ParallelWebCrawler(
@@ -33,32 +71,117 @@ final class ParallelWebCrawler implements WebCrawler {
           @Timeout Duration timeout,
           @PopularWordCount int popularWordCount,
           @TargetParallelism int threadCount,
-          @IgnoredUrls List<Pattern> ignoredUrls,
+          @FetchConcurrency int fetchConcurrency,
+          @IgnoredUrls IgnoredUrlMatcher ignoredUrls,
           @MaxDepth int maxDepth,
-          PageParserFactory parserFactory) {
+          PageParserFactory parserFactory,
+          Provider<VisitedPages> visitedPageRecords,
+          @WorkerPoolWordCounts Provider<CrawlWordCounts> wordCountRecords,
+          UrlCanonicalizer canonicalizer,
+          Profiler profiler) {
     this.clock = clock;
     this.timeout = timeout;
     this.popularWordCount = popularWordCount;
-    this.pool = new ForkJoinPool(Math.min(threadCount, getMaxParallelism()));
     this.ignoredUrls = ignoredUrls;
     this.maxDepth = maxDepth;
     this.parserFactory = parserFactory;
-    this.counts = new ConcurrentHashMap<>();
-    this.visitedUrls = new ConcurrentHashMap<>();
+    this.visitedPageRecords = visitedPageRecords;
+    this.wordCountRecords = wordCountRecords;
+    this.progress = new CrawlProgress(clock, popularWordCount);
+    this.canonicalizer = canonicalizer;
+    this.profiler = profiler;
+
+    int parallelism = Math.max(1, Math.min(threadCount, getMaxParallelism()));
+    int maxPoolSize = Math.min(Math.max(parallelism, fetchConcurrency), MAX_POOL_SIZE);
+    this.pool = new ForkJoinPool(
+        parallelism,
+        new CountingThreadFactory(parallelism),
+        null,
+        false,
+        parallelism,
+        maxPoolSize,
+        1,
+        // When the pool is saturated, block without compensating instead of failing the task.
+        p -> true,
+        KEEP_ALIVE.toMillis(),
+        TimeUnit.MILLISECONDS);
   }
 
   @Override
   public CrawlResult crawl(List<String> startingUrls) {
-    Instant deadline = clock.instant().plus(timeout);
+    if (pool.isShutdown()) {
+      throw new IllegalStateException("The crawler has been closed.");
+    }
+    CrawlSession session = new CrawlSession(clock.instant().plus(timeout));
+
+    // All starting URLs are forked under a single root task, so their subtrees interleave and the
+    // pool does not idle while the tail of one subtree finishes before the next one starts.
+    try (VisitedPages visitedPages = session.visitedPages;
+         CrawlWordCounts counts = session.counts;
+         CrawlProgress.Tracking tracking =
+             progress.track(session.deadline, counts, visitedPages::size)) {
+      boolean completed =
+          awaitUntilDeadline(pool.submit(session.new RootTask(startingUrls)), session.deadline);
+      // Tasks abandoned at the deadline may still be running. From here on they write nothing.
+      session.writes.close();
+
+      return new CrawlResult.Builder()
+              .setWordCounts(counts.popularWords(popularWordCount))
+              .setUrlsVisited(visitedPages.size())
+              .setDeadlineExceeded(!completed || clock.instant().isAfter(session.deadline))
+              .setWordCountErrorBound(counts.errorBound())
+              .build();
+    }
+  }
 
-    for (String url : startingUrls) {
-      pool.invoke(new CrawlTask(url, deadline, maxDepth));
+  @Override
+  public CrawlResult snapshot() {
+    return progress.snapshot();
+  }
+
+  /**
+   * Stops accepting new crawls, waits for the crawls still running to finish, and stops the pool.
+   *
+   * <p>A running crawl never takes much longer than the timeout, so that is also the longest this
+   * method waits before it interrupts whatever work is left.
+   */
+  @Override
+  public void close() {
+    pool.shutdown();
+    try {
+      if (!pool.awaitTermination(
+          timeout.plus(DEADLINE_SLACK).toMillis(), TimeUnit.MILLISECONDS)) {
+        pool.shutdownNow();
+      }
+    } catch (InterruptedException e) {
+      pool.shutdownNow();
+      Thread.currentThread().interrupt();
     }
+  }
 
-    return new CrawlResult.Builder()
-            .setWordCounts(WordCounts.sort(counts, popularWordCount))
-            .setUrlsVisited(visitedUrls.size())
-            .build();
+  /**
+   * Waits for the given task to complete, but no longer than {@link #DEADLINE_SLACK} past the
+   * deadline. Tasks still running after that are abandoned; they stop on their own, since every
+   * task checks the deadline before doing any work.
+   *
+   * @return true if the task completed, or false if it was abandoned.
+   */
+  private boolean awaitUntilDeadline(ForkJoinTask<?> task, Instant deadline) {
+    Duration wait = Duration.between(clock.instant(), deadline).plus(DEADLINE_SLACK);
+    try {
+      task.get(Math.max(0, wait.toNanos()), TimeUnit.NANOSECONDS);
+      return true;
+    } catch (TimeoutException e) {
+      return false;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    }
   }
 
   @Override
@@ -66,49 +189,217 @@ final class ParallelWebCrawler implements WebCrawler {
     return Runtime.getRuntime().availableProcessors();
   }
 
-  private class CrawlTask extends RecursiveAction {
-    private final String url;
+  /**
+   * The state of a single call to {@link #crawl(List)}. It is only reachable from that call and
+   * from its tasks, so it is released as soon as the crawl returns and its tasks have stopped.
+   *
+   * <p>Its tasks write to the word counts and visited pages through a {@link CrawlWriteGuard},
+   * so the result is built from counts that no longer change, and the counts and visited pages
+   * can be closed while abandoned tasks are still running.
+   */
+  private final class CrawlSession {
     private final Instant deadline;
-    private final int currentDepth;
+    private final CrawlWordCounts counts = wordCountRecords.get();
+    private final VisitedPages visitedPages = visitedPageRecords.get();
+    private final CrawlWriteGuard writes = new CrawlWriteGuard();
 
-    CrawlTask(
-            String url,
-            Instant deadline,
-            int currentDepth) {
-      this.url = url;
+    CrawlSession(Instant deadline) {
       this.deadline = deadline;
-      this.currentDepth = currentDepth;
     }
 
-    @Override
-    protected void compute() {
-      if (currentDepth <= 0 || clock.instant().isAfter(deadline)) {
-        return;
+    /**
+     * Crawls every starting URL in parallel.
+     */
+    private final class RootTask extends RecursiveAction {
+      private final List<String> startingUrls;
+
+      RootTask(List<String> startingUrls) {
+        this.startingUrls = startingUrls;
       }
 
-      for (Pattern pattern : ignoredUrls) {
-        if (pattern.matcher(url).matches()) {
+      @Override
+      protected void compute() {
+        List<String> urls = new ArrayList<>(startingUrls.size());
+        for (String url : startingUrls) {
+          // Links are canonicalized by the parser; starting URLs have to be done here.
+          urls.add(canonicalizer.canonicalize(url));
+        }
+        List<PageToFetch> pages = new ArrayList<>();
+        if (!writes.tryEnter()) {
           return;
         }
+        try {
+          enqueue(urls, maxDepth, pages);
+        } finally {
+          writes.exit();
+        }
+        if (!pages.isEmpty()) {
+          new CrawlTask(pages).invoke();
+        }
       }
+    }
 
-      if (visitedUrls.putIfAbsent(url, 1) == null) {
-        PageParser.Result result = parserFactory.get(url).parse();
-
-        for (Map.Entry<String, Integer> entry : result.getWordCounts().entrySet()) {
-          counts.merge(entry.getKey(), entry.getValue(), Integer::sum);
+    /**
+     * Adds the links that should be crawled to the list of pages to download.
+     *
+     * <p>All the cheap checks happen here, before any task is created: the depth, the deadline,
+     * the ignored URLs, and whether the page has been visited. Most links of a typical page fail
+     * one of them, so tasks are only created for pages that are actually downloaded.
+     *
+     * @param links the links to crawl.
+     * @param depth the remaining depth the links were reached at.
+     * @param pages where to add the pages that must be downloaded.
+     */
+    private void enqueue(List<String> links, int depth, List<PageToFetch> pages) {
+      if (depth <= 0 || clock.instant().isAfter(deadline)) {
+        return;
+      }
+      for (String link : links) {
+        if (ignoredUrls.matches(link)) {
+          continue;
         }
+        VisitedPages.Visit visit = visitedPages.visit(link, depth);
+        if (visit == null) {
+          continue;
+        }
+        if (visit.needsFetch()) {
+          pages.add(new PageToFetch(link, visit));
+        } else {
+          // Reached again with more depth left; its links were found when it was downloaded.
+          enqueue(visit.getLinks(), visit.getDepth() - 1, pages);
+        }
+      }
+    }
 
-        List<CrawlTask> subtasks = new ArrayList<>();
+    /**
+     * Downloads a batch of pages, splitting it in halves so idle workers can steal one of them,
+     * and crawls the new links each page leads to.
+     */
+    private final class CrawlTask extends RecursiveAction {
+      private final List<PageToFetch> pages;
 
-        for (String link : result.getLinks()) {
-          subtasks.add(new CrawlTask(link, deadline, currentDepth - 1));
+      CrawlTask(List<PageToFetch> pages) {
+        this.pages = pages;
+      }
+
+      @Override
+      protected void compute() {
+        if (pages.size() > 1) {
+          int middle = pages.size() / 2;
+          invokeAll(
+              new CrawlTask(pages.subList(0, middle)),
+              new CrawlTask(pages.subList(middle, pages.size())));
+          return;
+        }
+        PageToFetch page = pages.get(0);
+        if (clock.instant().isAfter(deadline)) {
+          return;
         }
 
-        invokeAll(subtasks);
-      } else {
-        // URL was already visited, increment the visit count
-        visitedUrls.compute(url, (key, value) -> value + 1);
+        PageFetch fetch = new PageFetch(page.url, deadline, counts.pageDictionary());
+        try {
+          ForkJoinPool.managedBlock(fetch);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+        PageParser.Result result = fetch.result;
+        if (clock.instant().isAfter(deadline) || !writes.tryEnter()) {
+          // The crawl result may already have been built; do not change it.
+          return;
+        }
+        List<PageToFetch> next = new ArrayList<>();
+        try {
+          counts.add(result);
+          enqueue(result.getLinks(), page.visit.fetched(result.getLinks()) - 1, next);
+        } finally {
+          writes.exit();
+        }
+        if (!next.isEmpty()) {
+          new CrawlTask(next).compute();
+        }
+      }
+    }
+  }
+
+  /**
+   * A page that has passed every check and is waiting to be downloaded.
+   */
+  private static final class PageToFetch {
+    final String url;
+    final VisitedPages.Visit visit;
+
+    PageToFetch(String url, VisitedPages.Visit visit) {
+      this.url = url;
+      this.visit = visit;
+    }
+  }
+
+  /**
+   * Downloads and parses a page, letting the {@link ForkJoinPool} compensate for the worker that
+   * is blocked on the network.
+   */
+  private final class PageFetch implements ForkJoinPool.ManagedBlocker {
+    private final String url;
+    private final Instant deadline;
+    private final WordDictionary dictionary;
+    private PageParser.Result result;
+
+    PageFetch(String url, Instant deadline, WordDictionary dictionary) {
+      this.url = url;
+      this.deadline = deadline;
+      this.dictionary = dictionary;
+    }
+
+    @Override
+    public boolean block() {
+      result = parserFactory.get(url, deadline, dictionary).parse();
+      return true;
+    }
+
+    @Override
+    public boolean isReleasable() {
+      return result != null;
+    }
+  }
+
+  /**
+   * Creates the pool's worker threads, and records the peak number of live workers beyond the
+   * pool's parallelism, which are compensations for blocked workers.
+   *
+   * <p>Idle workers retire after {@link #KEEP_ALIVE} and are started again when work arrives, so
+   * only the workers still alive are counted, not every thread ever started.
+   */
+  private final class CountingThreadFactory implements ForkJoinPool.ForkJoinWorkerThreadFactory {
+    private final int parallelism;
+    private final AtomicInteger live = new AtomicInteger();
+
+    CountingThreadFactory(int parallelism) {
+      this.parallelism = parallelism;
+    }
+
+    @Override
+    public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+      int workers = live.incrementAndGet();
+      if (workers > parallelism) {
+        profiler.recordMax(
+            ParallelWebCrawler.class, "peakCompensationThreads", workers - parallelism);
+      }
+      return new CountedWorkerThread(pool);
+    }
+
+    /**
+     * A worker that is no longer counted once it terminates.
+     */
+    private final class CountedWorkerThread extends ForkJoinWorkerThread {
+      CountedWorkerThread(ForkJoinPool pool) {
+        super(pool);
+      }
+
+      @Override
+      protected void onTermination(Throwable exception) {
+        live.decrementAndGet();
+        super.onTermination(exception);
       }
     }
   }
@@ -0,0 +1,379 @@
+package com.udacity.webcrawler;
+
+import com.udacity.webcrawler.json.CrawlResult;
+import com.udacity.webcrawler.parser.PageFetcher;
+import com.udacity.webcrawler.parser.PageParser;
+import com.udacity.webcrawler.parser.PageParserFactory;
+import com.udacity.webcrawler.parser.UrlCanonicalizer;
+import com.udacity.webcrawler.profiler.Profiler;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+import java.net.URI;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link WebCrawler} that runs downloading, parsing, and word counting as separate pipeline
+ * stages, each on its own threads.
+ *
+ * <p>The stages are connected by queues:
+ *
+ * <p><pre>
+ *   frontier --> fetch (I/O) --> parse queue --> parse (CPU) --> aggregate queue --> aggregate
+ *      ^                                            |
+ *      +------------------- new links --------------+
+ * </pre>
+ *
+ * <p>The parse and aggregate queues are bounded. When a burst of large pages arrives faster than
+ * it can be parsed, the fetch threads block on the full parse queue and stop downloading, instead
+ * of filling the heap with pages waiting to be parsed. The frontier is unbounded, since it only
+ * holds URLs and the parse stage must never block on it.
+ *
+ * <p>The fetch stage has {@link FetchConcurrency} threads, the parse stage has
+ * {@link TargetParallelism} threads, and a single thread owns the word counts, so merging them
+ * needs no synchronization. Each stage's throughput and each queue's peak depth are recorded with
+ * the {@link Profiler}.
+ */
+final class PipelinedWebCrawler implements WebCrawler {
+
+  /**
+   * The capacity of the bounded queues, per consumer thread.
+   */
+  private static final int QUEUE_CAPACITY_PER_CONSUMER = 2;
+
+  /**
+   * How long past the deadline {@link #crawl(List)} waits for in-flight pages before it returns.
+   */
+  private static final Duration DEADLINE_SLACK = Duration.ofMillis(250);
+
+  private final Clock clock;
+  private final Duration timeout;
+  private final int popularWordCount;
+  private final int parallelism;
+  private final int fetchConcurrency;
+  private final IgnoredUrlMatcher ignoredUrls;
+  private final int maxDepth;
+  private final PageFetcher fetcher;
+  private final PageParserFactory parserFactory;
+  private final Provider<VisitedPages> visitedPageRecords;
+  private final UrlCanonicalizer canonicalizer;
+  private final Provider<CrawlWordCounts> wordCountRecords;
+  private final CrawlProgress progress;
+  private final Profiler profiler;
+
+  @Inject
+  PipelinedWebCrawler(
+      Clock clock,
+      @Timeout Duration timeout,
+      @PopularWordCount int popularWordCount,
+      @TargetParallelism int parallelism,
+      @FetchConcurrency int fetchConcurrency,
+      @IgnoredUrls IgnoredUrlMatcher ignoredUrls,
+      @MaxDepth int maxDepth,
+      PageFetcher fetcher,
+      PageParserFactory parserFactory,
+      Provider<VisitedPages> visitedPageRecords,
+      UrlCanonicalizer canonicalizer,
+      Provider<CrawlWordCounts> wordCountRecords,
+      Profiler profiler) {
+    this.clock = clock;
+    this.timeout = timeout;
+    this.popularWordCount = popularWordCount;
+    this.parallelism = Math.max(1, Math.min(parallelism, getMaxParallelism()));
+    this.fetchConcurrency = Math.max(1, fetchConcurrency);
+    this.ignoredUrls = ignoredUrls;
+    this.maxDepth = maxDepth;
+    this.fetcher = fetcher;
+    this.parserFactory = parserFactory;
+    this.visitedPageRecords = visitedPageRecords;
+    this.canonicalizer = canonicalizer;
+    this.wordCountRecords = wordCountRecords;
+    this.progress = new CrawlProgress(clock, popularWordCount);
+    this.profiler = profiler;
+  }
+
+  @Override
+  public CrawlResult crawl(List<String> startingUrls) {
+    Pipeline pipeline = new Pipeline(clock.instant().plus(timeout));
+    try (VisitedPages seenPages = pipeline.seenPages;
+         CrawlWordCounts counts = pipeline.counts;
+         CrawlProgress.Tracking tracking =
+             progress.track(pipeline.deadline, counts, pipeline.urlsVisited::get)) {
+      boolean completed = pipeline.run(startingUrls);
+      // Stage threads cut short at the deadline may still be running. From here on they write
+      // nothing.
+      pipeline.writes.close();
+
+      return new CrawlResult.Builder()
+          .setWordCounts(counts.popularWords(popularWordCount))
+          .setUrlsVisited(pipeline.urlsVisited.get())
+          .setDeadlineExceeded(!completed || clock.instant().isAfter(pipeline.deadline))
+          .setWordCountErrorBound(counts.errorBound())
+          .build();
+    }
+  }
+
+  @Override
+  public CrawlResult snapshot() {
+    return progress.snapshot();
+  }
+
+  @Override
+  public int getMaxParallelism() {
+    return Runtime.getRuntime().availableProcessors();
+  }
+
+  /**
+   * A URL waiting in the frontier, with the visit that reached it.
+   */
+  private static final class Link {
+    final String url;
+    final VisitedPages.Visit visit;
+
+    Link(String url, VisitedPages.Visit visit) {
+      this.url = url;
+      this.visit = visit;
+    }
+  }
+
+  /**
+   * A downloaded page waiting to be parsed.
+   */
+  private static final class FetchedPage {
+    final PageFetcher.Page page;
+    final VisitedPages.Visit visit;
+
+    FetchedPage(PageFetcher.Page page, VisitedPages.Visit visit) {
+      this.page = page;
+      this.visit = visit;
+    }
+  }
+
+  /**
+   * The queues and state of a single call to {@link #crawl(List)}. The stages write to the word
+   * counts and visited pages through a {@link CrawlWriteGuard}, since they may outlive the crawl.
+   */
+  private final class Pipeline {
+    private final Instant deadline;
+    private final BlockingQueue<Link> frontier = new LinkedBlockingQueue<>();
+    private final BlockingQueue<FetchedPage> parseQueue =
+        new ArrayBlockingQueue<>(parallelism * QUEUE_CAPACITY_PER_CONSUMER);
+    private final BlockingQueue<PageParser.Result> aggregateQueue =
+        new ArrayBlockingQueue<>(QUEUE_CAPACITY_PER_CONSUMER);
+    private final VisitedPages seenPages = visitedPageRecords.get();
+    private final AtomicInteger urlsVisited = new AtomicInteger();
+    private final CrawlWriteGuard writes = new CrawlWriteGuard();
+
+    // Only accessed by the aggregate stage until the crawl is complete.
+    private final CrawlWordCounts counts = wordCountRecords.get();
+
+    // The number of URLs that have entered the pipeline but not yet left it. Starts at 1 so the
+    // crawl cannot complete while the starting URLs are still being enqueued.
+    private final AtomicInteger pending = new AtomicInteger(1);
+    private final CountDownLatch done = new CountDownLatch(1);
+
+    Pipeline(Instant deadline) {
+      this.deadline = deadline;
+    }
+
+    /**
+     * Runs the crawl until every URL has left the pipeline, but no longer than
+     * {@link #DEADLINE_SLACK} past the deadline. After that, the stage threads are interrupted,
+     * which cancels their downloads, and pages still in the pipeline are dropped.
+     *
+     * @return true if the crawl completed, or false if it was cut short.
+     */
+    boolean run(List<String> startingUrls) {
+      boolean completed = false;
+      ExecutorService fetchStage = Executors.newFixedThreadPool(fetchConcurrency);
+      ExecutorService parseStage = Executors.newFixedThreadPool(parallelism);
+      ExecutorService aggregateStage = Executors.newSingleThreadExecutor();
+      try {
+        for (int i = 0; i < fetchConcurrency; i++) {
+          fetchStage.execute(() -> runStage(this::fetch));
+        }
+        for (int i = 0; i < parallelism; i++) {
+          parseStage.execute(() -> runStage(this::parse));
+        }
+        aggregateStage.execute(() -> runStage(this::aggregate));
+
+        for (String url : startingUrls) {
+          // Links are canonicalized by the parser; starting URLs have to be done here.
+          enqueue(canonicalizer.canonicalize(url), maxDepth);
+        }
+        leave();
+        Duration wait = Duration.between(clock.instant(), deadline).plus(DEADLINE_SLACK);
+        completed = done.await(Math.max(0, wait.toNanos()), TimeUnit.NANOSECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        fetchStage.shutdownNow();
+        parseStage.shutdownNow();
+        aggregateStage.shutdownNow();
+      }
+      return completed;
+    }
+
+    /**
+     * Adds a URL to the frontier, unless it should not be crawled or has already been seen. If
+     * it has been seen, but is now reached with more depth left, its links are enqueued again.
+     */
+    private void enqueue(String url, int depth) {
+      if (depth <= 0 || clock.instant().isAfter(deadline)) {
+        return;
+      }
+      if (ignoredUrls.matches(url)) {
+        return;
+      }
+      VisitedPages.Visit visit = seenPages.visit(url, depth);
+      if (visit == null) {
+        return;
+      }
+      if (!visit.needsFetch()) {
+        for (String link : visit.getLinks()) {
+          enqueue(link, visit.getDepth() - 1);
+        }
+        return;
+      }
+      pending.incrementAndGet();
+      frontier.add(new Link(url, visit));
+    }
+
+    /**
+     * Marks a URL as having left the pipeline.
+     */
+    private void leave() {
+      if (pending.decrementAndGet() == 0) {
+        done.countDown();
+      }
+    }
+
+    private void fetch() throws InterruptedException {
+      Link link = frontier.take();
+      if (clock.instant().isAfter(deadline)) {
+        leave();
+        return;
+      }
+      urlsVisited.incrementAndGet();
+      long start = System.nanoTime();
+      PageFetcher.Page page;
+      try {
+        page = await(fetcher.fetch(new URI(link.url)));
+      } catch (InterruptedException e) {
+        leave();
+        throw e;
+      } catch (Exception e) {
+        // Invalid URI or failed download. The URL still counts as visited.
+        leave();
+        return;
+      } finally {
+        recordStage("fetch", start);
+      }
+      parseQueue.put(new FetchedPage(page, link.visit));
+      profiler.recordMax(PipelinedWebCrawler.class, "parseQueuePeakDepth", parseQueue.size());
+    }
+
+    /**
+     * Waits for a download for up to the timeout, but never past the deadline.
+     */
+    private PageFetcher.Page await(Future<PageFetcher.Page> download) throws Exception {
+      Duration wait = Duration.between(clock.instant(), deadline);
+      if (!timeout.isZero() && !timeout.isNegative() && timeout.compareTo(wait) < 0) {
+        wait = timeout;
+      }
+      try {
+        return download.get(Math.max(0, wait.toNanos()), TimeUnit.NANOSECONDS);
+      } catch (Exception e) {
+        download.cancel(true);
+        throw e;
+      }
+    }
+
+    private void parse() throws InterruptedException {
+      FetchedPage fetched = parseQueue.take();
+      long start = System.nanoTime();
+      PageParser.Result result;
+      try {
+        result = parserFactory.get(fetched.page, deadline, counts.pageDictionary()).parse();
+        if (!writes.tryEnter()) {
+          // The crawl result may already have been built; do not change it.
+          leave();
+          return;
+        }
+        try {
+          int linkDepth = fetched.visit.fetched(result.getLinks()) - 1;
+          for (String link : result.getLinks()) {
+            enqueue(link, linkDepth);
+          }
+        } finally {
+          writes.exit();
+        }
+      } catch (RuntimeException e) {
+        leave();
+        return;
+      } finally {
+        recordStage("parse", start);
+      }
+      aggregateQueue.put(result);
+      profiler.recordMax(
+          PipelinedWebCrawler.class, "aggregateQueuePeakDepth", aggregateQueue.size());
+    }
+
+    private void aggregate() throws InterruptedException {
+      PageParser.Result result = aggregateQueue.take();
+      if (clock.instant().isAfter(deadline) || !writes.tryEnter()) {
+        // The crawl result may already be being built; do not change it.
+        leave();
+        return;
+      }
+      long start = System.nanoTime();
+      try {
+        counts.add(result);
+      } finally {
+        writes.exit();
+      }
+      recordStage("aggregate", start);
+      leave();
+    }
+
+    private void recordStage(String stage, long startNanos) {
+      long elapsed = System.nanoTime() - startNanos;
+      profiler.count(PipelinedWebCrawler.class, stage + "Pages", 1);
+      profiler.count(
+          PipelinedWebCrawler.class, stage + "BusyMicros", TimeUnit.NANOSECONDS.toMicros(elapsed));
+    }
+
+    /**
+     * Runs a stage's unit of work repeatedly until the stage is shut down.
+     */
+    private void runStage(StageWork work) {
+      try {
+        while (!Thread.currentThread().isInterrupted()) {
+          work.run();
+        }
+      } catch (InterruptedException e) {
+        // The crawl is over.
+      }
+    }
+  }
+
+  /**
+   * One unit of work of a pipeline stage, which blocks until there is something to do.
+   */
+  @FunctionalInterface
+  private interface StageWork {
+    void run() throws InterruptedException;
+  }
+}
@@ -3,17 +3,14 @@ package com.udacity.webcrawler;
 import com.udacity.webcrawler.json.CrawlResult;
 import com.udacity.webcrawler.parser.PageParser;
 import com.udacity.webcrawler.parser.PageParserFactory;
+import com.udacity.webcrawler.parser.UrlCanonicalizer;
 
 import javax.inject.Inject;
+import javax.inject.Provider;
 import java.time.Clock;
 import java.time.Duration;
 import java.time.Instant;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
-import java.util.regex.Pattern;
 
 /**
  * A {@link WebCrawler} that downloads and processes one page at a time.
@@ -25,7 +22,11 @@ final class SequentialWebCrawler implements WebCrawler {
   private final Duration timeout;
   private final int popularWordCount;
   private final int maxDepth;
-  private final List<Pattern> ignoredUrls;
+  private final IgnoredUrlMatcher ignoredUrls;
+  private final Provider<VisitedPages> visitedPageRecords;
+  private final UrlCanonicalizer canonicalizer;
+  private final Provider<CrawlWordCounts> wordCountRecords;
+  private final CrawlProgress progress;
 
   @Inject
   SequentialWebCrawler(
@@ -34,35 +35,60 @@ final class SequentialWebCrawler implements WebCrawler {
       @Timeout Duration timeout,
       @PopularWordCount int popularWordCount,
       @MaxDepth int maxDepth,
-      @IgnoredUrls List<Pattern> ignoredUrls) {
+      @IgnoredUrls IgnoredUrlMatcher ignoredUrls,
+      Provider<VisitedPages> visitedPageRecords,
+      UrlCanonicalizer canonicalizer,
+      Provider<CrawlWordCounts> wordCountRecords) {
     this.clock = clock;
     this.parserFactory = parserFactory;
     this.timeout = timeout;
     this.popularWordCount = popularWordCount;
     this.maxDepth = maxDepth;
     this.ignoredUrls = ignoredUrls;
+    this.visitedPageRecords = visitedPageRecords;
+    this.canonicalizer = canonicalizer;
+    this.wordCountRecords = wordCountRecords;
+    this.progress = new CrawlProgress(clock, popularWordCount);
   }
 
   @Override
   public CrawlResult crawl(List<String> startingUrls) {
     Instant deadline = clock.instant().plus(timeout);
-    Map<String, Integer> counts = new HashMap<>();
-    Set<String> visitedUrls = new HashSet<>();
-    for (String url : startingUrls) {
-      crawlInternal(url, deadline, maxDepth, counts, visitedUrls);
+    try (VisitedPages visitedPages = visitedPageRecords.get();
+         CrawlWordCounts counts = wordCountRecords.get();
+         CrawlProgress.Tracking tracking = progress.track(deadline, counts, visitedPages::size)) {
+      for (String url : startingUrls) {
+        // Links are canonicalized by the parser; starting URLs have to be done here.
+        crawlInternal(canonicalizer.canonicalize(url), deadline, maxDepth, counts, visitedPages);
+      }
+      return buildResult(deadline, counts, visitedPages);
     }
+  }
+
+  @Override
+  public CrawlResult snapshot() {
+    return progress.snapshot();
+  }
+
+  private CrawlResult buildResult(
+      Instant deadline, CrawlWordCounts counts, VisitedPages visitedPages) {
+    boolean deadlineExceeded = clock.instant().isAfter(deadline);
 
     if (counts.isEmpty())
     {
       return new CrawlResult.Builder()
-          .setWordCounts(counts)
-          .setUrlsVisited(visitedUrls.size())
+          .setWordCounts(counts.toMap())
+          .setUrlsVisited(visitedPages.size())
+          .setDeadlineExceeded(deadlineExceeded)
+          .setWordCountErrorBound(counts.errorBound())
           .build();
     }
 
     return new CrawlResult.Builder()
-        .setWordCounts(WordCounts.sort(counts, popularWordCount))
-        .setUrlsVisited(visitedUrls.size())
+        .setWordCounts(counts.popularWords(popularWordCount))
+        .setUrlsVisited(visitedPages.size())
+        .setDeadlineExceeded(deadlineExceeded)
+        .setWordCountErrorBound(counts.errorBound())
         .build();
   }
 
@@ -70,37 +96,33 @@ final class SequentialWebCrawler implements WebCrawler {
       String url,
       Instant deadline,
       int maxDepth,
-      Map<String, Integer> counts,
-      Set<String> visitedUrls) {
+      CrawlWordCounts counts,
+      VisitedPages visitedPages) {
     if (maxDepth == 0 || clock.instant().isAfter(deadline))
     {
       return;
     }
-    for (Pattern pattern : ignoredUrls)
+    if (ignoredUrls.matches(url))
     {
-      if (pattern.matcher(url).matches())
-      {
-        return;
-      }
+      return;
     }
-    if (visitedUrls.contains(url))
+    VisitedPages.Visit visit = visitedPages.visit(url, maxDepth);
+    if (visit == null)
     {
       return;
     }
-    visitedUrls.add(url);
-    PageParser.Result result = parserFactory.get(url).parse();
-    for (Map.Entry<String, Integer> e : result.getWordCounts().entrySet())
+    if (!visit.needsFetch())
     {
-      if (counts.containsKey(e.getKey()))
-      {
-        counts.put(e.getKey(), e.getValue() + counts.get(e.getKey()));
-      } else
-      {
-        counts.put(e.getKey(), e.getValue());
+      for (String link : visit.getLinks()) {
+        crawlInternal(link, deadline, visit.getDepth() - 1, counts, visitedPages);
       }
+      return;
     }
+    PageParser.Result result = parserFactory.get(url, deadline, counts.pageDictionary()).parse();
+    counts.add(result);
+    int linkDepth = visit.fetched(result.getLinks()) - 1;
     for (String link : result.getLinks()) {
-      crawlInternal(link, deadline, maxDepth - 1, counts, visitedUrls);
+      crawlInternal(link, deadline, linkDepth, counts, visitedPages);
     }
   }
 }
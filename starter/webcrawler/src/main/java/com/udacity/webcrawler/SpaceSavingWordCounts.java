@@ -0,0 +1,146 @@
+package com.udacity.webcrawler;
+
+import com.udacity.webcrawler.parser.PageParser;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Approximate word counts that take a fixed amount of memory, kept with the Space-Saving algorithm
+ * (Metwally, Agrawal and El Abbadi, "Efficient Computation of Frequent and Top-k Elements in Data
+ * Streams", 2005).
+ *
+ * <p>At most {@code capacity} words have a count. When a word without a count is seen and every
+ * count is taken, it takes over the count of the word with the lowest one, and adds to it. No
+ * count is ever lower than the true count of its word, and none is higher by more than the lowest
+ * count, which is itself at most the total of all counts divided by the capacity. A word seen more
+ * often than the lowest count always has a count. The counts are kept in a binary heap, lowest at
+ * the root, so adding to a count takes {@code O(log capacity)} time.
+ *
+ * <p>Pages are added one at a time, under a lock. Merging a page takes much less time than
+ * downloading and parsing it, so threads rarely wait for each other.
+ */
+final class SpaceSavingWordCounts implements CrawlWordCounts {
+  private final Map<String, Counter> counters;
+  private final Counter[] heap;
+  private int size;
+
+  /**
+   * @param capacity the number of words to keep a count for.
+   */
+  SpaceSavingWordCounts(int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("The capacity must be positive: " + capacity);
+    }
+    this.counters = new HashMap<>(capacity + capacity / 3 + 1);
+    this.heap = new Counter[capacity];
+  }
+
+  @Override
+  public synchronized void add(PageParser.Result page) {
+    page.forEachWordCount(this::add);
+  }
+
+  /**
+   * Adds the given amount to the count of the given word.
+   */
+  synchronized void add(String word, long count) {
+    Counter counter = counters.get(word);
+    if (counter != null) {
+      counter.count += count;
+      siftDown(counter.index);
+      return;
+    }
+    if (size < heap.length) {
+      counter = new Counter(word, count);
+      counter.index = size;
+      heap[size++] = counter;
+      siftUp(counter.index);
+      counters.put(word, counter);
+      return;
+    }
+    // Every count is taken: the word takes over the lowest one.
+    counter = heap[0];
+    counters.remove(counter.word);
+    counter.word = word;
+    counter.count += count;
+    counters.put(word, counter);
+    siftDown(0);
+  }
+
+  @Override
+  public synchronized boolean isEmpty() {
+    return size == 0;
+  }
+
+  @Override
+  public synchronized Map<String, Integer> toMap() {
+    Map<String, Integer> map = new HashMap<>();
+    for (int i = 0; i < size; i++) {
+      map.put(heap[i].word, WordCounts.saturatedInt(heap[i].count));
+    }
+    return map;
+  }
+
+  @Override
+  public Map<String, Integer> popularWords(int popularWordCount) {
+    return WordCounts.sort(toMap(), popularWordCount);
+  }
+
+  /**
+   * Returns the lowest count once every count is taken, and 0 until then, when the counts are
+   * still exact.
+   */
+  @Override
+  public synchronized int errorBound() {
+    return size < heap.length ? 0 : WordCounts.saturatedInt(heap[0].count);
+  }
+
+  private void siftUp(int index) {
+    Counter counter = heap[index];
+    while (index > 0) {
+      int parent = (index - 1) / 2;
+      if (heap[parent].count <= counter.count) {
+        break;
+      }
+      place(heap[parent], index);
+      index = parent;
+    }
+    place(counter, index);
+  }
+
+  private void siftDown(int index) {
+    Counter counter = heap[index];
+    while (true) {
+      int child = 2 * index + 1;
+      if (child >= size) {
+        break;
+      }
+      if (child + 1 < size && heap[child + 1].count < heap[child].count) {
+        child++;
+      }
+      if (heap[child].count >= counter.count) {
+        break;
+      }
+      place(heap[child], index);
+      index = child;
+    }
+    place(counter, index);
+  }
+
+  private void place(Counter counter, int index) {
+    heap[index] = counter;
+    counter.index = index;
+  }
+
+  private static final class Counter {
+    String word;
+    long count;
+    int index;
+
+    Counter(String word, long count) {
+      this.word = word;
+      this.count = count;
+    }
+  }
+}
@@ -0,0 +1,357 @@
+package com.udacity.webcrawler;
+
+import com.udacity.webcrawler.parser.PageParser;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Exact word counts that move to disk when the heap gets full, for crawls whose vocabulary does not
+ * fit in memory.
+ *
+ * <p>Counts are added up by word in an in-memory map. After a page is added, if more than the
+ * given share of the maximum heap size is in use, the map is sorted by word and written to a
+ * temporary file, a "run", and a new, empty map takes its place. Heap usage includes garbage that
+ * has not been collected yet, so the map is only spilled once it holds at least
+ * {@value #MIN_SPILL_WORDS} words, to avoid writing many small runs.
+ *
+ * <p>The counts are read with a k-way merge of the runs and the sorted in-memory map, which visits
+ * every word once, in order, with its total count, while holding only the current word of each run
+ * in memory. {@link #popularWords(int)} keeps only the most popular words seen during the merge.
+ * {@link #toMap()} builds a map of every word, so it needs all of them to fit in memory.
+ *
+ * <p>Pages are added one at a time, under a lock, which spilling also holds. The popular words
+ * of a crawl in progress are merged outside the lock, from the runs written so far and a copy of
+ * the in-memory counts, so pages keep being added while a snapshot reads the runs. {@link #close()}
+ * deletes the runs. Pages added after that are ignored.
+ */
+final class SpillingWordCounts implements CrawlWordCounts {
+
+  /**
+   * The smallest number of words the in-memory map has to hold before it is spilled.
+   */
+  static final int MIN_SPILL_WORDS = 1 << 16;
+
+  private final Path parent;
+  private final double maxHeapUsage;
+  private final List<Path> runs = new ArrayList<>();
+  private Map<String, Count> counts = new HashMap<>();
+  private Path directory;
+  private boolean closed;
+
+  /**
+   * @param parent       the directory to create the runs in.
+   * @param maxHeapUsage the share of the maximum heap size, between 0 and 1, above which the
+   *                     in-memory counts are spilled.
+   */
+  SpillingWordCounts(Path parent, double maxHeapUsage) {
+    this.parent = parent;
+    this.maxHeapUsage = maxHeapUsage;
+  }
+
+  @Override
+  public synchronized void add(PageParser.Result page) {
+    if (closed) {
+      return;
+    }
+    page.forEachWordCount(this::add);
+    if (counts.size() >= MIN_SPILL_WORDS && heapUsage() > maxHeapUsage) {
+      spill();
+    }
+  }
+
+  /**
+   * Adds the given amount to the count of the given word.
+   */
+  synchronized void add(String word, long count) {
+    counts.computeIfAbsent(word, w -> new Count()).value += count;
+  }
+
+  /**
+   * Writes the in-memory counts to a new run, and starts over with an empty map.
+   *
+   * @throws UncheckedIOException if the run could not be written.
+   */
+  synchronized void spill() {
+    if (counts.isEmpty()) {
+      return;
+    }
+    List<Map.Entry<String, Count>> entries = new ArrayList<>(counts.entrySet());
+    entries.sort(Map.Entry.comparingByKey());
+    try {
+      if (directory == null) {
+        directory = Files.createTempDirectory(parent, "word-counts-");
+      }
+      Path run = directory.resolve("run-" + runs.size());
+      try (DataOutputStream out =
+               new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run)))) {
+        for (Map.Entry<String, Count> entry : entries) {
+          byte[] word = entry.getKey().getBytes(StandardCharsets.UTF_8);
+          out.writeInt(word.length);
+          out.write(word);
+          out.writeLong(entry.getValue().value);
+        }
+      }
+      runs.add(run);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not spill the word counts", e);
+    }
+    counts = new HashMap<>();
+  }
+
+  /**
+   * Returns the number of runs written so far.
+   */
+  synchronized int runCount() {
+    return runs.size();
+  }
+
+  @Override
+  public synchronized boolean isEmpty() {
+    return counts.isEmpty() && runs.isEmpty();
+  }
+
+  @Override
+  public synchronized Map<String, Integer> toMap() {
+    Map<String, Integer> map = new HashMap<>();
+    try (Stream<Map.Entry<String, Integer>> merged = merge(runs, copyCounts())) {
+      merged.forEach(entry -> map.put(entry.getKey(), entry.getValue()));
+    }
+    return map;
+  }
+
+  @Override
+  public synchronized Map<String, Integer> popularWords(int popularWordCount) {
+    try (Stream<Map.Entry<String, Integer>> merged = merge(runs, copyCounts())) {
+      return WordCounts.sort(merged, popularWordCount);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Only copying the in-memory counts holds the lock. If the counts are closed while the runs
+   * are being merged, the result is empty.
+   */
+  @Override
+  public Map<String, Integer> popularWordsSoFar(int popularWordCount) {
+    List<Path> runs;
+    List<Map.Entry<String, Long>> inMemory;
+    synchronized (this) {
+      if (closed) {
+        return Map.of();
+      }
+      runs = List.copyOf(this.runs);
+      inMemory = copyCounts();
+    }
+    try (Stream<Map.Entry<String, Integer>> merged = merge(runs, inMemory)) {
+      return WordCounts.sort(merged, popularWordCount);
+    } catch (UncheckedIOException e) {
+      synchronized (this) {
+        if (closed) {
+          // The runs were deleted under the merge.
+          return Map.of();
+        }
+      }
+      throw e;
+    }
+  }
+
+  @Override
+  public int errorBound() {
+    return 0;
+  }
+
+  @Override
+  public synchronized void close() {
+    closed = true;
+    counts = new HashMap<>();
+    try {
+      for (Path run : runs) {
+        Files.deleteIfExists(run);
+      }
+      if (directory != null) {
+        Files.deleteIfExists(directory);
+      }
+    } catch (IOException e) {
+      runs.forEach(run -> run.toFile().deleteOnExit());
+      if (directory != null) {
+        directory.toFile().deleteOnExit();
+      }
+    }
+    runs.clear();
+  }
+
+  /**
+   * Returns a copy of the in-memory counts, in no particular order. The caller must hold the lock.
+   */
+  private List<Map.Entry<String, Long>> copyCounts() {
+    List<Map.Entry<String, Long>> entries = new ArrayList<>(counts.size());
+    for (Map.Entry<String, Count> entry : counts.entrySet()) {
+      entries.add(Map.entry(entry.getKey(), entry.getValue().value));
+    }
+    return entries;
+  }
+
+  /**
+   * Returns every word with its total count, in order, merged from the given runs and in-memory
+   * counts, which this sorts. The stream must be closed, which closes the runs.
+   */
+  private static Stream<Map.Entry<String, Integer>> merge(
+      List<Path> runs, List<Map.Entry<String, Long>> inMemory) {
+    List<Source> sources = new ArrayList<>();
+    try {
+      for (Path run : runs) {
+        sources.add(new RunSource(run));
+      }
+    } catch (IOException e) {
+      sources.forEach(Source::close);
+      throw new UncheckedIOException("Could not read the spilled word counts", e);
+    }
+    inMemory.sort(Map.Entry.comparingByKey());
+    sources.add(new MemorySource(inMemory.iterator()));
+
+    Iterator<Map.Entry<String, Integer>> merged = new MergeIterator(sources);
+    return StreamSupport.stream(
+            Spliterators.spliteratorUnknownSize(
+                merged, Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL),
+            false)
+        .onClose(() -> sources.forEach(Source::close));
+  }
+
+  private static double heapUsage() {
+    Runtime runtime = Runtime.getRuntime();
+    return (runtime.totalMemory() - runtime.freeMemory()) / (double) runtime.maxMemory();
+  }
+
+  private static final class Count {
+    long value;
+  }
+
+  /**
+   * Sorted word counts to merge, positioned at their current word.
+   */
+  private abstract static class Source {
+    String word;
+    long count;
+
+    /**
+     * Moves to the next word, and returns false if there is none.
+     */
+    abstract boolean advance();
+
+    void close() {}
+  }
+
+  private static final class RunSource extends Source {
+    private final DataInputStream in;
+
+    RunSource(Path run) throws IOException {
+      this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run)));
+    }
+
+    @Override
+    boolean advance() {
+      try {
+        int length;
+        try {
+          length = in.readInt();
+        } catch (EOFException e) {
+          return false;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        word = new String(bytes, StandardCharsets.UTF_8);
+        count = in.readLong();
+        return true;
+      } catch (IOException e) {
+        throw new UncheckedIOException("Could not read the spilled word counts", e);
+      }
+    }
+
+    @Override
+    void close() {
+      try {
+        in.close();
+      } catch (IOException e) {
+        // Nothing was written, so there is nothing to lose.
+      }
+    }
+  }
+
+  private static final class MemorySource extends Source {
+    private final Iterator<Map.Entry<String, Long>> entries;
+
+    MemorySource(Iterator<Map.Entry<String, Long>> entries) {
+      this.entries = entries;
+    }
+
+    @Override
+    boolean advance() {
+      if (!entries.hasNext()) {
+        return false;
+      }
+      Map.Entry<String, Long> entry = entries.next();
+      word = entry.getKey();
+      count = entry.getValue();
+      return true;
+    }
+  }
+
+  /**
+   * Merges sorted sources, adding up the counts of a word that is in more than one of them.
+   */
+  private static final class MergeIterator implements Iterator<Map.Entry<String, Integer>> {
+    private final PriorityQueue<Source> heads =
+        new PriorityQueue<>((a, b) -> a.word.compareTo(b.word));
+
+    MergeIterator(List<Source> sources) {
+      for (Source source : sources) {
+        if (source.advance()) {
+          heads.add(source);
+        }
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return !heads.isEmpty();
+    }
+
+    @Override
+    public Map.Entry<String, Integer> next() {
+      if (heads.isEmpty()) {
+        throw new NoSuchElementException();
+      }
+      String word = heads.peek().word;
+      long total = 0;
+      while (!heads.isEmpty() && heads.peek().word.equals(word)) {
+        Source source = heads.poll();
+        total += source.count;
+        if (source.advance()) {
+          heads.add(source);
+        }
+      }
+      return Map.entry(word, WordCounts.saturatedInt(total));
+    }
+  }
+}
@@ -0,0 +1,168 @@
+package com.udacity.webcrawler;
+
+import com.udacity.webcrawler.parser.WordCountMap;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.IntStream;
+
+/**
+ * The word counts of a crawl, kept in a separate table for every thread that adds to them, and
+ * added together only when they are read.
+ *
+ * <p>With a single shared table, the most common words of every page are added to by every thread
+ * at once, and the cache lines holding their counts move from core to core on every add. Here a
+ * thread only ever writes its own table, with plain stores and no atomic instructions, and the
+ * cost moves to {@link #snapshot(int)}, which adds up the tables block by block, in parallel.
+ *
+ * <p>The threads of a pool outlive the crawl, and keep their thread local values until they happen
+ * to clean them up. So a table holds no reference back to the instance, which would keep it from
+ * being collected, and {@link #close()} releases the counts of every thread at once. An instance
+ * should belong to a single crawl.
+ */
+final class ThreadLocalWordCounts implements WordCountAggregator {
+  private static final int INITIAL_CAPACITY = 1 << 10;
+
+  /**
+   * The number of word IDs each parallel step of {@link #snapshot(int)} adds up.
+   */
+  private static final int SNAPSHOT_BLOCK_SIZE = 1 << 14;
+
+  private final ThreadLocal<Table> localTable = ThreadLocal.withInitial(this::newTable);
+  private final Queue<Table> tables = new ConcurrentLinkedQueue<>();
+
+  @Override
+  public void add(int id, long count) {
+    localTable.get().add(id, count);
+  }
+
+  @Override
+  public WordCountMap.IdCountConsumer adderForCurrentThread() {
+    return localTable.get()::add;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>This adds up the count in the table of every thread, so it reads a cache line that every
+   * other thread writes. It is meant for occasional reads, not for every word merged.
+   */
+  @Override
+  public long get(int id) {
+    long count = 0;
+    for (Table table : tables) {
+      count += table.get(id);
+    }
+    return count;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    for (Table table : tables) {
+      if (!table.isEmpty()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public long[] snapshot(int endId) {
+    long[] counts = new long[endId];
+    Table[] tables = this.tables.toArray(new Table[0]);
+    int blocks = (endId + SNAPSHOT_BLOCK_SIZE - 1) / SNAPSHOT_BLOCK_SIZE;
+    IntStream ranges = IntStream.range(0, blocks);
+    if (blocks > 1 && tables.length > 1) {
+      ranges = ranges.parallel();
+    }
+    ranges.forEach(block -> {
+      int from = block * SNAPSHOT_BLOCK_SIZE;
+      int to = Math.min(endId, from + SNAPSHOT_BLOCK_SIZE);
+      for (Table table : tables) {
+        table.addTo(counts, from, to);
+      }
+    });
+    return counts;
+  }
+
+  /**
+   * Releases the counts of every thread. Counts added afterwards are dropped.
+   */
+  @Override
+  public void close() {
+    for (Table table = tables.poll(); table != null; table = tables.poll()) {
+      table.release();
+    }
+  }
+
+  private Table newTable() {
+    Table table = new Table();
+    tables.add(table);
+    return table;
+  }
+
+  /**
+   * The counts added by one thread. Only that thread writes them, so a count is read and written
+   * without an atomic instruction, and published with a release store for the threads taking
+   * snapshots.
+   *
+   * <p>It is the value of a thread local, so it must not reference the instance, which would then
+   * stay reachable from the thread.
+   */
+  private static final class Table {
+    // Null once released.
+    private volatile AtomicLongArray counts = new AtomicLongArray(INITIAL_CAPACITY);
+    private volatile boolean empty = true;
+
+    void add(int id, long count) {
+      if (id < 0) {
+        throw new IllegalArgumentException("Word IDs cannot be negative: " + id);
+      }
+      AtomicLongArray counts = this.counts;
+      if (counts == null) {
+        return;
+      }
+      if (id >= counts.length()) {
+        counts = grow(counts, id);
+      }
+      counts.setRelease(id, counts.getPlain(id) + count);
+      if (empty) {
+        empty = false;
+      }
+    }
+
+    boolean isEmpty() {
+      return empty;
+    }
+
+    long get(int id) {
+      AtomicLongArray counts = this.counts;
+      return counts != null && id < counts.length() ? counts.getAcquire(id) : 0;
+    }
+
+    void addTo(long[] totals, int from, int to) {
+      AtomicLongArray counts = this.counts;
+      if (counts == null) {
+        return;
+      }
+      for (int id = from, end = Math.min(to, counts.length()); id < end; id++) {
+        totals[id] += counts.getAcquire(id);
+      }
+    }
+
+    void release() {
+      counts = null;
+    }
+
+    private AtomicLongArray grow(AtomicLongArray counts, int id) {
+      long capacity = Math.max(Long.highestOneBit(id) * 2, counts.length() * 2L);
+      AtomicLongArray grown = new AtomicLongArray((int) Math.min(capacity, Integer.MAX_VALUE));
+      for (int i = 0; i < counts.length(); i++) {
+        grown.setPlain(i, counts.getPlain(i));
+      }
+      this.counts = grown;
+      return grown;
+    }
+  }
+}
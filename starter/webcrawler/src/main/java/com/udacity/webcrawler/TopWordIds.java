@@ -0,0 +1,125 @@
+package com.udacity.webcrawler;
+
+import com.udacity.webcrawler.parser.WordDictionary;
+
+/**
+ * Picks the most popular words of a crawl, by word ID, without sorting all of them.
+ *
+ * <p>The IDs picked so far are kept in a binary heap of at most {@code limit} IDs, with the least
+ * popular of them at the root. A word that is not more popular than the root is rejected in
+ * constant time, and most words of a large vocabulary are rejected on their count alone, without
+ * looking them up in the dictionary. Picking the top {@code k} of {@code n} words takes
+ * {@code O(n log k)} time and {@code O(k)} space.
+ *
+ * <p>Words are ranked as by {@link WordCounts#sort(java.util.Map, int)}: by count, then by length,
+ * then alphabetically. Instances are not safe to use from many threads at once, but the words can
+ * be split between instances, which are then merged with {@link #addAll(TopWordIds)}.
+ */
+final class TopWordIds {
+  private final long[] counts;
+  private final WordDictionary dictionary;
+  private final int[] heap;
+  private int size;
+
+  /**
+   * @param counts     the word counts, indexed by word ID.
+   * @param dictionary the dictionary the word IDs belong to.
+   * @param limit      the number of words to pick.
+   */
+  TopWordIds(long[] counts, WordDictionary dictionary, int limit) {
+    this.counts = counts;
+    this.dictionary = dictionary;
+    this.heap = new int[limit];
+  }
+
+  /**
+   * Considers the word with the given ID, which must not have been offered before.
+   */
+  void offer(int id) {
+    if (size < heap.length) {
+      heap[size] = id;
+      siftUp(size++);
+      return;
+    }
+    if (size == 0) {
+      return;
+    }
+    int least = heap[0];
+    if (counts[id] < counts[least] || compare(id, least) >= 0) {
+      return;
+    }
+    heap[0] = id;
+    siftDown(0);
+  }
+
+  /**
+   * Considers every word picked by the given instance, which was offered different words.
+   */
+  void addAll(TopWordIds other) {
+    for (int i = 0; i < other.size; i++) {
+      offer(other.heap[i]);
+    }
+  }
+
+  /**
+   * Returns the IDs of the words picked, the most popular first.
+   */
+  int[] toSortedArray() {
+    int[] ids = new int[size];
+    // Repeatedly taking the least popular word off the heap fills the array from the back.
+    while (size > 0) {
+      ids[size - 1] = heap[0];
+      heap[0] = heap[--size];
+      siftDown(0);
+    }
+    return ids;
+  }
+
+  /**
+   * Returns a negative number if the first word is more popular than the second, and a positive
+   * number if it is less popular.
+   */
+  private int compare(int a, int b) {
+    if (counts[a] != counts[b]) {
+      return Long.compare(counts[b], counts[a]);
+    }
+    String wordA = dictionary.word(a);
+    String wordB = dictionary.word(b);
+    if (wordA.length() != wordB.length()) {
+      return Integer.compare(wordB.length(), wordA.length());
+    }
+    return wordA.compareTo(wordB);
+  }
+
+  private void siftUp(int index) {
+    int id = heap[index];
+    while (index > 0) {
+      int parent = (index - 1) / 2;
+      if (compare(heap[parent], id) >= 0) {
+        break;
+      }
+      heap[index] = heap[parent];
+      index = parent;
+    }
+    heap[index] = id;
+  }
+
+  private void siftDown(int index) {
+    int id = heap[index];
+    while (true) {
+      int child = 2 * index + 1;
+      if (child >= size) {
+        break;
+      }
+      if (child + 1 < size && compare(heap[child + 1], heap[child]) > 0) {
+        child++;
+      }
+      if (compare(heap[child], id) <= 0) {
+        break;
+      }
+      heap[index] = heap[child];
+      index = child;
+    }
+    heap[index] = id;
+  }
+}
@@ -0,0 +1,314 @@
+package com.udacity.webcrawler;
+
+import com.udacity.webcrawler.json.CrawlResult;
+import com.udacity.webcrawler.parser.PageParser;
+import com.udacity.webcrawler.parser.PageParserFactory;
+import com.udacity.webcrawler.parser.UrlCanonicalizer;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link WebCrawler} that starts one thread per in-flight URL.
+ *
+ * <p>Crawling is dominated by time spent blocked on the network, so instead of sizing a thread
+ * pool to the number of CPU cores, this crawler gives every URL its own thread and bounds the
+ * number of concurrent downloads with a {@link Semaphore}. On runtimes that support them (Java 21
+ * and later), the threads are virtual threads, which makes thousands of concurrent downloads
+ * cheap.
+ *
+ * <p>This is only worth it on Java 21 or later. The project targets Java 17, and on a Java 17
+ * runtime there are no virtual threads: every crawl then runs its URLs on a pool of at most
+ * {@link FetchConcurrency} daemon threads, so the number of OS threads stays bounded, and the
+ * crawler behaves like a plain thread pool crawler.
+ *
+ * <p>Downloads are limited by the {@link FetchConcurrency}, while merging downloaded pages into
+ * the crawl result is limited by the {@link TargetParallelism}.
+ */
+final class VirtualThreadWebCrawler implements WebCrawler {
+  /**
+   * Creates virtual threads, or is null if the running JVM does not support them.
+   */
+  private static final ThreadFactory VIRTUAL_THREADS = virtualThreadFactory();
+
+  /**
+   * How long an idle thread of a platform thread pool is kept before it is retired.
+   */
+  private static final Duration KEEP_ALIVE = Duration.ofSeconds(1);
+
+  /**
+   * How long past the deadline {@link #crawl(List)} waits for in-flight pages before it returns.
+   */
+  private static final Duration DEADLINE_SLACK = Duration.ofMillis(250);
+
+  private final Clock clock;
+  private final Duration timeout;
+  private final int popularWordCount;
+  private final int maxInFlight;
+  private final int cpuParallelism;
+  private final IgnoredUrlMatcher ignoredUrls;
+  private final int maxDepth;
+  private final PageParserFactory parserFactory;
+  private final Provider<VisitedPages> visitedPageRecords;
+  private final UrlCanonicalizer canonicalizer;
+  private final Provider<CrawlWordCounts> wordCountRecords;
+  private final CrawlProgress progress;
+
+  @Inject
+  VirtualThreadWebCrawler(
+      Clock clock,
+      @Timeout Duration timeout,
+      @PopularWordCount int popularWordCount,
+      @TargetParallelism int cpuParallelism,
+      @FetchConcurrency int maxInFlight,
+      @IgnoredUrls IgnoredUrlMatcher ignoredUrls,
+      @MaxDepth int maxDepth,
+      PageParserFactory parserFactory,
+      Provider<VisitedPages> visitedPageRecords,
+      UrlCanonicalizer canonicalizer,
+      Provider<CrawlWordCounts> wordCountRecords) {
+    this.clock = clock;
+    this.timeout = timeout;
+    this.popularWordCount = popularWordCount;
+    this.maxInFlight = Math.max(1, maxInFlight);
+    this.cpuParallelism = Math.max(1, cpuParallelism);
+    this.ignoredUrls = ignoredUrls;
+    this.maxDepth = maxDepth;
+    this.parserFactory = parserFactory;
+    this.visitedPageRecords = visitedPageRecords;
+    this.canonicalizer = canonicalizer;
+    this.wordCountRecords = wordCountRecords;
+    this.progress = new CrawlProgress(clock, popularWordCount);
+  }
+
+  @Override
+  public CrawlResult crawl(List<String> startingUrls) {
+    Crawl crawl = new Crawl(clock.instant().plus(timeout));
+    try (VisitedPages visitedPages = crawl.visitedPages;
+         CrawlWordCounts counts = crawl.counts;
+         CrawlProgress.Tracking tracking =
+             progress.track(crawl.deadline, counts, visitedPages::size)) {
+      for (String url : startingUrls) {
+        // Links are canonicalized by the parser; starting URLs have to be done here.
+        crawl.submit(canonicalizer.canonicalize(url), maxDepth);
+      }
+      boolean completed = crawl.awaitCompletion();
+      // Threads cut short at the deadline may still be running. From here on they write nothing.
+      crawl.writes.close();
+
+      return new CrawlResult.Builder()
+          .setWordCounts(counts.popularWords(popularWordCount))
+          .setUrlsVisited(visitedPages.size())
+          .setDeadlineExceeded(!completed || clock.instant().isAfter(crawl.deadline))
+          .setWordCountErrorBound(counts.errorBound())
+          .build();
+    }
+  }
+
+  @Override
+  public CrawlResult snapshot() {
+    return progress.snapshot();
+  }
+
+  /**
+   * Returns an effectively unbounded parallelism, since the number of concurrent downloads is not
+   * tied to the number of CPU cores. The actual ceiling is the {@link FetchConcurrency}.
+   */
+  @Override
+  public int getMaxParallelism() {
+    return Integer.MAX_VALUE;
+  }
+
+  /**
+   * The state of a single call to {@link #crawl(List)}. Its threads write to the word counts and
+   * visited pages through a {@link CrawlWriteGuard}, since they may outlive the crawl.
+   */
+  private final class Crawl {
+    private final Instant deadline;
+    private final CrawlWordCounts counts = wordCountRecords.get();
+    private final VisitedPages visitedPages = visitedPageRecords.get();
+    private final CrawlWriteGuard writes = new CrawlWriteGuard();
+    private final Semaphore fetchPermits = new Semaphore(maxInFlight);
+    private final Semaphore cpuPermits = new Semaphore(cpuParallelism);
+    private final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+    private final ThreadPoolExecutor platformThreads =
+        VIRTUAL_THREADS == null ? newPlatformThreadPool(maxInFlight) : null;
+
+    // Starts at 1 so the crawl cannot complete while the starting URLs are still being submitted.
+    private final AtomicInteger pending = new AtomicInteger(1);
+    private final CountDownLatch done = new CountDownLatch(1);
+
+    Crawl(Instant deadline) {
+      this.deadline = deadline;
+    }
+
+    void submit(String url, int depth) {
+      if (depth <= 0 || clock.instant().isAfter(deadline)) {
+        return;
+      }
+      pending.incrementAndGet();
+      Runnable task = () -> {
+        threads.add(Thread.currentThread());
+        try {
+          visit(url, depth);
+        } finally {
+          threads.remove(Thread.currentThread());
+          finish();
+        }
+      };
+      if (platformThreads == null) {
+        VIRTUAL_THREADS.newThread(task).start();
+        return;
+      }
+      try {
+        platformThreads.execute(task);
+      } catch (RejectedExecutionException e) {
+        // The crawl was cut short at the deadline and its pool stopped.
+        finish();
+      }
+    }
+
+    /**
+     * Waits for the crawl to complete, but no longer than {@link #DEADLINE_SLACK} past the
+     * deadline. Threads still running after that are interrupted, which cancels their downloads,
+     * and URLs still waiting for a platform thread are dropped.
+     *
+     * @return true if the crawl completed, or false if it was cut short.
+     */
+    boolean awaitCompletion() {
+      finish();
+      Duration wait = Duration.between(clock.instant(), deadline).plus(DEADLINE_SLACK);
+      try {
+        if (done.await(Math.max(0, wait.toNanos()), TimeUnit.NANOSECONDS)) {
+          if (platformThreads != null) {
+            platformThreads.shutdown();
+          }
+          return true;
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      if (platformThreads != null) {
+        platformThreads.shutdownNow();
+      }
+      threads.forEach(Thread::interrupt);
+      return false;
+    }
+
+    private void finish() {
+      if (pending.decrementAndGet() == 0) {
+        done.countDown();
+      }
+    }
+
+    private void visit(String url, int depth) {
+      if (ignoredUrls.matches(url)) {
+        return;
+      }
+      if (!writes.tryEnter()) {
+        return;
+      }
+      VisitedPages.Visit visit;
+      try {
+        visit = visitedPages.visit(url, depth);
+        if (visit == null) {
+          return;
+        }
+        if (!visit.needsFetch()) {
+          for (String link : visit.getLinks()) {
+            submit(link, visit.getDepth() - 1);
+          }
+          return;
+        }
+      } finally {
+        writes.exit();
+      }
+
+      PageParser.Result result;
+      try {
+        fetchPermits.acquire();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+      try {
+        if (clock.instant().isAfter(deadline)) {
+          return;
+        }
+        result = parserFactory.get(url, deadline, counts.pageDictionary()).parse();
+      } finally {
+        fetchPermits.release();
+      }
+      if (clock.instant().isAfter(deadline) || !writes.tryEnter()) {
+        // The crawl result may already have been built; do not change it.
+        return;
+      }
+      try {
+        cpuPermits.acquireUninterruptibly();
+        try {
+          counts.add(result);
+        } finally {
+          cpuPermits.release();
+        }
+        int linkDepth = visit.fetched(result.getLinks()) - 1;
+        for (String link : result.getLinks()) {
+          submit(link, linkDepth);
+        }
+      } finally {
+        writes.exit();
+      }
+    }
+  }
+
+  /**
+   * Returns a {@link ThreadFactory} for virtual threads if the running JVM supports them, or null
+   * otherwise.
+   *
+   * <p>The project targets Java 17, so the virtual thread builder is looked up reflectively.
+   */
+  private static ThreadFactory virtualThreadFactory() {
+    try {
+      Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      return (ThreadFactory) Class.forName("java.lang.Thread$Builder")
+          .getMethod("factory")
+          .invoke(builder);
+    } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Returns a pool of at most the given number of daemon platform threads, for a crawl on a JVM
+   * without virtual threads. URLs wait in the pool's queue for a thread, not in a thread of their
+   * own.
+   */
+  private static ThreadPoolExecutor newPlatformThreadPool(int threads) {
+    ThreadPoolExecutor pool = new ThreadPoolExecutor(
+        threads,
+        threads,
+        KEEP_ALIVE.toMillis(),
+        TimeUnit.MILLISECONDS,
+        new LinkedBlockingQueue<>(),
+        runnable -> {
+          Thread thread = new Thread(runnable);
+          thread.setDaemon(true);
+          return thread;
+        });
+    pool.allowCoreThreadTimeOut(true);
+    return pool;
+  }
+}
@@ -0,0 +1,167 @@
+package com.udacity.webcrawler;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The pages a single crawl has reached, and the greatest remaining depth each was reached at.
+ *
+ * <p>A crawler may reach a page through a long path first and through a shorter one later. Only
+ * recording that the page was visited would leave the links past the shorter path's depth
+ * unexplored, and which path wins depends on thread scheduling. Instead, every page remembers the
+ * greatest remaining depth it has been reached at and the links it was found to have. When a page
+ * is reached again with more depth left, its links are followed again from there, without
+ * downloading the page again. The pages a crawl covers are then the same from run to run.
+ *
+ * <p>Whether a page has been downloaded is decided by a {@link VisitedUrlSet}, so every page is
+ * still downloaded at most once. Pages are remembered by their 64-bit URL fingerprint, and only
+ * while a later path could still improve on their depth: a page reached with the greatest depth
+ * possible first is not remembered at all, and any other page forgets its links once it has been.
+ * The links of the other pages still cost memory, so this can be turned off with the
+ * {@code "depthCorrectRevisits"} option, in which case a page is only ever followed from the first
+ * path that reaches it. It is off by default when a compact visited URL set is selected.
+ *
+ * <p>Instances are safe to use from many threads at once.
+ */
+final class VisitedPages implements AutoCloseable {
+  private final VisitedUrlSet urls;
+  private final int maxDepth;
+  private final boolean trackDepths;
+  private final ConcurrentHashMap<Long, Page> pages = new ConcurrentHashMap<>();
+
+  /**
+   * Creates an empty record of visited pages.
+   *
+   * @param urls        the set that decides which URLs are downloaded.
+   * @param maxDepth    the remaining depth of the starting pages.
+   * @param trackDepths whether pages reached again with more depth left have their links followed
+   *                    again.
+   */
+  VisitedPages(VisitedUrlSet urls, int maxDepth, boolean trackDepths) {
+    this.urls = Objects.requireNonNull(urls);
+    this.maxDepth = maxDepth;
+    // With a maximum depth of 1, no page can be reached with more depth left than the first time.
+    this.trackDepths = trackDepths && maxDepth > 1;
+  }
+
+  /**
+   * Records that the given URL has been reached with the given remaining depth, and returns what
+   * the crawler should do about it.
+   *
+   * @return a {@link Visit} that says to download the page, or to follow the links it was found
+   *     to have again; or null if there is nothing to do.
+   */
+  Visit visit(String url, int depth) {
+    if (!trackDepths) {
+      return urls.add(url) ? new Visit(null, depth, null) : null;
+    }
+    long fingerprint = FingerprintVisitedUrlSet.fingerprint(url);
+    // The record is created before the URL is added, so a thread that finds the URL already added
+    // also finds its record, unless it was added with the greatest depth possible.
+    Page page = depth < maxDepth ? pages.computeIfAbsent(fingerprint, f -> new Page()) : null;
+    boolean added = urls.add(url);
+    if (added && page == null) {
+      return new Visit(null, depth, null);
+    }
+    if (page == null) {
+      page = pages.get(fingerprint);
+      if (page == null) {
+        return null;
+      }
+    }
+    synchronized (page) {
+      if (added) {
+        // Another thread may have reached the page with more depth left before this one added it.
+        page.bestDepth = Math.max(page.bestDepth, depth);
+        return new Visit(page, depth, null);
+      }
+      if (depth <= page.bestDepth) {
+        return null;
+      }
+      page.bestDepth = depth;
+      List<String> links = page.links;
+      if (links == null) {
+        // The page is still being downloaded. Its links are followed from this depth once it is.
+        return null;
+      }
+      if (depth >= maxDepth) {
+        // No path can improve on this one, so the links are never followed again.
+        page.links = List.of();
+      }
+      return new Visit(page, depth, links);
+    }
+  }
+
+  /**
+   * Returns the number of pages that have been downloaded, or started to be.
+   */
+  int size() {
+    return urls.size();
+  }
+
+  @Override
+  public void close() {
+    urls.close();
+  }
+
+  /**
+   * What a crawler should do with a URL it has reached: either download it, or follow the links
+   * it was already found to have.
+   */
+  final class Visit {
+    private final Page page;
+    private final int depth;
+    private final List<String> links;
+
+    private Visit(Page page, int depth, List<String> links) {
+      this.page = page;
+      this.depth = depth;
+      this.links = links;
+    }
+
+    /**
+     * Returns true if the page must be downloaded, and then passed to {@link #fetched(List)}.
+     */
+    boolean needsFetch() {
+      return links == null;
+    }
+
+    /**
+     * Returns the links to follow again, if the page does not need to be downloaded.
+     */
+    List<String> getLinks() {
+      return links;
+    }
+
+    /**
+     * Returns the remaining depth the links should be followed from.
+     */
+    int getDepth() {
+      return depth;
+    }
+
+    /**
+     * Records the links found on a page that has been downloaded.
+     *
+     * @return the remaining depth the links should be followed from. It is greater than
+     *     {@link #getDepth()} if the page was reached again through a shorter path meanwhile.
+     */
+    int fetched(List<String> links) {
+      if (page == null) {
+        return depth;
+      }
+      synchronized (page) {
+        // Links of a page reached with the most depth possible are never followed again.
+        page.links = page.bestDepth < maxDepth ? List.copyOf(links) : List.of();
+        return page.bestDepth;
+      }
+    }
+  }
+
+  private static final class Page {
+    // Guarded by the page's monitor.
+    int bestDepth;
+    List<String> links;
+  }
+}
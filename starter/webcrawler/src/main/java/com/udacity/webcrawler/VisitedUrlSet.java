@@ -0,0 +1,36 @@
+package com.udacity.webcrawler;
+
+/**
+ * The set of URLs a single crawl has already visited.
+ *
+ * <p>Implementations are safe to use from many threads at once. A new, empty set is created for
+ * every crawl; the {@code "visitedUrlSet"} option of the crawler configuration selects which
+ * implementation is used.
+ */
+interface VisitedUrlSet extends AutoCloseable {
+
+  /**
+   * Records the given URL as visited.
+   *
+   * <p>When several threads add the same URL at the same time, exactly one of them gets
+   * {@code true}, except where an implementation documents otherwise.
+   *
+   * @param url the URL to record.
+   * @return true if the URL had not been recorded before, or false if it had (or, for approximate
+   *     implementations, might have been).
+   */
+  boolean add(String url);
+
+  /**
+   * Returns the number of calls to {@link #add(String)} that returned true.
+   */
+  int size();
+
+  /**
+   * Releases any resources held outside of the Java heap. Crawlers close the set once the crawl
+   * is over, after their {@link CrawlWriteGuard} has stopped any more calls to
+   * {@link #add(String)}.
+   */
+  @Override
+  default void close() {}
+}
@@ -7,8 +7,11 @@ import java.util.List;
 
 /**
  * The main interface that defines the web crawler API.
+ *
+ * <p>A web crawler may hold threads or other resources across crawls. Callers that are done with
+ * it should {@link #close()} it.
  */
-public interface WebCrawler
+public interface WebCrawler extends AutoCloseable
 {
 
   /**
@@ -20,6 +23,20 @@ public interface WebCrawler
   @Profiled
   CrawlResult crawl(List<String> startingUrls);
 
+  /**
+   * Returns the results so far of the crawl in progress, which may be read from another thread
+   * while {@link #crawl(List)} is running. If no crawl is running, the result is empty.
+   *
+   * <p>The word counts are the most popular words so far, and
+   * {@link CrawlResult#isDeadlineExceeded()} tells whether the deadline has passed yet.
+   *
+   * @throws IllegalStateException if more than one crawl is running on this crawler.
+   */
+  default CrawlResult snapshot()
+  {
+    return new CrawlResult.Builder().build();
+  }
+
   /**
    * Returns the maximum amount of parallelism (number of CPU cores) supported by this web crawler.
    */
@@ -27,4 +44,13 @@ public interface WebCrawler
   {
     return 1;
   }
+
+  /**
+   * Releases the resources held by this web crawler, after waiting for any crawls in progress to
+   * finish. The crawler cannot be used afterwards.
+   */
+  @Override
+  default void close()
+  {
+  }
 }
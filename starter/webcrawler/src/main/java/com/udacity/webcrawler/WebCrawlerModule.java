@@ -7,12 +7,14 @@ import com.google.inject.ProvisionException;
 import com.google.inject.multibindings.Multibinder;
 import com.udacity.webcrawler.json.CrawlerConfiguration;
 import com.udacity.webcrawler.parser.ParserModule;
+import com.udacity.webcrawler.parser.WordDictionary;
 import com.udacity.webcrawler.profiler.Profiler;
 
 import javax.inject.Qualifier;
 import javax.inject.Singleton;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
+import java.nio.file.Path;
 import java.time.Clock;
 import java.time.Duration;
 import java.util.List;
@@ -49,6 +51,8 @@ public final class WebCrawlerModule extends AbstractModule {
         Multibinder.newSetBinder(binder(), WebCrawler.class, Internal.class);
     multibinder.addBinding().to(SequentialWebCrawler.class);
     multibinder.addBinding().to(ParallelWebCrawler.class);
+    multibinder.addBinding().to(VirtualThreadWebCrawler.class);
+    multibinder.addBinding().to(PipelinedWebCrawler.class);
 
     bind(Clock.class).toInstance(Clock.systemUTC());
     bind(Key.get(Integer.class, MaxDepth.class)).toInstance(config.getMaxDepth());
@@ -56,11 +60,20 @@ public final class WebCrawlerModule extends AbstractModule {
     bind(Key.get(Duration.class, Timeout.class)).toInstance(config.getTimeout());
     bind(new Key<List<Pattern>>(IgnoredUrls.class) {
     }).toInstance(config.getIgnoredUrls());
+    // Compiled once, up front, since every link of every page is checked against it.
+    bind(Key.get(IgnoredUrlMatcher.class, IgnoredUrls.class))
+        .toInstance(IgnoredUrlMatcher.compile(config.getIgnoredUrls()));
 
     install(
         new ParserModule.Builder()
             .setTimeout(config.getTimeout())
             .setIgnoredWords(config.getIgnoredWords())
+            .setHostPoliteness(
+                config.getMaxConnectionsPerHost(),
+                config.getMaxRequestsPerSecondPerHost(),
+                config.getHostPolitenessOverrides())
+            .setAdaptiveFetchConcurrency(config.isAdaptiveFetchConcurrency())
+            .setTrackingUrlParameters(config.getTrackingUrlParameters())
             .build());
   }
 
@@ -98,6 +111,78 @@ public final class WebCrawlerModule extends AbstractModule {
     return Runtime.getRuntime().availableProcessors();
   }
 
+  @Provides
+  @Singleton
+  @FetchConcurrency
+  int provideFetchConcurrency(@TargetParallelism int targetParallelism) {
+    if (config.getFetchConcurrency() >= 1) {
+      return config.getFetchConcurrency();
+    }
+    return targetParallelism;
+  }
+
+  /**
+   * Provides a new, empty {@link VisitedUrlSet} on every call, so each crawl gets its own.
+   */
+  @Provides
+  VisitedUrlSet provideVisitedUrlSet() {
+    if (config.getVisitedUrlSet().equals("bloom")) {
+      return new BloomFilterVisitedUrlSet(
+          config.getExpectedUrlCount(), config.getVisitedUrlFalsePositiveRate());
+    }
+    if (config.getVisitedUrlSet().equals("disk")) {
+      String directory = config.getVisitedUrlSetDirectory();
+      return new MappedVisitedUrlSet(
+          Path.of(directory.isEmpty() ? System.getProperty("java.io.tmpdir") : directory),
+          config.getExpectedUrlCount());
+    }
+    return new FingerprintVisitedUrlSet(
+        config.getExpectedUrlCount(), config.isVisitedUrlSetOffHeap());
+  }
+
+  /**
+   * Provides a new, empty {@link VisitedPages} on every call, so each crawl gets its own.
+   */
+  @Provides
+  VisitedPages provideVisitedPages(VisitedUrlSet urls) {
+    return new VisitedPages(urls, config.getMaxDepth(), config.isDepthCorrectRevisits());
+  }
+
+  /**
+   * Provides new, empty {@link CrawlWordCounts} on every call, so each crawl gets its own.
+   */
+  @Provides
+  CrawlWordCounts provideCrawlWordCounts(WordDictionary dictionary) {
+    if (config.getApproximateWordCountCapacity() > 0) {
+      return new SpaceSavingWordCounts(config.getApproximateWordCountCapacity());
+    }
+    if (config.getWordCountSpillHeapUsage() > 0) {
+      String directory = config.getWordCountSpillDirectory();
+      return new SpillingWordCounts(
+          Path.of(directory.isEmpty() ? System.getProperty("java.io.tmpdir") : directory),
+          config.getWordCountSpillHeapUsage());
+    }
+    return new ExactWordCounts(
+        new ConcurrentWordCounts(), dictionary, config.getPopularWordCount());
+  }
+
+  /**
+   * Provides new, empty {@link CrawlWordCounts} on every call, for a crawl by a pool of worker
+   * threads.
+   */
+  @Provides
+  @WorkerPoolWordCounts
+  CrawlWordCounts provideWorkerPoolWordCounts(WordDictionary dictionary) {
+    if (config.getApproximateWordCountCapacity() == 0
+        && config.getWordCountSpillHeapUsage() == 0
+        && config.getWordCountAggregation().equals("threadLocal")) {
+      // Reading a count back adds up every thread's table, so the popular words are not kept up
+      // to date as pages are added.
+      return new ExactWordCounts(new ThreadLocalWordCounts(), dictionary, 0);
+    }
+    return provideCrawlWordCounts(dictionary);
+  }
+
   @Provides
   @Singleton
   WebCrawler provideWebCrawlerProxy(Profiler wrapper, @Internal WebCrawler delegate) {
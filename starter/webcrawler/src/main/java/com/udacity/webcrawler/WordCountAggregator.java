@@ -0,0 +1,67 @@
+package com.udacity.webcrawler;
+
+import com.udacity.webcrawler.parser.WordCountMap;
+import com.udacity.webcrawler.parser.WordDictionary;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Adds up the word counts of a crawl, indexed by {@link WordDictionary} word ID, as many threads
+ * merge the counts of the pages they have parsed.
+ *
+ * <p>Implementations are safe to use from many threads at once.
+ */
+interface WordCountAggregator extends AutoCloseable {
+
+  /**
+   * Adds the given amount to the count of the word with the given ID.
+   */
+  void add(int id, long count);
+
+  /**
+   * Returns an action that adds to the counts on behalf of the calling thread, and that only that
+   * thread may use. A thread that merges many counts at once should get it once and reuse it.
+   */
+  default WordCountMap.IdCountConsumer adderForCurrentThread() {
+    return this::add;
+  }
+
+  /**
+   * Returns the count of the word with the given ID. Counts being added at the same time may or
+   * may not be included.
+   */
+  long get(int id);
+
+  /**
+   * Returns true if no word has been counted.
+   */
+  boolean isEmpty();
+
+  /**
+   * Returns the total counts of the words with IDs up to the given ID (exclusive), indexed by ID.
+   * Counts added while the snapshot is being taken may or may not be included.
+   */
+  long[] snapshot(int endId);
+
+  /**
+   * Returns the counts as a new {@link Map} from words. Counts added while the map is being built
+   * may or may not be included.
+   */
+  default Map<String, Integer> toMap(WordDictionary dictionary) {
+    long[] counts = snapshot(dictionary.size());
+    Map<String, Integer> map = new HashMap<>();
+    for (int id = 0; id < counts.length; id++) {
+      if (counts[id] != 0) {
+        map.put(dictionary.word(id), WordCounts.saturatedInt(counts[id]));
+      }
+    }
+    return map;
+  }
+
+  /**
+   * Releases the counts, which are no longer read or added to.
+   */
+  @Override
+  default void close() {}
+}
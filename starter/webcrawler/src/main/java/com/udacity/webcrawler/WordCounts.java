@@ -1,9 +1,14 @@
 package com.udacity.webcrawler;
 
+import com.udacity.webcrawler.parser.WordDictionary;
+
 import java.util.Comparator;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.PriorityQueue;
+import java.util.stream.Collector;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 /**
  * Utility class that sorts the map of word counts.
@@ -13,6 +18,23 @@ import java.util.PriorityQueue;
  */
 final class WordCounts {
 
+  /**
+   * When at least this many words are counted for every popular word asked for, the popular words
+   * are picked with a bounded heap instead of by sorting every word.
+   */
+  private static final int TOP_K_MIN_WORDS_PER_RESULT = 4;
+
+  /**
+   * The number of words from which the popular words are picked in parallel.
+   */
+  private static final int PARALLEL_MIN_WORDS = 1 << 16;
+
+  private static final Comparator<Map.Entry<String, Integer>> WORD_COUNT_ORDER =
+      Comparator.<Map.Entry<String, Integer>>comparingInt(Map.Entry::getValue)
+          .reversed()
+          .thenComparingInt(entry -> -entry.getKey().length())
+          .thenComparing(Map.Entry::getKey);
+
   /**
    * Given an unsorted map of word counts, returns a new map whose word counts are sorted according
    * to the provided {@link WordCountComparator}, and includes only the top
@@ -21,6 +43,10 @@ final class WordCounts {
    * <p>TODO: Reimplement this method using only the Stream API and lambdas and/or method
    *          references.
    *
+   * <p>Unless the result holds a large share of the words, the words are not all sorted: only the
+   * top {@param popularWordCount} of them are kept, in a bounded heap, and then sorted. Large maps
+   * are split between several heaps, which are filled in parallel and then merged.
+   *
    * @param wordCounts       the unsorted map of word counts.
    * @param popularWordCount the number of popular words to include in the result map.
    * @return a map containing the top {@param popularWordCount} words and counts in the right order.
@@ -29,15 +55,25 @@ final class WordCounts {
 
     //  Reimplement this method using only the Stream API and lambdas and/or method references.
 
-    Comparator<Map.Entry<String, Integer>> wordCountComparator =
-            Comparator.<Map.Entry<String, Integer>>comparingInt(Map.Entry::getValue)
-                    .reversed()
-                    .thenComparingInt(entry -> -entry.getKey().length())
-                    .thenComparing(Map.Entry::getKey);
+    Comparator<Map.Entry<String, Integer>> wordCountComparator = WORD_COUNT_ORDER;
+
+    Stream<Map.Entry<String, Integer>> entries;
+    if (popularWordCount <= 0) {
+      entries = Stream.empty();
+    } else if ((long) popularWordCount * TOP_K_MIN_WORDS_PER_RESULT > wordCounts.size()) {
+      entries = wordCounts.entrySet().stream().sorted(wordCountComparator);
+    } else {
+      Stream<Map.Entry<String, Integer>> unsorted = wordCounts.entrySet().stream();
+      if (wordCounts.size() >= PARALLEL_MIN_WORDS) {
+        unsorted = unsorted.parallel();
+      }
+      entries = unsorted
+          .collect(topK(wordCountComparator, popularWordCount))
+          .stream()
+          .sorted(wordCountComparator);
+    }
 
-    return wordCounts.entrySet()
-            .stream()
-            .sorted(wordCountComparator)
+    return entries
             .limit(popularWordCount)
             .collect(
                     LinkedHashMap::new,
@@ -45,6 +81,118 @@ final class WordCounts {
                     LinkedHashMap::putAll);
   }
 
+  /**
+   * Given a stream of word counts, with every word at most once, returns a new map of the top
+   * {@param popularWordCount} words and counts, sorted in the same order as
+   * {@link #sort(Map, int)}.
+   *
+   * <p>Only the popular words seen so far are kept while the stream is read, so the word counts do
+   * not have to fit in memory.
+   */
+  static Map<String, Integer> sort(
+      Stream<Map.Entry<String, Integer>> wordCounts, int popularWordCount) {
+    if (popularWordCount <= 0) {
+      return new LinkedHashMap<>();
+    }
+    return wordCounts
+        .collect(topK(WORD_COUNT_ORDER, popularWordCount))
+        .stream()
+        .sorted(WORD_COUNT_ORDER)
+        .collect(
+            LinkedHashMap::new,
+            (map, entry) -> map.put(entry.getKey(), entry.getValue()),
+            LinkedHashMap::putAll);
+  }
+
+  /**
+   * Returns a {@link Collector} of the {@code k} first elements in the given order, in no
+   * particular order. They are kept in a heap with the last of them at its head, so an element
+   * that comes after the head is dropped without changing the heap.
+   */
+  private static <T> Collector<T, ?, PriorityQueue<T>> topK(Comparator<T> order, int k) {
+    return Collector.of(
+        () -> new PriorityQueue<>(k + 1, order.reversed()),
+        (heap, element) -> offer(heap, element, order, k),
+        (heap, other) -> {
+          other.forEach(element -> offer(heap, element, order, k));
+          return heap;
+        },
+        Collector.Characteristics.UNORDERED);
+  }
+
+  private static <T> void offer(PriorityQueue<T> heap, T element, Comparator<T> order, int k) {
+    if (heap.size() < k) {
+      heap.add(element);
+    } else if (order.compare(element, heap.peek()) < 0) {
+      heap.poll();
+      heap.add(element);
+    }
+  }
+
+  /**
+   * Given the word counts of a crawl, returns a new map of the top {@param popularWordCount} words
+   * and counts, sorted in the same order as {@link #sort(Map, int)}.
+   *
+   * <p>The counts are sorted by word ID, and a word is only looked up in the dictionary to break a
+   * tie or once it has made the result. As in {@link #sort(Map, int)}, the words are only all
+   * sorted if the result holds a large share of them; otherwise the popular words are picked by a
+   * {@link TopWordIds}, one per range of IDs for a large dictionary, in parallel.
+   *
+   * @param wordCounts       the word counts, by word ID.
+   * @param dictionary       the dictionary the word IDs belong to.
+   * @param popularWordCount the number of popular words to include in the result map.
+   * @return a map containing the top {@param popularWordCount} words and counts in the right order.
+   */
+  static Map<String, Integer> sort(
+      WordCountAggregator wordCounts, WordDictionary dictionary, int popularWordCount) {
+    int words = dictionary.size();
+    long[] counts = wordCounts.snapshot(words);
+
+    if (popularWordCount > 0
+        && (long) popularWordCount * TOP_K_MIN_WORDS_PER_RESULT <= words) {
+      IntStream ids = IntStream.range(0, words);
+      if (words >= PARALLEL_MIN_WORDS) {
+        ids = ids.parallel();
+      }
+      int[] top = ids
+          .filter(id -> counts[id] > 0)
+          .collect(
+              () -> new TopWordIds(counts, dictionary, popularWordCount),
+              TopWordIds::offer,
+              TopWordIds::addAll)
+          .toSortedArray();
+      Map<String, Integer> result = new LinkedHashMap<>();
+      for (int id : top) {
+        result.put(dictionary.word(id), saturatedInt(counts[id]));
+      }
+      return result;
+    }
+
+    Comparator<Integer> byPopularity =
+        Comparator.<Integer>comparingLong(id -> counts[id])
+            .reversed()
+            .thenComparingInt(id -> -dictionary.word(id).length())
+            .thenComparing(dictionary::word);
+
+    return IntStream.range(0, words)
+        .filter(id -> counts[id] > 0)
+        .boxed()
+        .sorted(byPopularity)
+        .limit(popularWordCount)
+        .collect(
+            LinkedHashMap::new,
+            (map, id) -> map.put(dictionary.word(id), saturatedInt(counts[id])),
+            LinkedHashMap::putAll);
+  }
+
+  /**
+   * Returns the given count as an {@code int}, or {@link Integer#MAX_VALUE} if it is too large.
+   * Counts are added up as {@code long}s but reported as {@code int}s.
+   */
+  static int saturatedInt(long count) {
+    return (int) Math.min(count, Integer.MAX_VALUE);
+  }
+
   /**
    * A {@link Comparator} that sorts word count pairs correctly:
    *
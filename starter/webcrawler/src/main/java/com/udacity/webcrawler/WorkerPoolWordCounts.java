@@ -0,0 +1,17 @@
+package com.udacity.webcrawler;
+
+import javax.inject.Qualifier;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * A binding annotation for the {@link CrawlWordCounts} of a crawl whose pages are merged by the
+ * long-lived worker threads of a pool, which can each keep counts of their own.
+ *
+ * <p>Whether they do is the value of the {@code "wordCountAggregation"} option from the crawler
+ * configuration JSON.
+ */
+@Qualifier
+@Retention(RetentionPolicy.RUNTIME)
+public @interface WorkerPoolWordCounts {
+}
@@ -12,13 +12,21 @@ public final class CrawlResult
 {
   private final Map<String, Integer> wordCounts;
   private final int urlsVisited;
+  private final boolean deadlineExceeded;
+  private final int wordCountErrorBound;
 
   /**
    * Constructs a {@link CrawlResult} with the given word counts and visited URL count.
    */
-  private CrawlResult(Map<String, Integer> wordCounts, int urlsVisited) {
+  private CrawlResult(
+      Map<String, Integer> wordCounts,
+      int urlsVisited,
+      boolean deadlineExceeded,
+      int wordCountErrorBound) {
     this.wordCounts = wordCounts;
     this.urlsVisited = urlsVisited;
+    this.deadlineExceeded = deadlineExceeded;
+    this.wordCountErrorBound = wordCountErrorBound;
   }
 
   /**
@@ -52,12 +60,35 @@ public final class CrawlResult
     return urlsVisited;
   }
 
+  /**
+   * Returns true if the crawl ran into its deadline before it finished, in which case pages that
+   * were still being downloaded or processed were abandoned, and the word counts and visited URL
+   * count only reflect the work completed before the deadline.
+   */
+  public boolean isDeadlineExceeded() {
+    return deadlineExceeded;
+  }
+
+  /**
+   * Returns how far off the word counts may be, which is 0 unless the crawler counted words
+   * approximately (see {@link CrawlerConfiguration#getApproximateWordCountCapacity()}).
+   *
+   * <p>Approximate counts are never lower than the true counts, and at most this much higher. A
+   * word that is not in the word counts was seen at most this many times, so the popular words can
+   * only have been missed if they were seen that rarely.
+   */
+  public int getWordCountErrorBound() {
+    return wordCountErrorBound;
+  }
+
   /**
    * A package-private builder class for constructing web crawl {@link CrawlResult}s.
    */
   public static final class Builder {
     private Map<String, Integer> wordFrequencies = new HashMap<>();
     private int pageCount;
+    private boolean deadlineExceeded;
+    private int wordCountErrorBound;
 
     /**
      * Sets the word counts. See {@link #getWordCounts()}
@@ -75,12 +106,32 @@ public final class CrawlResult
       return this;
     }
 
+    /**
+     * Sets whether the crawl ran into its deadline. See {@link #isDeadlineExceeded()}.
+     */
+    public Builder setDeadlineExceeded(boolean deadlineExceeded) {
+      this.deadlineExceeded = deadlineExceeded;
+      return this;
+    }
+
+    /**
+     * Sets how far off the word counts may be. See {@link #getWordCountErrorBound()}.
+     */
+    public Builder setWordCountErrorBound(int wordCountErrorBound) {
+      this.wordCountErrorBound = wordCountErrorBound;
+      return this;
+    }
+
     /**
      * Constructs a {@link CrawlResult} from this builder.
      */
     public CrawlResult build()
     {
-      return new CrawlResult(Collections.unmodifiableMap(wordFrequencies), pageCount);
+      return new CrawlResult(
+          Collections.unmodifiableMap(wordFrequencies),
+          pageCount,
+          deadlineExceeded,
+          wordCountErrorBound);
     }
   }
 }
\ No newline at end of file
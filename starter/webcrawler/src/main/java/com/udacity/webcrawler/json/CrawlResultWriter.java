@@ -3,8 +3,11 @@ import com.fasterxml.jackson.core.JsonGenerator;
 
 
 import java.io.Writer;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Path;
 import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.Objects;
 import java.io.IOException;
 
@@ -47,6 +50,44 @@ public final class CrawlResultWriter
     }
   }
 
+  /**
+   * Formats the {@link CrawlResult} as JSON and replaces the file at the given {@link Path} with
+   * it, atomically if the file system supports it, so a reader of the file never sees a partly
+   * written result.
+   *
+   * <p>The result is first written to a temporary file in the same directory, which is then moved
+   * over the file at the path.
+   *
+   * @param path the file path where the crawl result data should be written.
+   */
+  public void replace(Path path) throws IOException
+  {
+    Path absolutePath = path.toAbsolutePath();
+    ObjectMapper objectMapper = new ObjectMapper();
+    Path temporaryFile = Files.createTempFile(
+        absolutePath.getParent(), absolutePath.getFileName().toString(), ".tmp");
+    try
+    {
+      Files.write(temporaryFile, objectMapper.writeValueAsBytes(result));
+      try
+      {
+        Files.move(
+            temporaryFile,
+            absolutePath,
+            StandardCopyOption.ATOMIC_MOVE,
+            StandardCopyOption.REPLACE_EXISTING);
+      }
+      catch (AtomicMoveNotSupportedException e)
+      {
+        Files.move(temporaryFile, absolutePath, StandardCopyOption.REPLACE_EXISTING);
+      }
+    }
+    finally
+    {
+      Files.deleteIfExists(temporaryFile);
+    }
+  }
+
   /**
    * Formats the {@link CrawlResult} as JSON and writes it to the given {@link Writer}.
    *
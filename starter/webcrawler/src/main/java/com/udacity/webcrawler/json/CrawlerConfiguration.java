@@ -3,8 +3,11 @@ package com.udacity.webcrawler.json;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import java.time.Duration;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.regex.Pattern;
@@ -17,36 +20,87 @@ public final class CrawlerConfiguration {
 
   private final List<String> startPages;
   private final List<Pattern> ignoredUrls;
+  private final List<String> trackingUrlParameters;
   private final List<Pattern> ignoredWords;
   private final int parallelism;
+  private final int fetchConcurrency;
+  private final boolean adaptiveFetchConcurrency;
+  private final int maxConnectionsPerHost;
+  private final double maxRequestsPerSecondPerHost;
+  private final Map<String, HostPoliteness> hostPolitenessOverrides;
+  private final String visitedUrlSet;
+  private final boolean visitedUrlSetOffHeap;
+  private final String visitedUrlSetDirectory;
+  private final int expectedUrlCount;
+  private final double visitedUrlFalsePositiveRate;
+  private final boolean depthCorrectRevisits;
+  private final String wordCountAggregation;
+  private final int approximateWordCountCapacity;
+  private final double wordCountSpillHeapUsage;
+  private final String wordCountSpillDirectory;
   private final String implementationOverride;
   private final int maxDepth;
   private final Duration timeout;
   private final int popularWordCount;
   private final String profileOutputPath;
   private final String resultPath;
+  private final Duration resultSnapshotInterval;
 
   private CrawlerConfiguration(
       List<String> startPages,
       List<Pattern> ignoredUrls,
+      List<String> trackingUrlParameters,
       List<Pattern> ignoredWords,
       int parallelism,
+      int fetchConcurrency,
+      boolean adaptiveFetchConcurrency,
+      int maxConnectionsPerHost,
+      double maxRequestsPerSecondPerHost,
+      Map<String, HostPoliteness> hostPolitenessOverrides,
+      String visitedUrlSet,
+      boolean visitedUrlSetOffHeap,
+      String visitedUrlSetDirectory,
+      int expectedUrlCount,
+      double visitedUrlFalsePositiveRate,
+      boolean depthCorrectRevisits,
+      String wordCountAggregation,
+      int approximateWordCountCapacity,
+      double wordCountSpillHeapUsage,
+      String wordCountSpillDirectory,
       String implementationOverride,
       int maxDepth,
       Duration timeout,
       int popularWordCount,
       String profileOutputPath,
-      String resultPath) {
+      String resultPath,
+      Duration resultSnapshotInterval) {
     this.startPages = startPages;
     this.ignoredUrls = ignoredUrls;
+    this.trackingUrlParameters = trackingUrlParameters;
     this.ignoredWords = ignoredWords;
     this.parallelism = parallelism;
+    this.fetchConcurrency = fetchConcurrency;
+    this.adaptiveFetchConcurrency = adaptiveFetchConcurrency;
+    this.maxConnectionsPerHost = maxConnectionsPerHost;
+    this.maxRequestsPerSecondPerHost = maxRequestsPerSecondPerHost;
+    this.hostPolitenessOverrides = hostPolitenessOverrides;
+    this.visitedUrlSet = visitedUrlSet;
+    this.visitedUrlSetOffHeap = visitedUrlSetOffHeap;
+    this.visitedUrlSetDirectory = visitedUrlSetDirectory;
+    this.expectedUrlCount = expectedUrlCount;
+    this.visitedUrlFalsePositiveRate = visitedUrlFalsePositiveRate;
+    this.depthCorrectRevisits = depthCorrectRevisits;
+    this.wordCountAggregation = wordCountAggregation;
+    this.approximateWordCountCapacity = approximateWordCountCapacity;
+    this.wordCountSpillHeapUsage = wordCountSpillHeapUsage;
+    this.wordCountSpillDirectory = wordCountSpillDirectory;
     this.implementationOverride = implementationOverride;
     this.maxDepth = maxDepth;
     this.timeout = timeout;
     this.popularWordCount = popularWordCount;
     this.profileOutputPath = profileOutputPath;
     this.resultPath = resultPath;
+    this.resultSnapshotInterval = resultSnapshotInterval;
   }
 
   /**
@@ -65,6 +119,21 @@ public final class CrawlerConfiguration {
     return ignoredUrls;
   }
 
+  /**
+   * An unmodifiable {@link List} of query parameters that are removed from URLs before they are
+   * compared, such as {@code "utm_source"} or {@code "fbclid"}. This setting is optional.
+   *
+   * <p>A name ending in {@code "*"} matches every parameter that starts with the rest of it, so
+   * {@code "utm_*"} removes all the UTM campaign parameters.
+   *
+   * <p>URLs are always put in a canonical form before the crawler decides whether it has already
+   * visited them: the scheme and host are lower-cased, default ports and fragments are removed,
+   * {@code "."} and {@code ".."} path segments are resolved, and query parameters are sorted.
+   */
+  public List<String> getTrackingUrlParameters() {
+    return trackingUrlParameters;
+  }
+
   /**
    * A {@link List} of regular expression {@link Pattern}s that determine which words, if any, the
    * web crawler should not be counted toward the popular word count returned from the crawl.
@@ -85,6 +154,185 @@ public final class CrawlerConfiguration {
     return parallelism;
   }
 
+  /**
+   * The maximum number of pages the crawler may download at the same time. This setting is
+   * optional.
+   *
+   * <p>Unlike {@link #getParallelism()}, which sizes the CPU-bound work of parsing pages and
+   * counting words, this setting sizes network concurrency, so it can be set much higher than the
+   * number of CPU cores. If set to a value less than 1, it defaults to the parallelism.
+   */
+  public int getFetchConcurrency() {
+    return fetchConcurrency;
+  }
+
+  /**
+   * Whether the number of pages downloaded at the same time should adapt to how the network is
+   * responding. This setting is optional, and defaults to false.
+   *
+   * <p>If true, the number of downloads in flight starts at {@link #getParallelism()}, grows
+   * while latency is stable, and is halved on timeouts and on 429 (Too Many Requests) or 5xx
+   * responses. It never exceeds {@link #getFetchConcurrency()}. If false, up to
+   * {@link #getFetchConcurrency()} downloads are always allowed.
+   */
+  public boolean isAdaptiveFetchConcurrency() {
+    return adaptiveFetchConcurrency;
+  }
+
+  /**
+   * The maximum number of pages the crawler may download from a single host at the same time. This
+   * setting is optional.
+   *
+   * <p>Downloads from a host that is at its limit wait, while downloads from other hosts go ahead.
+   * If set to a value less than 1, there is no per-host limit.
+   */
+  public int getMaxConnectionsPerHost() {
+    return maxConnectionsPerHost;
+  }
+
+  /**
+   * The maximum number of downloads the crawler may start per second from a single host. This
+   * setting is optional.
+   *
+   * <p>Downloads from a host are spaced at least {@code 1 / maxRequestsPerSecondPerHost} seconds
+   * apart, which also makes this the way to honor a site's crawl delay. If set to a value that is
+   * not positive, there is no per-host rate limit.
+   */
+  public double getMaxRequestsPerSecondPerHost() {
+    return maxRequestsPerSecondPerHost;
+  }
+
+  /**
+   * An unmodifiable {@link Map} from lower-case host names to the politeness limits that replace
+   * {@link #getMaxConnectionsPerHost()} and {@link #getMaxRequestsPerSecondPerHost()} for that
+   * host. This setting is optional.
+   *
+   * <p>Host names are matched exactly, so {@code "example.com"} does not apply to
+   * {@code "www.example.com"}.
+   */
+  public Map<String, HostPoliteness> getHostPolitenessOverrides() {
+    return hostPolitenessOverrides;
+  }
+
+  /**
+   * How the crawlers remember which URLs they have visited. This setting is optional.
+   *
+   * <p>{@code "fingerprint"}, the default, stores a 64-bit fingerprint of each URL, which costs
+   * about 11 bytes per URL and is exact unless two URLs share a fingerprint (about one chance in
+   * ten thousand over a hundred million URLs). {@code "bloom"} uses a Bloom filter with the
+   * {@link #getVisitedUrlFalsePositiveRate()}, which costs 1 to 2 bytes per URL, but skips that
+   * fraction of unvisited URLs as if they had been visited. {@code "disk"} stores the same
+   * fingerprints as {@code "fingerprint"}, but in memory-mapped files in the
+   * {@link #getVisitedUrlSetDirectory()}, for crawls too large to remember on the heap.
+   */
+  public String getVisitedUrlSet() {
+    return visitedUrlSet;
+  }
+
+  /**
+   * Whether the {@code "fingerprint"} visited URL set should be stored outside of the Java heap.
+   * This setting is optional, and defaults to false.
+   */
+  public boolean isVisitedUrlSetOffHeap() {
+    return visitedUrlSetOffHeap;
+  }
+
+  /**
+   * The directory the {@code "disk"} visited URL set keeps its files in. This setting is optional.
+   *
+   * <p>If unset or empty, the system's temporary directory is used. Each crawl creates its own
+   * directory inside it, and deletes it when the crawl is over.
+   */
+  public String getVisitedUrlSetDirectory() {
+    return visitedUrlSetDirectory;
+  }
+
+  /**
+   * The number of URLs a crawl is expected to visit. This setting is optional.
+   *
+   * <p>The {@code "fingerprint"} and {@code "disk"} visited URL sets start at this size and grow
+   * as needed. The {@code "bloom"} visited URL set has a fixed size, so its false-positive rate
+   * only holds up to this many URLs.
+   */
+  public int getExpectedUrlCount() {
+    return expectedUrlCount;
+  }
+
+  /**
+   * The false-positive rate of the {@code "bloom"} visited URL set, between 0 and 1. This setting
+   * is optional.
+   */
+  public double getVisitedUrlFalsePositiveRate() {
+    return visitedUrlFalsePositiveRate;
+  }
+
+  /**
+   * Whether a page that is reached again through a shorter path has its links followed again
+   * from the greater remaining depth. This setting is optional. It defaults to true with the
+   * {@code "fingerprint"} visited URL set on the heap, and to false with the other visited URL
+   * sets, which are chosen to bound memory.
+   *
+   * <p>Pages are never downloaded twice: the links found the first time are reused. Turning this
+   * off saves the memory those links take, but then a page is only followed from the first path
+   * that reaches it, so which pages are crawled can vary from run to run.
+   */
+  public boolean isDepthCorrectRevisits() {
+    return depthCorrectRevisits;
+  }
+
+  /**
+   * How the parallel crawler adds up the word counts of the pages it downloads. This setting is
+   * optional.
+   *
+   * <p>With {@code "shared"}, the default, every worker thread adds to the same table of counts.
+   * Common words are then added to by every thread at once, and the processor caches holding
+   * their counts are contended. With {@code "threadLocal"}, each worker thread adds to a table of
+   * its own, and the tables are added together, in parallel, when the counts are needed. This
+   * costs a table per worker thread.
+   */
+  public String getWordCountAggregation() {
+    return wordCountAggregation;
+  }
+
+  /**
+   * The number of words the crawler keeps a count for, if it should count words approximately, or
+   * 0 to count every word exactly. This setting is optional, and defaults to 0.
+   *
+   * <p>Exact counts take memory for every distinct word the crawl comes across, typos and IDs
+   * included. Approximate counts take a fixed amount of memory: only this many words are counted,
+   * and a word that is not among them takes the place of the least popular one, inheriting its
+   * count. The counts are then never too low, and the crawl result reports how much too high they
+   * may be (see {@link CrawlResult#getWordCountErrorBound()}). The larger this number is compared
+   * to the {@code "popularWordCount"}, the more accurate the popular words are. Approximate
+   * counting overrides the {@code "wordCountAggregation"}.
+   */
+  public int getApproximateWordCountCapacity() {
+    return approximateWordCountCapacity;
+  }
+
+  /**
+   * The share of the maximum heap size, between 0 and 1, above which exact word counts are moved
+   * to disk, or 0 to always keep them in memory. This setting is optional, and defaults to 0.
+   *
+   * <p>When it is set, words are counted in a map that is sorted and written to a temporary file in
+   * the {@link #getWordCountSpillDirectory()} whenever heap usage goes above this share. The files
+   * are merged when the crawl ends, so the counts are exact even when they do not fit in the heap.
+   * This is slower than counting in memory. Approximate counting, if enabled, takes precedence.
+   */
+  public double getWordCountSpillHeapUsage() {
+    return wordCountSpillHeapUsage;
+  }
+
+  /**
+   * The directory to which word counts are moved when the heap gets full, or the empty string for
+   * the system's temporary directory. This setting is optional.
+   *
+   * <p>See {@link #getWordCountSpillHeapUsage()}.
+   */
+  public String getWordCountSpillDirectory() {
+    return wordCountSpillDirectory;
+  }
+
   /**
    * An explicit override for which web crawler implementation should be used for this crawl.
    *
@@ -172,20 +420,50 @@ public final class CrawlerConfiguration {
     return resultPath;
   }
 
+  /**
+   * How often the results so far of the crawl in progress should be written to the
+   * {@link #getResultPath()}, so they can be read before the crawl finishes. Each snapshot
+   * replaces the previous one, atomically, and the final result replaces the last snapshot.
+   *
+   * <p>Snapshots are only written if this is positive and the result path is not empty. Their
+   * word counts are the popular words so far. See
+   * {@link com.udacity.webcrawler.WebCrawler#snapshot()}.
+   */
+  public Duration getResultSnapshotInterval() {
+    return resultSnapshotInterval;
+  }
+
   /**
    * A builder class to create {@link CrawlerConfiguration} instances.
    */
   public static final class Builder {
     private final Set<String> startPages = new LinkedHashSet<>();
     private final Set<String> ignoredUrls = new LinkedHashSet<>();
+    private final Set<String> trackingUrlParameters = new LinkedHashSet<>();
     private final Set<String> ignoredWords = new LinkedHashSet<>();
     private int parallelism = -1;
+    private int fetchConcurrency = -1;
+    private boolean adaptiveFetchConcurrency = false;
+    private int maxConnectionsPerHost = -1;
+    private double maxRequestsPerSecondPerHost = -1;
+    private final Map<String, HostPoliteness> hostPolitenessOverrides = new LinkedHashMap<>();
+    private String visitedUrlSet = "fingerprint";
+    private boolean visitedUrlSetOffHeap = false;
+    private String visitedUrlSetDirectory = "";
+    private int expectedUrlCount = 100_000;
+    private double visitedUrlFalsePositiveRate = 0.001;
+    private Boolean depthCorrectRevisits;
+    private String wordCountAggregation = "shared";
+    private int approximateWordCountCapacity = 0;
+    private double wordCountSpillHeapUsage = 0;
+    private String wordCountSpillDirectory = "";
     private String implementationOverride = "";
     private int maxDepth = 0;
     private int timeoutSeconds = 1;
     private int popularWordCount = 0;
     private String profileOutputPath = "";
     private String resultPath = "";
+    private int resultSnapshotIntervalSeconds = 0;
 
     /**
      * Adds a start page URL.
@@ -215,6 +493,20 @@ public final class CrawlerConfiguration {
       return this;
     }
 
+    /**
+     * Adds the names of query parameters to remove from URLs before they are compared.
+     *
+     * <p>Does nothing if the same name has already been added. See
+     * {@link #getTrackingUrlParameters()}.
+     */
+    @JsonProperty("trackingUrlParameters")
+    public Builder addTrackingUrlParameters(String... parameters) {
+      for (String parameter : parameters) {
+        trackingUrlParameters.add(Objects.requireNonNull(parameter));
+      }
+      return this;
+    }
+
     /**
      * Adds a regular expression pattern that defines words to ignore when computing the popular
      * counts.
@@ -245,6 +537,177 @@ public final class CrawlerConfiguration {
       return this;
     }
 
+    /**
+     * Sets the maximum number of pages that may be downloaded at the same time.
+     *
+     * <p>See {@link #getFetchConcurrency()}.
+     */
+    @JsonProperty("fetchConcurrency")
+    public Builder setFetchConcurrency(int fetchConcurrency) {
+      this.fetchConcurrency = fetchConcurrency;
+      return this;
+    }
+
+    /**
+     * Sets whether the number of pages downloaded at the same time should adapt to the network.
+     *
+     * <p>See {@link #isAdaptiveFetchConcurrency()}.
+     */
+    @JsonProperty("adaptiveFetchConcurrency")
+    public Builder setAdaptiveFetchConcurrency(boolean adaptiveFetchConcurrency) {
+      this.adaptiveFetchConcurrency = adaptiveFetchConcurrency;
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of pages that may be downloaded from a single host at the same time.
+     *
+     * <p>See {@link #getMaxConnectionsPerHost()}.
+     */
+    @JsonProperty("maxConnectionsPerHost")
+    public Builder setMaxConnectionsPerHost(int maxConnectionsPerHost) {
+      this.maxConnectionsPerHost = maxConnectionsPerHost;
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of downloads that may be started per second from a single host.
+     *
+     * <p>See {@link #getMaxRequestsPerSecondPerHost()}.
+     */
+    @JsonProperty("maxRequestsPerSecondPerHost")
+    public Builder setMaxRequestsPerSecondPerHost(double maxRequestsPerSecondPerHost) {
+      this.maxRequestsPerSecondPerHost = maxRequestsPerSecondPerHost;
+      return this;
+    }
+
+    /**
+     * Adds politeness limits for specific hosts, replacing any previously added for the same host.
+     *
+     * <p>See {@link #getHostPolitenessOverrides()}.
+     */
+    @JsonProperty("hostPolitenessOverrides")
+    public Builder addHostPolitenessOverrides(Map<String, HostPoliteness> overrides) {
+      for (Map.Entry<String, HostPoliteness> entry : overrides.entrySet()) {
+        hostPolitenessOverrides.put(
+            entry.getKey().toLowerCase(Locale.ROOT), Objects.requireNonNull(entry.getValue()));
+      }
+      return this;
+    }
+
+    /**
+     * Sets how visited URLs are remembered: {@code "fingerprint"}, {@code "bloom"} or
+     * {@code "disk"}.
+     *
+     * <p>See {@link #getVisitedUrlSet()}.
+     */
+    @JsonProperty("visitedUrlSet")
+    public Builder setVisitedUrlSet(String visitedUrlSet) {
+      this.visitedUrlSet = Objects.requireNonNull(visitedUrlSet);
+      return this;
+    }
+
+    /**
+     * Sets whether the visited URL set should be stored outside of the Java heap.
+     *
+     * <p>See {@link #isVisitedUrlSetOffHeap()}.
+     */
+    @JsonProperty("visitedUrlSetOffHeap")
+    public Builder setVisitedUrlSetOffHeap(boolean visitedUrlSetOffHeap) {
+      this.visitedUrlSetOffHeap = visitedUrlSetOffHeap;
+      return this;
+    }
+
+    /**
+     * Sets the directory the {@code "disk"} visited URL set keeps its files in.
+     *
+     * <p>See {@link #getVisitedUrlSetDirectory()}.
+     */
+    @JsonProperty("visitedUrlSetDirectory")
+    public Builder setVisitedUrlSetDirectory(String visitedUrlSetDirectory) {
+      this.visitedUrlSetDirectory = Objects.requireNonNull(visitedUrlSetDirectory);
+      return this;
+    }
+
+    /**
+     * Sets the number of URLs a crawl is expected to visit.
+     *
+     * <p>See {@link #getExpectedUrlCount()}.
+     */
+    @JsonProperty("expectedUrlCount")
+    public Builder setExpectedUrlCount(int expectedUrlCount) {
+      this.expectedUrlCount = expectedUrlCount;
+      return this;
+    }
+
+    /**
+     * Sets the false-positive rate of the Bloom filter visited URL set.
+     *
+     * <p>See {@link #getVisitedUrlFalsePositiveRate()}.
+     */
+    @JsonProperty("visitedUrlFalsePositiveRate")
+    public Builder setVisitedUrlFalsePositiveRate(double visitedUrlFalsePositiveRate) {
+      this.visitedUrlFalsePositiveRate = visitedUrlFalsePositiveRate;
+      return this;
+    }
+
+    /**
+     * Sets whether pages reached again through a shorter path have their links followed again.
+     *
+     * <p>See {@link #isDepthCorrectRevisits()}.
+     */
+    @JsonProperty("depthCorrectRevisits")
+    public Builder setDepthCorrectRevisits(boolean depthCorrectRevisits) {
+      this.depthCorrectRevisits = depthCorrectRevisits;
+      return this;
+    }
+
+    /**
+     * Sets how the parallel crawler adds up word counts: {@code "shared"} or
+     * {@code "threadLocal"}.
+     *
+     * <p>See {@link #getWordCountAggregation()}.
+     */
+    @JsonProperty("wordCountAggregation")
+    public Builder setWordCountAggregation(String wordCountAggregation) {
+      this.wordCountAggregation = Objects.requireNonNull(wordCountAggregation);
+      return this;
+    }
+
+    /**
+     * Sets the number of words to keep an approximate count for, or 0 to count every word exactly.
+     *
+     * <p>See {@link #getApproximateWordCountCapacity()}.
+     */
+    @JsonProperty("approximateWordCountCapacity")
+    public Builder setApproximateWordCountCapacity(int approximateWordCountCapacity) {
+      this.approximateWordCountCapacity = approximateWordCountCapacity;
+      return this;
+    }
+
+    /**
+     * Sets the share of the maximum heap size above which word counts are moved to disk, or 0 to
+     * always keep them in memory.
+     *
+     * <p>See {@link #getWordCountSpillHeapUsage()}.
+     */
+    @JsonProperty("wordCountSpillHeapUsage")
+    public Builder setWordCountSpillHeapUsage(double wordCountSpillHeapUsage) {
+      this.wordCountSpillHeapUsage = wordCountSpillHeapUsage;
+      return this;
+    }
+
+    /**
+     * Sets the directory to which word counts are moved when the heap gets full.
+     *
+     * <p>See {@link #getWordCountSpillDirectory()}.
+     */
+    @JsonProperty("wordCountSpillDirectory")
+    public Builder setWordCountSpillDirectory(String wordCountSpillDirectory) {
+      this.wordCountSpillDirectory = Objects.requireNonNull(wordCountSpillDirectory);
+      return this;
+    }
+
     /**
      * Overrides the {@link com.udacity.webcrawler.WebCrawler} implementation that should be used
      * for the crawl.
@@ -313,6 +776,17 @@ public final class CrawlerConfiguration {
       return this;
     }
 
+    /**
+     * Sets how often, in seconds, the results so far should be written. 0 turns snapshots off.
+     *
+     * <p>See {@link #getResultSnapshotInterval()}.
+     */
+    @JsonProperty("resultSnapshotIntervalSeconds")
+    public Builder setResultSnapshotIntervalSeconds(int seconds) {
+      this.resultSnapshotIntervalSeconds = seconds;
+      return this;
+    }
+
     /**
      * Constructs a {@link CrawlerConfiguration} from this builder.
      */
@@ -326,18 +800,66 @@ public final class CrawlerConfiguration {
       if (popularWordCount < 0) {
         throw new IllegalArgumentException("popularWordCount cannot be negative");
       }
+      if (Double.isNaN(maxRequestsPerSecondPerHost)
+          || Double.isInfinite(maxRequestsPerSecondPerHost)) {
+        throw new IllegalArgumentException("maxRequestsPerSecondPerHost must be a finite number");
+      }
+      if (!Set.of("fingerprint", "bloom", "disk").contains(visitedUrlSet)) {
+        throw new IllegalArgumentException(
+            "visitedUrlSet must be \"fingerprint\", \"bloom\" or \"disk\"");
+      }
+      if (!Set.of("shared", "threadLocal").contains(wordCountAggregation)) {
+        throw new IllegalArgumentException(
+            "wordCountAggregation must be \"shared\" or \"threadLocal\"");
+      }
+      if (approximateWordCountCapacity != 0
+          && approximateWordCountCapacity < Math.max(1, popularWordCount)) {
+        throw new IllegalArgumentException(
+            "approximateWordCountCapacity must be 0, or at least the popularWordCount");
+      }
+      if (!(wordCountSpillHeapUsage >= 0 && wordCountSpillHeapUsage <= 1)) {
+        throw new IllegalArgumentException("wordCountSpillHeapUsage must be between 0 and 1");
+      }
+      if (resultSnapshotIntervalSeconds < 0) {
+        throw new IllegalArgumentException("resultSnapshotIntervalSeconds cannot be negative");
+      }
+      if (expectedUrlCount < 1) {
+        throw new IllegalArgumentException("expectedUrlCount must be positive");
+      }
+      if (!(visitedUrlFalsePositiveRate > 0 && visitedUrlFalsePositiveRate < 1)) {
+        throw new IllegalArgumentException("visitedUrlFalsePositiveRate must be between 0 and 1");
+      }
 
       return new CrawlerConfiguration(
           startPages.stream().collect(Collectors.toUnmodifiableList()),
           ignoredUrls.stream().map(Pattern::compile).collect(Collectors.toUnmodifiableList()),
+          List.copyOf(trackingUrlParameters),
           ignoredWords.stream().map(Pattern::compile).collect(Collectors.toUnmodifiableList()),
           parallelism,
+          fetchConcurrency,
+          adaptiveFetchConcurrency,
+          maxConnectionsPerHost,
+          maxRequestsPerSecondPerHost,
+          Map.copyOf(hostPolitenessOverrides),
+          visitedUrlSet,
+          visitedUrlSetOffHeap,
+          visitedUrlSetDirectory,
+          expectedUrlCount,
+          visitedUrlFalsePositiveRate,
+          depthCorrectRevisits != null
+              ? depthCorrectRevisits
+              : visitedUrlSet.equals("fingerprint") && !visitedUrlSetOffHeap,
+          wordCountAggregation,
+          approximateWordCountCapacity,
+          wordCountSpillHeapUsage,
+          wordCountSpillDirectory,
           implementationOverride,
           maxDepth,
           Duration.ofSeconds(timeoutSeconds),
           popularWordCount,
           profileOutputPath,
-          resultPath);
+          resultPath,
+          Duration.ofSeconds(resultSnapshotIntervalSeconds));
     }
   }
 }
@@ -0,0 +1,81 @@
+package com.udacity.webcrawler.json;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+
+/**
+ * A data class that overrides the per-host politeness limits of a crawl for a single host.
+ *
+ * <p>See {@link CrawlerConfiguration#getHostPolitenessOverrides()}.
+ */
+@JsonDeserialize(builder = HostPoliteness.Builder.class)
+public final class HostPoliteness {
+
+  private final int maxConnections;
+  private final double maxRequestsPerSecond;
+
+  private HostPoliteness(int maxConnections, double maxRequestsPerSecond) {
+    this.maxConnections = maxConnections;
+    this.maxRequestsPerSecond = maxRequestsPerSecond;
+  }
+
+  /**
+   * The maximum number of pages that may be downloaded from the host at the same time.
+   *
+   * <p>If set to 0, there is no limit. If set to a negative value, the host uses
+   * {@link CrawlerConfiguration#getMaxConnectionsPerHost()}.
+   */
+  public int getMaxConnections() {
+    return maxConnections;
+  }
+
+  /**
+   * The maximum number of downloads that may be started per second from the host.
+   *
+   * <p>If set to 0, there is no limit. If set to a negative value, the host uses
+   * {@link CrawlerConfiguration#getMaxRequestsPerSecondPerHost()}.
+   */
+  public double getMaxRequestsPerSecond() {
+    return maxRequestsPerSecond;
+  }
+
+  /**
+   * A builder class to create {@link HostPoliteness} instances.
+   */
+  public static final class Builder {
+    private int maxConnections = -1;
+    private double maxRequestsPerSecond = -1;
+
+    /**
+     * Sets the maximum number of concurrent downloads from the host.
+     *
+     * <p>See {@link #getMaxConnections()}.
+     */
+    @JsonProperty("maxConnections")
+    public Builder setMaxConnections(int maxConnections) {
+      this.maxConnections = maxConnections;
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of downloads started per second from the host.
+     *
+     * <p>See {@link #getMaxRequestsPerSecond()}.
+     */
+    @JsonProperty("maxRequestsPerSecond")
+    public Builder setMaxRequestsPerSecond(double maxRequestsPerSecond) {
+      this.maxRequestsPerSecond = maxRequestsPerSecond;
+      return this;
+    }
+
+    /**
+     * Constructs a {@link HostPoliteness} from this builder.
+     */
+    public HostPoliteness build() {
+      if (Double.isNaN(maxRequestsPerSecond) || Double.isInfinite(maxRequestsPerSecond)) {
+        throw new IllegalArgumentException("maxRequestsPerSecond must be a finite number");
+      }
+      return new HostPoliteness(maxConnections, maxRequestsPerSecond);
+    }
+  }
+}
@@ -16,9 +16,14 @@ import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.nio.file.Path;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.StandardOpenOption;
+import java.time.Duration;
 import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 public final class WebCrawlerMain {
   private final CrawlerConfiguration config;
   private WebCrawlerMain(CrawlerConfiguration config)
@@ -31,14 +36,42 @@ public final class WebCrawlerMain {
   private Profiler profiler;
   private void run() throws Exception {
     Guice.createInjector(new WebCrawlerModule(config), new ProfilerModule()).injectMembers(this);
-    CrawlResult result = crawler.crawl(config.getStartPages());
+    CrawlResult result;
+    String resultFilePath = config.getResultPath();
+    Duration snapshotInterval = config.getResultSnapshotInterval();
+    boolean writeSnapshots = !resultFilePath.isEmpty() && !snapshotInterval.isZero();
+    try (WebCrawler crawler = this.crawler)
+    {
+      ScheduledExecutorService snapshotWriter = null;
+      if (writeSnapshots)
+      {
+        snapshotWriter = startSnapshots(crawler, Path.of(resultFilePath), snapshotInterval);
+      }
+      try
+      {
+        result = crawler.crawl(config.getStartPages());
+      }
+      finally
+      {
+        if (snapshotWriter != null)
+        {
+          // Let a snapshot being written finish, so it cannot replace the final result.
+          snapshotWriter.shutdown();
+          snapshotWriter.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+      }
+    }
     CrawlResultWriter resultWriter = new CrawlResultWriter(result);
     // Writing the crawl results to a JSON file (or System.out if the file name is empty)
-    String resultFilePath = config.getResultPath();
     if (resultFilePath.isEmpty())
     {
       resultWriter.write(new OutputStreamWriter(System.out));
     }
+    else if (writeSnapshots)
+    {
+      // The file holds the last snapshot, which the final result replaces.
+      resultWriter.replace(Path.of(resultFilePath));
+    }
     else
     {
       resultWriter.write(Path.of(resultFilePath));
@@ -65,6 +98,30 @@ public final class WebCrawlerMain {
       }
     }
   }
+  /**
+   * Starts writing the results so far of the crawl to the given path, replacing the previous
+   * snapshot every interval, on a daemon thread that never keeps the JVM running.
+   */
+  private static ScheduledExecutorService startSnapshots(
+      WebCrawler crawler, Path path, Duration interval)
+  {
+    ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "result-snapshots");
+      thread.setDaemon(true);
+      return thread;
+    });
+    executor.scheduleWithFixedDelay(() -> {
+      try
+      {
+        new CrawlResultWriter(crawler.snapshot()).replace(path);
+      } catch (IOException | UncheckedIOException e)
+      {
+        System.err.println("Error writing result snapshot: " + e.getMessage());
+      }
+    }, interval.toNanos(), interval.toNanos(), TimeUnit.NANOSECONDS);
+    return executor;
+  }
+
   public static void main(String[] args) throws Exception {
     if (args.length != 1) {
       System.out.println("Usage: WebCrawlerMain [starting-url]");
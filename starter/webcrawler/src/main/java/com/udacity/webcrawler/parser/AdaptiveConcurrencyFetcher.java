@@ -0,0 +1,262 @@
+package com.udacity.webcrawler.parser;
+
+import com.udacity.webcrawler.FetchConcurrency;
+import com.udacity.webcrawler.TargetParallelism;
+import com.udacity.webcrawler.profiler.Profiler;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.net.URI;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * A {@link PageFetcher} that limits the number of downloads in flight, and adapts that limit to
+ * how the network is responding, in front of another fetcher.
+ *
+ * <p>The limit follows an additive-increase, multiplicative-decrease (AIMD) rule:
+ *
+ * <ul>
+ *   <li>When a download succeeds while the limit was in use, and latency is stable, the limit
+ *       grows by {@code 1 / limit}, i.e. by about one for every limit's worth of downloads. A
+ *       download that finds the limit unused says nothing about whether more concurrency would
+ *       raise throughput, so it does not grow the limit.
+ *   <li>When latency rises well above its long-run average, the limit holds.
+ *   <li>When a download times out, or the server answers 429 (Too Many Requests) or a 5xx error,
+ *       the limit is halved. Overload tends to fail many downloads at once, so it is halved at
+ *       most once per round-trip.
+ * </ul>
+ *
+ * <p>Callers usually give up on a slow download before the HTTP client's own timeout fires, since
+ * they started timing it first, and cancel it. A download cancelled after it has been in this
+ * fetcher for at least the request timeout therefore counts as timed out. One cancelled sooner,
+ * for example because the crawl's deadline has passed, says nothing about the network. Time spent
+ * in a politeness queue in front of this fetcher is not seen here, so a download that waited
+ * there and is then cancelled may not count.
+ *
+ * <p>The limit stays between 1 and the {@link FetchConcurrency}, and starts at the
+ * {@link TargetParallelism}. Every change is recorded as the {@code concurrencyLimit} series of
+ * the {@link Profiler}, so the limit over time is part of the profile output.
+ */
+@Singleton
+final class AdaptiveConcurrencyFetcher implements PageFetcher {
+
+  /**
+   * How much of each new latency sample goes into the short-run average.
+   */
+  private static final double SHORT_RUN_WEIGHT = 0.3;
+
+  /**
+   * How much of each new latency sample goes into the long-run average.
+   */
+  private static final double LONG_RUN_WEIGHT = 0.02;
+
+  /**
+   * How far the short-run latency may rise above the long-run latency while still counting as
+   * stable.
+   */
+  private static final double LATENCY_TOLERANCE = 1.5;
+
+  /**
+   * The factor the limit is multiplied by on overload.
+   */
+  private static final double BACKOFF = 0.5;
+
+  private final PageFetcher delegate;
+  private final int maxLimit;
+  private final Profiler profiler;
+  private final long requestTimeoutNanos;
+
+  // Guarded by "this".
+  private final Queue<Request> waiting = new ArrayDeque<>();
+  private double limit;
+  private int inFlight;
+  private double shortRunLatencyNanos;
+  private double longRunLatencyNanos;
+  private long lastBackoffNanos;
+
+  @Inject
+  AdaptiveConcurrencyFetcher(
+      HttpClientPageFetcher delegate,
+      @TargetParallelism int initialLimit,
+      @FetchConcurrency int maxLimit,
+      Profiler profiler,
+      @ParseDeadline Duration requestTimeout) {
+    this((PageFetcher) delegate, initialLimit, maxLimit, profiler, requestTimeout);
+  }
+
+  /**
+   * Creates a fetcher for downloads without a timeout, so cancelled downloads never count as
+   * timed out.
+   */
+  AdaptiveConcurrencyFetcher(
+      PageFetcher delegate, int initialLimit, int maxLimit, Profiler profiler) {
+    this(delegate, initialLimit, maxLimit, profiler, Duration.ZERO);
+  }
+
+  AdaptiveConcurrencyFetcher(
+      PageFetcher delegate,
+      int initialLimit,
+      int maxLimit,
+      Profiler profiler,
+      Duration requestTimeout) {
+    this.delegate = Objects.requireNonNull(delegate);
+    this.maxLimit = Math.max(1, maxLimit);
+    this.limit = Math.max(1, Math.min(initialLimit, this.maxLimit));
+    this.profiler = Objects.requireNonNull(profiler);
+    this.requestTimeoutNanos = Math.max(0, requestTimeout.toNanos());
+    this.lastBackoffNanos = System.nanoTime();
+    profiler.recordSample(AdaptiveConcurrencyFetcher.class, "concurrencyLimit", (long) limit);
+  }
+
+  @Override
+  public CompletableFuture<Page> fetch(URI uri) {
+    if ("file".equals(uri.getScheme())) {
+      // Local files say nothing about the network.
+      return delegate.fetch(uri);
+    }
+    Request request = new Request(uri);
+    synchronized (this) {
+      waiting.add(request);
+    }
+    drain();
+    return request.result;
+  }
+
+  /**
+   * Returns the current limit on downloads in flight.
+   */
+  synchronized int getLimit() {
+    return (int) limit;
+  }
+
+  /**
+   * Starts as many waiting downloads as the limit allows.
+   */
+  private void drain() {
+    List<Request> ready = new ArrayList<>();
+    synchronized (this) {
+      while (!waiting.isEmpty() && inFlight < (int) limit) {
+        Request request = waiting.remove();
+        if (request.result.isDone()) {
+          // Cancelled by the caller while it was waiting.
+          continue;
+        }
+        inFlight++;
+        ready.add(request);
+      }
+    }
+    for (Request request : ready) {
+      start(request);
+    }
+  }
+
+  private void start(Request request) {
+    CompletableFuture<Page> download;
+    try {
+      download = delegate.fetch(request.uri);
+    } catch (RuntimeException e) {
+      download = CompletableFuture.failedFuture(e);
+    }
+    CompletableFuture<Page> started = download;
+    // If the caller gives up on the download, give up on it here too.
+    request.result.whenComplete((page, error) -> {
+      if (request.result.isCancelled()) {
+        started.cancel(true);
+      }
+    });
+    long startNanos = System.nanoTime();
+    started.whenComplete((page, error) -> {
+      long now = System.nanoTime();
+      onComplete(now - startNanos, now - request.createdNanos, now, error);
+      if (error == null) {
+        request.result.complete(page);
+      } else {
+        request.result.completeExceptionally(error);
+      }
+      drain();
+    });
+  }
+
+  /**
+   * Releases a download's slot and adjusts the limit according to how it went.
+   *
+   * @param latencyNanos how long the download was in flight.
+   * @param waitedNanos  how long ago the download was asked of this fetcher.
+   */
+  private void onComplete(long latencyNanos, long waitedNanos, long nowNanos, Throwable error) {
+    long before;
+    long after;
+    synchronized (this) {
+      boolean limitInUse = inFlight >= (int) limit;
+      inFlight--;
+      before = (long) limit;
+      if (error == null) {
+        if (longRunLatencyNanos == 0) {
+          shortRunLatencyNanos = latencyNanos;
+          longRunLatencyNanos = latencyNanos;
+        } else {
+          shortRunLatencyNanos += SHORT_RUN_WEIGHT * (latencyNanos - shortRunLatencyNanos);
+          longRunLatencyNanos += LONG_RUN_WEIGHT * (latencyNanos - longRunLatencyNanos);
+        }
+        if (limitInUse && shortRunLatencyNanos <= LATENCY_TOLERANCE * longRunLatencyNanos) {
+          limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+      } else if (isOverload(error, waitedNanos)
+          && nowNanos - lastBackoffNanos >= (long) shortRunLatencyNanos) {
+        lastBackoffNanos = nowNanos;
+        limit = Math.max(1, limit * BACKOFF);
+        profiler.count(AdaptiveConcurrencyFetcher.class, "overloadBackoffs", 1);
+      }
+      after = (long) limit;
+    }
+    if (after != before) {
+      profiler.recordSample(AdaptiveConcurrencyFetcher.class, "concurrencyLimit", after);
+    }
+  }
+
+  /**
+   * Returns true if the given download failure means the server or network is overloaded.
+   *
+   * @param waitedNanos how long ago the download was asked of this fetcher.
+   */
+  private boolean isOverload(Throwable error, long waitedNanos) {
+    while ((error instanceof CompletionException || error instanceof ExecutionException)
+        && error.getCause() != null) {
+      error = error.getCause();
+    }
+    if (error instanceof HttpTimeoutException) {
+      return true;
+    }
+    if (error instanceof CancellationException) {
+      return requestTimeoutNanos > 0 && waitedNanos >= requestTimeoutNanos;
+    }
+    if (error instanceof FetchException) {
+      int status = ((FetchException) error).getStatusCode();
+      return status == 429 || status >= 500;
+    }
+    return false;
+  }
+
+  /**
+   * A download waiting for a free slot.
+   */
+  private static final class Request {
+    final URI uri;
+    final CompletableFuture<Page> result = new CompletableFuture<>();
+    final long createdNanos = System.nanoTime();
+
+    Request(URI uri) {
+      this.uri = uri;
+    }
+  }
+}
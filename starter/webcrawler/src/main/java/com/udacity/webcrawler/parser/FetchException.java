@@ -0,0 +1,29 @@
+package com.udacity.webcrawler.parser;
+
+import java.io.IOException;
+
+/**
+ * Signals that a page could not be downloaded because the server responded with an error, or
+ * with content the HTML parser cannot handle.
+ */
+public final class FetchException extends IOException {
+  private final int statusCode;
+
+  /**
+   * Constructs a {@link FetchException}.
+   *
+   * @param message    a description of the failure.
+   * @param statusCode the HTTP status code of the response.
+   */
+  public FetchException(String message, int statusCode) {
+    super(message);
+    this.statusCode = statusCode;
+  }
+
+  /**
+   * Returns the HTTP status code of the failed response.
+   */
+  public int getStatusCode() {
+    return statusCode;
+  }
+}
@@ -0,0 +1,159 @@
+package com.udacity.webcrawler.parser;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * A {@link PageFetcher} that downloads remote pages asynchronously with a single shared
+ * {@link HttpClient}.
+ *
+ * <p>Sharing the client lets connections be kept alive and reused across pages, and lets requests
+ * to the same host be multiplexed over one HTTP/2 connection when the server supports it. Responses
+ * are requested with gzip or deflate compression and decompressed here.
+ *
+ * <p>Local {@code file://} URIs, which are very useful for testing, are read directly from disk.
+ */
+@Singleton
+final class HttpClientPageFetcher implements PageFetcher {
+
+  /**
+   * Matches XML content types, which, like {@code text/*} types, the HTML parser can handle.
+   */
+  private static final Pattern XML_CONTENT_TYPE =
+      Pattern.compile("(?:application|text)/\\w*\\+?xml.*");
+
+  /**
+   * Extracts the charset parameter from a {@code Content-Type} header.
+   */
+  private static final Pattern CHARSET = Pattern.compile("(?i)\\bcharset=\\s*\"?([^\\s;\"]*)");
+
+  private final HttpClient client;
+  private final Duration timeout;
+
+  @Inject
+  HttpClientPageFetcher(@ParseDeadline Duration timeout) {
+    this.timeout = timeout;
+    HttpClient.Builder builder =
+        HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .followRedirects(HttpClient.Redirect.NORMAL);
+    if (isPositive(timeout)) {
+      builder.connectTimeout(timeout);
+    }
+    this.client = builder.build();
+  }
+
+  @Override
+  public CompletableFuture<Page> fetch(URI uri) {
+    if ("file".equals(uri.getScheme())) {
+      try {
+        return CompletableFuture.completedFuture(
+            new Page(uri, Files.readAllBytes(Path.of(uri)), null));
+      } catch (IOException | RuntimeException e) {
+        return CompletableFuture.failedFuture(e);
+      }
+    }
+
+    HttpRequest.Builder request =
+        HttpRequest.newBuilder(uri)
+            .GET()
+            .header("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8")
+            .header("Accept-Encoding", "gzip, deflate");
+    if (isPositive(timeout)) {
+      request.timeout(timeout);
+    }
+    try {
+      return client
+          .sendAsync(request.build(), HttpResponse.BodyHandlers.ofByteArray())
+          .thenApply(HttpClientPageFetcher::toPage);
+    } catch (IllegalArgumentException e) {
+      // Unsupported scheme or otherwise invalid URI.
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
+  private static Page toPage(HttpResponse<byte[]> response) {
+    try {
+      int status = response.statusCode();
+      if (status < 200 || status >= 300) {
+        throw new FetchException("HTTP error fetching " + response.uri(), status);
+      }
+      String contentType = response.headers().firstValue("Content-Type").orElse(null);
+      if (contentType != null
+          && !contentType.startsWith("text/")
+          && !XML_CONTENT_TYPE.matcher(contentType).matches()) {
+        throw new FetchException("Unsupported content type " + contentType, status);
+      }
+      String encoding = response.headers().firstValue("Content-Encoding").orElse("identity");
+      return new Page(response.uri(), decode(response.body(), encoding), charsetOf(contentType));
+    } catch (IOException e) {
+      throw new CompletionException(e);
+    }
+  }
+
+  /**
+   * Decompresses a response body according to its {@code Content-Encoding}.
+   */
+  private static byte[] decode(byte[] body, String encoding) throws IOException {
+    switch (encoding.strip().toLowerCase(Locale.ROOT)) {
+      case "gzip":
+      case "x-gzip":
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+          return in.readAllBytes();
+        }
+      case "deflate":
+        // Servers disagree on whether "deflate" means zlib-wrapped or raw deflate data.
+        try (InputStream in = new InflaterInputStream(new ByteArrayInputStream(body))) {
+          return in.readAllBytes();
+        } catch (ZipException e) {
+          try (InputStream in =
+                   new InflaterInputStream(new ByteArrayInputStream(body), new Inflater(true))) {
+            return in.readAllBytes();
+          }
+        }
+      default:
+        return body;
+    }
+  }
+
+  private static String charsetOf(String contentType) {
+    if (contentType == null) {
+      return null;
+    }
+    Matcher matcher = CHARSET.matcher(contentType);
+    if (!matcher.find()) {
+      return null;
+    }
+    try {
+      // Leave unknown charsets for Jsoup to detect from the page itself.
+      return Charset.isSupported(matcher.group(1)) ? matcher.group(1) : null;
+    } catch (IllegalCharsetNameException e) {
+      return null;
+    }
+  }
+
+  private static boolean isPositive(Duration duration) {
+    return !duration.isNegative() && !duration.isZero();
+  }
+}
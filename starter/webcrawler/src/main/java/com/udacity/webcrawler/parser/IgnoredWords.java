@@ -5,7 +5,8 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 
 /**
- * A binding annotation for the list of ignored word patterns.
+ * A binding annotation for the list of ignored word patterns, and the {@link WordFilter} compiled
+ * from them.
  *
  * <p>This annotation has package-private visibility, which means it is not usable outside the
  * {@code com.udacity.webcrawler.parser} package, and it's only used so that the Guice module in
@@ -0,0 +1,18 @@
+package com.udacity.webcrawler.parser;
+
+import javax.inject.Qualifier;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * A binding annotation for the {@link PageFetcher} that the {@link PolitePageFetcher} hands its
+ * downloads to, once a host's politeness limits allow them.
+ *
+ * <p>This annotation has package-private visibility, which means it is not usable outside the
+ * {@code com.udacity.webcrawler.parser} package, and it's only used so that the Guice module in
+ * this package is able to chain the page fetchers together.
+ */
+@Qualifier
+@Retention(RetentionPolicy.RUNTIME)
+@interface NetworkFetcher {
+}
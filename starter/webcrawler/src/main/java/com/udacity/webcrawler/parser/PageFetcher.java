@@ -0,0 +1,64 @@
+package com.udacity.webcrawler.parser;
+
+import java.net.URI;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Downloads the raw contents of web pages so that they can be handed to the HTML parser.
+ */
+public interface PageFetcher {
+
+  /**
+   * Starts downloading the page at the given {@link URI}.
+   *
+   * @param uri the page to download. May refer to a local file or a remote web page.
+   * @return a future that completes with the downloaded {@link Page}, or completes exceptionally
+   *         if the page could not be downloaded.
+   */
+  CompletableFuture<Page> fetch(URI uri);
+
+  /**
+   * A data class that represents a downloaded page.
+   */
+  final class Page {
+    private final URI uri;
+    private final byte[] body;
+    private final String charset;
+
+    /**
+     * Constructs a {@link Page}.
+     *
+     * @param uri     the final location of the page, after following any redirects.
+     * @param body    the raw, decompressed page contents.
+     * @param charset the charset declared by the server, or {@code null} if none was declared.
+     */
+    public Page(URI uri, byte[] body, String charset) {
+      this.uri = Objects.requireNonNull(uri);
+      this.body = Objects.requireNonNull(body);
+      this.charset = charset;
+    }
+
+    /**
+     * Returns the final location of the page, which relative hyperlinks are resolved against.
+     */
+    public URI getUri() {
+      return uri;
+    }
+
+    /**
+     * Returns the raw, decompressed page contents. The returned array must not be modified.
+     */
+    public byte[] getBody() {
+      return body;
+    }
+
+    /**
+     * Returns the charset declared by the server, if any.
+     */
+    public Optional<String> getCharset() {
+      return Optional.ofNullable(charset);
+    }
+  }
+}
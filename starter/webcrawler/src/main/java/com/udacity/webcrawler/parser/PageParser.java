@@ -9,6 +9,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.function.ObjIntConsumer;
 import java.util.stream.Collectors;
 
 /**
@@ -26,20 +27,59 @@ public interface PageParser {
    * A data class that represents the outcome of processing an HTML page.
    */
   final class Result {
-    private final Map<String, Integer> wordCounts;
+    private final WordCountMap wordCounts;
+    private final WordDictionary dictionary;
     private final List<String> links;
+    private volatile Map<String, Integer> boxedWordCounts;
 
-    private Result(Map<String, Integer> wordCounts, List<String> links) {
+    private Result(WordCountMap wordCounts, WordDictionary dictionary, List<String> links) {
       this.wordCounts = Objects.requireNonNull(wordCounts);
+      this.dictionary = Objects.requireNonNull(dictionary);
       this.links = Objects.requireNonNull(links);
     }
 
     /**
      * Returns an unmodifiable {@link Map} containing the words and word frequencies encountered
      * when parsing the web page.
+     *
+     * <p>The map is built, with every count boxed, the first time it is asked for. Crawlers that
+     * only need to add the counts up should use
+     * {@link #forEachWordCount(WordDictionary, WordCountMap.IdCountConsumer)}.
      */
     public Map<String, Integer> getWordCounts() {
-      return wordCounts;
+      Map<String, Integer> map = boxedWordCounts;
+      if (map == null) {
+        Map<String, Integer> counts = new HashMap<>();
+        forEachWordCount(counts::put);
+        map = Collections.unmodifiableMap(counts);
+        boxedWordCounts = map;
+      }
+      return map;
+    }
+
+    /**
+     * Calls the given action with every word encountered when parsing the web page and its
+     * frequency, in no particular order, without boxing the frequencies.
+     */
+    public void forEachWordCount(ObjIntConsumer<String> action) {
+      wordCounts.forEach((id, count) -> action.accept(dictionary.word(id), count));
+    }
+
+    /**
+     * Calls the given action with the ID in the given {@link WordDictionary} of every word
+     * encountered when parsing the web page, and its frequency, in no particular order.
+     *
+     * <p>Pages are normally parsed with the same dictionary their counts are added up with, and
+     * then no word needs to be looked up. Otherwise, each word is looked up in the given
+     * dictionary.
+     */
+    public void forEachWordCount(WordDictionary dictionary, WordCountMap.IdCountConsumer action) {
+      if (dictionary == this.dictionary) {
+        wordCounts.forEach(action);
+      } else {
+        wordCounts.forEach(
+            (id, count) -> action.accept(dictionary.id(this.dictionary.word(id)), count));
+      }
     }
 
     /**
@@ -54,22 +94,49 @@ public interface PageParser {
      * hyperlinks encountered while parsing a web page.
      */
     static final class Builder {
-      private final Map<String, Integer> wordCounts = new HashMap<>();
+      private final WordCountMap wordCounts = new WordCountMap();
       private final Set<String> links = new HashSet<>();
+      private final UrlCanonicalizer canonicalizer;
+      private final WordDictionary dictionary;
+
+      /**
+       * Creates a builder that puts links in their {@link UrlCanonicalizer#standard()} form, and
+       * words in a dictionary of its own.
+       */
+      Builder() {
+        this(UrlCanonicalizer.standard(), new WordDictionary());
+      }
+
+      /**
+       * Creates a builder that puts links in canonical form with the given
+       * {@link UrlCanonicalizer}, so that each page is only linked to once, and looks words up in
+       * the given {@link WordDictionary}.
+       */
+      Builder(UrlCanonicalizer canonicalizer, WordDictionary dictionary) {
+        this.canonicalizer = Objects.requireNonNull(canonicalizer);
+        this.dictionary = Objects.requireNonNull(dictionary);
+      }
 
       /**
        * Increments the frequency counter for the given word.
        */
       void addWord(String word) {
-        Objects.requireNonNull(word);
-        wordCounts.compute(word, (k, v) -> (v == null) ? 1 : v + 1);
+        wordCounts.add(dictionary.id(word), 1);
+      }
+
+      /**
+       * Increments the frequency counter for the word in the first {@code length} characters of
+       * the given buffer.
+       */
+      void addWord(char[] chars, int length) {
+        wordCounts.add(dictionary.id(chars, length), 1);
       }
 
       /**
-       * Adds the given link, if it has not already been added.
+       * Adds the canonical form of the given link, if it has not already been added.
        */
       void addLink(String link) {
-        links.add(Objects.requireNonNull(link));
+        links.add(canonicalizer.canonicalize(Objects.requireNonNull(link)));
       }
 
       /**
@@ -77,8 +144,7 @@ public interface PageParser {
        */
       Result build() {
         return new Result(
-            Collections.unmodifiableMap(wordCounts),
-            links.stream().collect(Collectors.toUnmodifiableList()));
+            wordCounts, dictionary, links.stream().collect(Collectors.toUnmodifiableList()));
       }
     }
   }
@@ -1,5 +1,7 @@
 package com.udacity.webcrawler.parser;
 
+import java.time.Instant;
+
 /**
  * A factory interface that supplies instances of {@link PageParser} that have common parameters
  * (such as the timeout and ignored words) preset from injected values.
@@ -10,4 +12,31 @@ public interface PageParserFactory {
    * Returns a {@link PageParser} that parses the given {@link url}.
    */
   PageParser get(String url);
+
+  /**
+   * Returns a {@link PageParser} that parses the given {@link url}, and whose
+   * {@link PageParser#parse()} method gives up and returns what it has so far once the given
+   * deadline has passed.
+   */
+  PageParser get(String url, Instant deadline);
+
+  /**
+   * Returns a {@link PageParser} like {@link #get(String, Instant)}, that identifies words with
+   * the given {@link WordDictionary}. Pages parsed with the dictionary their counts are added up
+   * with are added without looking up any word again.
+   */
+  PageParser get(String url, Instant deadline, WordDictionary dictionary);
+
+  /**
+   * Returns a {@link PageParser} that parses a page that has already been downloaded, for example
+   * by a {@link PageFetcher}, and that stops processing the page once the given deadline has
+   * passed.
+   */
+  PageParser get(PageFetcher.Page page, Instant deadline);
+
+  /**
+   * Returns a {@link PageParser} like {@link #get(PageFetcher.Page, Instant)}, that identifies
+   * words with the given {@link WordDictionary}.
+   */
+  PageParser get(PageFetcher.Page page, Instant deadline, WordDictionary dictionary);
 }
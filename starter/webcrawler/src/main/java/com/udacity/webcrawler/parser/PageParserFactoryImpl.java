@@ -4,31 +4,97 @@ import com.udacity.webcrawler.Timeout;
 import com.udacity.webcrawler.profiler.Profiler;
 
 import javax.inject.Inject;
+import javax.inject.Provider;
+import java.time.Clock;
 import java.time.Duration;
-import java.util.List;
-import java.util.regex.Pattern;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * A {@link PageParserFactory} that wraps its returned instances using a {@link Profiler}.
  */
 final class PageParserFactoryImpl implements PageParserFactory {
+  private final Clock clock;
   private final Profiler profiler;
-  private final List<Pattern> ignoredWords;
+  private final WordFilter ignoredWords;
   private final Duration timeout;
+  private final PageFetcher fetcher;
+  private final UrlCanonicalizer canonicalizer;
+  private final Provider<WordDictionary> dictionaries;
 
   @Inject
   PageParserFactoryImpl(
-      Profiler profiler, @IgnoredWords List<Pattern> ignoredWords, @Timeout Duration timeout) {
+      Clock clock,
+      Profiler profiler,
+      @IgnoredWords WordFilter ignoredWords,
+      @Timeout Duration timeout,
+      PageFetcher fetcher,
+      UrlCanonicalizer canonicalizer,
+      Provider<WordDictionary> dictionaries) {
+    this.clock = clock;
     this.profiler = profiler;
     this.ignoredWords = ignoredWords;
     this.timeout = timeout;
+    this.fetcher = fetcher;
+    this.canonicalizer = canonicalizer;
+    this.dictionaries = dictionaries;
   }
 
   @Override
   public PageParser get(String url) {
     // Here, parse the page with the initial timeout (instead of just the time remaining), to make
     // the download less likely to fail. Deadline enforcement should happen at a higher level.
-    PageParser delegate = new PageParserImpl(url, timeout, ignoredWords);
+    PageParser delegate =
+        new PageParserImpl(
+            url,
+            timeout,
+            ignoredWords,
+            fetcher,
+            clock,
+            Instant.MAX,
+            canonicalizer,
+            dictionaries.get());
+    return profiler.wrap(PageParser.class, delegate);
+  }
+
+  @Override
+  public PageParser get(String url, Instant deadline) {
+    return get(url, deadline, dictionaries.get());
+  }
+
+  @Override
+  public PageParser get(String url, Instant deadline, WordDictionary dictionary) {
+    // The download may take the full timeout, but never past the deadline.
+    PageParser delegate =
+        new PageParserImpl(
+            url,
+            timeout,
+            ignoredWords,
+            fetcher,
+            clock,
+            deadline,
+            canonicalizer,
+            dictionary);
+    return profiler.wrap(PageParser.class, delegate);
+  }
+
+  @Override
+  public PageParser get(PageFetcher.Page page, Instant deadline) {
+    return get(page, deadline, dictionaries.get());
+  }
+
+  @Override
+  public PageParser get(PageFetcher.Page page, Instant deadline, WordDictionary dictionary) {
+    PageParser delegate =
+        new PageParserImpl(
+            page.getUri().toString(),
+            timeout,
+            ignoredWords,
+            uri -> CompletableFuture.completedFuture(page),
+            clock,
+            deadline,
+            canonicalizer,
+            dictionary);
     return profiler.wrap(PageParser.class, delegate);
   }
 }
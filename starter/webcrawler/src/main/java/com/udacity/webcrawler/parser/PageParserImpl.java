@@ -6,19 +6,23 @@ import org.jsoup.nodes.Element;
 import org.jsoup.nodes.Node;
 import org.jsoup.nodes.TextNode;
 import org.jsoup.select.Evaluator.Tag;
-import org.jsoup.select.NodeVisitor;
+import org.jsoup.select.NodeFilter;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Clock;
 import java.time.Duration;
-import java.util.Arrays;
+import java.time.Instant;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.regex.Pattern;
 
 /**
@@ -27,34 +31,103 @@ import java.util.regex.Pattern;
  * <p>HTML parsing is done using the JSoup library. This class is a thin adapter around JSoup's API,
  * since JSoup does not know how to correctly resolve relative hyperlinks when parsing HTML from
  * local files.
+ *
+ * <p>Pages are downloaded with a {@link PageFetcher}, and the downloaded bytes are then handed to
+ * JSoup for parsing.
  */
 final class PageParserImpl implements PageParser {
 
   /**
-   * Matches whitespace characters.
-   */
-  private static final Pattern WHITESPACE = Pattern.compile("\\s+");
-
-  /**
-   * Matches non-word characters.
+   * How many nodes are visited between checks of the deadline.
    */
-  private static final Pattern NON_WORD_CHARACTERS = Pattern.compile("\\W");
+  private static final int DEADLINE_CHECK_INTERVAL = 256;
 
   private final String uri;
   private final Duration timeout;
-  private final List<Pattern> ignoredWords;
+  private final WordFilter ignoredWords;
+  private final PageFetcher fetcher;
+  private final Clock clock;
+  private final Instant deadline;
+  private final UrlCanonicalizer canonicalizer;
+  private final WordDictionary dictionary;
 
   /**
-   * Constructs a page parser with the given parameters.
+   * Constructs a page parser with no deadline, which downloads the file with an
+   * {@link HttpClientPageFetcher} of its own.
    *
    * @param uri          the URI of the file to parse.
    * @param timeout      the timeout to use when downloading the file, if it is remote.
    * @param ignoredWords patterns of which words should be ignored by the {@link #parse()} method.
    */
   PageParserImpl(String uri, Duration timeout, List<Pattern> ignoredWords) {
+    this(uri, timeout, ignoredWords, new HttpClientPageFetcher(timeout));
+  }
+
+  /**
+   * Constructs a page parser with no deadline.
+   *
+   * @param uri          the URI of the file to parse.
+   * @param timeout      the timeout to use when downloading the file, if it is remote.
+   * @param ignoredWords patterns of which words should be ignored by the {@link #parse()} method.
+   * @param fetcher      the {@link PageFetcher} used to download the file.
+   */
+  PageParserImpl(
+      String uri, Duration timeout, List<Pattern> ignoredWords, PageFetcher fetcher) {
+    this(uri, timeout, ignoredWords, fetcher, Clock.systemUTC(), Instant.MAX);
+  }
+
+  /**
+   * Constructs a page parser that puts links in their {@link UrlCanonicalizer#standard()} form,
+   * and words in a dictionary of its own.
+   */
+  PageParserImpl(
+      String uri,
+      Duration timeout,
+      List<Pattern> ignoredWords,
+      PageFetcher fetcher,
+      Clock clock,
+      Instant deadline) {
+    this(
+        uri,
+        timeout,
+        WordFilter.compile(ignoredWords),
+        fetcher,
+        clock,
+        deadline,
+        UrlCanonicalizer.standard(),
+        new WordDictionary());
+  }
+
+  /**
+   * Constructs a page parser with the given parameters.
+   *
+   * @param uri           the URI of the file to parse.
+   * @param timeout       the timeout to use when downloading the file, if it is remote.
+   * @param ignoredWords  decides which words should be ignored by the {@link #parse()} method.
+   * @param fetcher       the {@link PageFetcher} used to download the file.
+   * @param clock         the clock the deadline is measured with.
+   * @param deadline      the time by which the {@link #parse()} method must return. Once it has
+   *                      passed, the download is abandoned and the page is not processed further.
+   * @param canonicalizer puts the links found on the page in canonical form.
+   * @param dictionary    assigns IDs to the words found on the page.
+   */
+  PageParserImpl(
+      String uri,
+      Duration timeout,
+      WordFilter ignoredWords,
+      PageFetcher fetcher,
+      Clock clock,
+      Instant deadline,
+      UrlCanonicalizer canonicalizer,
+      WordDictionary dictionary) {
     this.uri = Objects.requireNonNull(uri);
     this.timeout = Objects.requireNonNull(timeout);
     this.ignoredWords = Objects.requireNonNull(ignoredWords);
+    this.fetcher = Objects.requireNonNull(fetcher);
+    this.clock = Objects.requireNonNull(clock);
+    this.deadline = Objects.requireNonNull(deadline);
+    this.canonicalizer = Objects.requireNonNull(canonicalizer);
+    this.dictionary = Objects.requireNonNull(dictionary);
   }
 
   @Override
@@ -76,19 +149,30 @@ final class PageParserImpl implements PageParser {
       return new Result.Builder().build();
     }
 
-    Result.Builder builder = new Result.Builder();
-    // Do a single pass over the document to gather all hyperlinks and text.
-    document.traverse(new NodeVisitor() {
+    Result.Builder builder = new Result.Builder(canonicalizer, dictionary);
+    WordTokenizer tokenizer = new WordTokenizer(ignoredWords);
+    // Do a single pass over the document to gather all hyperlinks and text, stopping early if the
+    // deadline passes.
+    document.filter(new NodeFilter() {
+      private int visited;
+
+      @Override
+      public FilterResult head(Node node, int depth) {
+        if (++visited % DEADLINE_CHECK_INTERVAL == 0 && clock.instant().isAfter(deadline)) {
+          return FilterResult.STOP;
+        }
+        visit(node);
+        return FilterResult.CONTINUE;
+      }
+
       @Override
-      public void head(Node node, int depth) {
+      public FilterResult tail(Node node, int depth) {
+        return FilterResult.CONTINUE;
+      }
+
+      private void visit(Node node) {
         if (node instanceof TextNode) {
-          String text = ((TextNode) node).text().strip();
-          Arrays.stream(WHITESPACE.split(text))
-              .filter(s -> !s.isBlank())
-              .filter(s -> ignoredWords.stream().noneMatch(p -> p.matcher(s).matches()))
-              .map(s -> NON_WORD_CHARACTERS.matcher(s).replaceAll(""))
-              .map(String::toLowerCase)
-              .forEach(builder::addWord);
+          tokenizer.addWords(((TextNode) node).text(), builder);
           return;
         }
         if (!(node instanceof Element)) {
@@ -108,10 +192,6 @@ final class PageParserImpl implements PageParser {
           builder.addLink(element.attr("abs:href"));
         }
       }
-
-      @Override
-      public void tail(Node node, int depth) {
-      }
     });
     return builder.build();
   }
@@ -120,17 +200,47 @@ final class PageParserImpl implements PageParser {
    * Returns a Jsoup {@link Document} representation of the file at the given {@link URI}, which may
    * refer to a local document or a remote web page.
    */
-  private Document parseDocument(URI uri) throws IOException {
+  private Document parseDocument(URI uri)
+      throws IOException, InterruptedException, ExecutionException, TimeoutException {
+    PageFetcher.Page page = await(fetcher.fetch(uri));
+    ByteArrayInputStream in = new ByteArrayInputStream(page.getBody());
     if (!isLocalFile(uri)) {
-      return Jsoup.parse(uri.toURL(), (int) timeout.toMillis());
+      // A null charset lets Jsoup detect it from a byte-order mark or <meta> tag.
+      return Jsoup.parse(in, page.getCharset().orElse(null), page.getUri().toString());
     }
 
     // Unfortunately, Jsoup.parse() has a baseUri parameter that does not work with local
     // "file://" URIs. If we want the parser to support those URIs, which are very useful for
     // testing, the work-around is to pass in an empty baseUri and manually add the base back to
     // href attributes.
-    try (InputStream in = Files.newInputStream(Path.of(uri))) {
-      return Jsoup.parse(in, StandardCharsets.UTF_8.name(), "");
+    return Jsoup.parse(in, StandardCharsets.UTF_8.name(), "");
+  }
+
+  /**
+   * Waits for the download to finish, giving up (and cancelling it) once the timeout or the
+   * deadline has passed, whichever comes first.
+   */
+  private <T> T await(Future<T> download)
+      throws InterruptedException, ExecutionException, TimeoutException {
+    Duration wait = (timeout.isZero() || timeout.isNegative()) ? null : timeout;
+    if (!deadline.equals(Instant.MAX)) {
+      Duration untilDeadline = Duration.between(clock.instant(), deadline);
+      if (wait == null || untilDeadline.compareTo(wait) < 0) {
+        wait = untilDeadline;
+      }
+    }
+    try {
+      if (wait == null) {
+        return download.get();
+      }
+      return download.get(Math.max(0, wait.toNanos()), TimeUnit.NANOSECONDS);
+    } catch (TimeoutException e) {
+      download.cancel(true);
+      throw e;
+    } catch (InterruptedException e) {
+      download.cancel(true);
+      Thread.currentThread().interrupt();
+      throw e;
     }
   }
 
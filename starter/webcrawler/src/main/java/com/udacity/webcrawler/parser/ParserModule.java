@@ -2,32 +2,66 @@ package com.udacity.webcrawler.parser;
 
 import com.google.inject.AbstractModule;
 import com.google.inject.Key;
+import com.udacity.webcrawler.json.HostPoliteness;
 
 import java.time.Duration;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.regex.Pattern;
 
 /**
  * Guice dependency injection module that installs a {@link PageParserFactory} that can be used to
- * create page parsers.
+ * create page parsers, and the shared {@link PageFetcher} those parsers download pages with.
+ *
+ * <p>Downloads go through a {@link PolitePageFetcher}, which enforces the per-host politeness
+ * limits, in front of an {@link HttpClientPageFetcher}. If adaptive fetch concurrency is enabled,
+ * an {@link AdaptiveConcurrencyFetcher} sits between the two.
+ *
+ * <p>It also binds the {@link UrlCanonicalizer} that parsers and crawlers put URLs in canonical
+ * form with. The {@link WordDictionary} that words are identified by is unscoped: every injection
+ * gets a new, empty dictionary, so a crawl can keep one for as long as it runs and no longer, and
+ * a page parsed without the dictionary of a crawl gets one of its own.
  */
 public final class ParserModule extends AbstractModule {
   private final Duration timeout;
   private final List<Pattern> ignoredWords;
+  private final PolitenessPolicy politenessPolicy;
+  private final boolean adaptiveFetchConcurrency;
+  private final UrlCanonicalizer canonicalizer;
 
   /**
-   * Creates a {@link ParserModule} from the given timeout and ignored word patterns.
+   * Creates a {@link ParserModule} from the given timeout, ignored word patterns, and download
+   * settings.
    */
-  private ParserModule(Duration timeout, List<Pattern> ignoredWords) {
+  private ParserModule(
+      Duration timeout,
+      List<Pattern> ignoredWords,
+      PolitenessPolicy politenessPolicy,
+      boolean adaptiveFetchConcurrency,
+      UrlCanonicalizer canonicalizer) {
     this.timeout = timeout;
     this.ignoredWords = ignoredWords;
+    this.politenessPolicy = politenessPolicy;
+    this.adaptiveFetchConcurrency = adaptiveFetchConcurrency;
+    this.canonicalizer = canonicalizer;
   }
 
   @Override
   protected void configure() {
     bind(Key.get(Duration.class, ParseDeadline.class)).toInstance(timeout);
     bind(new Key<List<Pattern>>(IgnoredWords.class) {}).toInstance(ignoredWords);
+    bind(Key.get(WordFilter.class, IgnoredWords.class))
+        .toInstance(WordFilter.compile(ignoredWords));
+    bind(PolitenessPolicy.class).toInstance(politenessPolicy);
+    bind(UrlCanonicalizer.class).toInstance(canonicalizer);
+    bind(WordDictionary.class);
+    bind(PageFetcher.class).to(PolitePageFetcher.class);
+    if (adaptiveFetchConcurrency) {
+      bind(Key.get(PageFetcher.class, NetworkFetcher.class)).to(AdaptiveConcurrencyFetcher.class);
+    } else {
+      bind(Key.get(PageFetcher.class, NetworkFetcher.class)).to(HttpClientPageFetcher.class);
+    }
     bind(PageParserFactory.class).to(PageParserFactoryImpl.class);
   }
 
@@ -37,6 +71,9 @@ public final class ParserModule extends AbstractModule {
   public static final class Builder {
     private Duration timeout;
     private List<Pattern> ignoredWords;
+    private PolitenessPolicy politenessPolicy = PolitenessPolicy.unlimited();
+    private boolean adaptiveFetchConcurrency;
+    private List<String> trackingUrlParameters = List.of();
 
     /**
      * Sets the timeout that will be used by the page parser.
@@ -54,11 +91,53 @@ public final class ParserModule extends AbstractModule {
       return this;
     }
 
+    /**
+     * Sets the per-host politeness limits that downloads must respect.
+     *
+     * @param maxConnectionsPerHost       the maximum number of concurrent downloads per host, or a
+     *                                    value less than 1 for no limit.
+     * @param maxRequestsPerSecondPerHost the maximum number of downloads started per second per
+     *                                    host, or a value that is not positive for no limit.
+     * @param overrides                   limits for specific hosts, keyed by lower-case host name.
+     */
+    public Builder setHostPoliteness(
+        int maxConnectionsPerHost,
+        double maxRequestsPerSecondPerHost,
+        Map<String, HostPoliteness> overrides) {
+      this.politenessPolicy =
+          new PolitenessPolicy(maxConnectionsPerHost, maxRequestsPerSecondPerHost, overrides);
+      return this;
+    }
+
+    /**
+     * Sets whether the number of downloads in flight should adapt to observed latency and errors,
+     * instead of staying at the fetch concurrency.
+     */
+    public Builder setAdaptiveFetchConcurrency(boolean adaptiveFetchConcurrency) {
+      this.adaptiveFetchConcurrency = adaptiveFetchConcurrency;
+      return this;
+    }
+
+    /**
+     * Sets the query parameters that are removed when links are put in canonical form.
+     *
+     * <p>See {@link UrlCanonicalizer#UrlCanonicalizer(java.util.Collection)}.
+     */
+    public Builder setTrackingUrlParameters(List<String> trackingUrlParameters) {
+      this.trackingUrlParameters = Objects.requireNonNull(trackingUrlParameters);
+      return this;
+    }
+
     /**
      * Builds a {@link ParserModule} from this {@link Builder}.
      */
     public ParserModule build() {
-      return new ParserModule(timeout, ignoredWords);
+      return new ParserModule(
+          timeout,
+          ignoredWords,
+          politenessPolicy,
+          adaptiveFetchConcurrency,
+          new UrlCanonicalizer(trackingUrlParameters));
     }
   }
 }
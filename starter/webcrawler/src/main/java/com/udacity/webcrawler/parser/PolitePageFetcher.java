@@ -0,0 +1,241 @@
+package com.udacity.webcrawler.parser;
+
+import com.udacity.webcrawler.profiler.Profiler;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link PageFetcher} that limits how hard each host is hit, in front of another fetcher.
+ *
+ * <p>Every host gets its own queue. A download starts only when its host has fewer than the
+ * {@link PolitenessPolicy#maxConnections(String) maximum} downloads in flight, and no sooner than
+ * {@code 1 / maxRequestsPerSecond} after the previous download from that host started. Until then
+ * it waits in the host's queue, without holding up downloads from any other host.
+ *
+ * <p>Waiting is asynchronous: {@link #fetch(URI)} returns right away, and the download is started
+ * later by whichever thread frees up the host, or by a single timer thread when the host is only
+ * held back by its rate. Callers that stop waiting for a download, for example because their
+ * deadline has passed, should cancel the returned future so it leaves the queue.
+ *
+ * <p>The crawlers still block one of their {@link com.udacity.webcrawler.FetchConcurrency fetch}
+ * threads on every download they are waiting for, queued or not. A slow or rate-limited host
+ * that most of the links lead to can therefore take up every fetch thread, and downloads from
+ * other hosts then wait for a thread, although not for the host.
+ *
+ * <p>A host's queue is dropped once it has been idle and empty for a while, so the number of
+ * queues stays bounded by the hosts crawled recently, not every host ever crawled.
+ *
+ * <p>URIs without a host, such as local {@code file://} URIs, are passed straight through.
+ */
+@Singleton
+final class PolitePageFetcher implements PageFetcher {
+  /**
+   * How often the queues of idle hosts are dropped.
+   */
+  private static final Duration EVICTION_INTERVAL = Duration.ofSeconds(30);
+
+  private final PageFetcher delegate;
+  private final PolitenessPolicy policy;
+  private final Profiler profiler;
+  private final ConcurrentHashMap<String, HostQueue> hosts = new ConcurrentHashMap<>();
+  private final ScheduledThreadPoolExecutor timer;
+
+  @Inject
+  PolitePageFetcher(
+      @NetworkFetcher PageFetcher delegate, PolitenessPolicy policy, Profiler profiler) {
+    this.delegate = Objects.requireNonNull(delegate);
+    this.policy = Objects.requireNonNull(policy);
+    this.profiler = Objects.requireNonNull(profiler);
+    this.timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+      Thread thread = new Thread(runnable, "polite-page-fetcher-timer");
+      thread.setDaemon(true);
+      return thread;
+    });
+    timer.setRemoveOnCancelPolicy(true);
+    timer.scheduleWithFixedDelay(
+        this::evictIdleHosts,
+        EVICTION_INTERVAL.toNanos(),
+        EVICTION_INTERVAL.toNanos(),
+        TimeUnit.NANOSECONDS);
+  }
+
+  @Override
+  public CompletableFuture<Page> fetch(URI uri) {
+    String host = uri.getHost();
+    if (host == null || policy.isUnlimited()) {
+      return delegate.fetch(uri);
+    }
+    String key = host.toLowerCase(Locale.ROOT);
+    Request request = new Request(uri);
+    while (true) {
+      HostQueue queue = hosts.computeIfAbsent(key, k -> new HostQueue(
+          policy.maxConnections(k), policy.maxRequestsPerSecond(k)));
+      if (queue.add(request)) {
+        queue.drain();
+        return request.result;
+      }
+      // The queue was dropped while idle; the next one takes its place.
+    }
+  }
+
+  /**
+   * Drops the queues of the hosts that have nothing waiting or in flight, and whose rate limit
+   * no longer holds back the next download.
+   */
+  void evictIdleHosts() {
+    for (String host : hosts.keySet()) {
+      hosts.computeIfPresent(host, (key, queue) -> queue.retireIfIdle() ? null : queue);
+    }
+  }
+
+  /**
+   * Returns the number of hosts that have a queue.
+   */
+  int hostCount() {
+    return hosts.size();
+  }
+
+  /**
+   * A download waiting for its host to allow it.
+   */
+  private static final class Request {
+    final URI uri;
+    final CompletableFuture<Page> result = new CompletableFuture<>();
+    final long enqueuedNanos = System.nanoTime();
+
+    Request(URI uri) {
+      this.uri = uri;
+    }
+  }
+
+  /**
+   * The downloads waiting for, and in flight to, a single host.
+   */
+  private final class HostQueue {
+    private final int maxConnections;
+    private final long intervalNanos;
+
+    // Guarded by "this".
+    private final Queue<Request> waiting = new ArrayDeque<>();
+    private int inFlight;
+    private long nextStartNanos = System.nanoTime();
+    private boolean timerScheduled;
+    private boolean retired;
+
+    HostQueue(int maxConnections, double maxRequestsPerSecond) {
+      this.maxConnections = maxConnections;
+      this.intervalNanos = maxRequestsPerSecond > 0
+          ? (long) (TimeUnit.SECONDS.toNanos(1) / maxRequestsPerSecond)
+          : 0;
+    }
+
+    /**
+     * Adds a download to the queue, unless the queue has been dropped, in which case this returns
+     * false.
+     */
+    synchronized boolean add(Request request) {
+      if (retired) {
+        return false;
+      }
+      waiting.add(request);
+      return true;
+    }
+
+    /**
+     * Marks the queue as dropped if it is idle. A new queue for the host starts a download right
+     * away, so this waits until the rate limit would allow that too.
+     */
+    synchronized boolean retireIfIdle() {
+      waiting.removeIf(request -> request.result.isDone());
+      if (waiting.isEmpty()
+          && inFlight == 0
+          && !timerScheduled
+          && System.nanoTime() - nextStartNanos >= 0) {
+        retired = true;
+      }
+      return retired;
+    }
+
+    /**
+     * Starts as many waiting downloads as the host's limits allow right now, and arranges to be
+     * called again when the rate limit is what holds the rest back.
+     */
+    void drain() {
+      List<Request> ready = new ArrayList<>();
+      synchronized (this) {
+        while (!waiting.isEmpty() && inFlight < maxConnections) {
+          if (waiting.peek().result.isDone()) {
+            // Cancelled by the caller while it was waiting.
+            waiting.remove();
+            continue;
+          }
+          long now = System.nanoTime();
+          if (now - nextStartNanos < 0) {
+            if (!timerScheduled) {
+              timerScheduled = true;
+              timer.schedule(this::onTimer, nextStartNanos - now, TimeUnit.NANOSECONDS);
+            }
+            break;
+          }
+          nextStartNanos = now + intervalNanos;
+          inFlight++;
+          ready.add(waiting.remove());
+        }
+      }
+      for (Request request : ready) {
+        start(request);
+      }
+    }
+
+    private void onTimer() {
+      synchronized (this) {
+        timerScheduled = false;
+      }
+      drain();
+    }
+
+    private void start(Request request) {
+      profiler.count(
+          PolitePageFetcher.class,
+          "hostQueueWaitMicros",
+          TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - request.enqueuedNanos));
+      CompletableFuture<Page> download;
+      try {
+        download = delegate.fetch(request.uri);
+      } catch (RuntimeException e) {
+        download = CompletableFuture.failedFuture(e);
+      }
+      CompletableFuture<Page> started = download;
+      // If the caller gives up on the download, give up on it here too.
+      request.result.whenComplete((page, error) -> {
+        if (request.result.isCancelled()) {
+          started.cancel(true);
+        }
+      });
+      started.whenComplete((page, error) -> {
+        synchronized (this) {
+          inFlight--;
+        }
+        if (error == null) {
+          request.result.complete(page);
+        } else {
+          request.result.completeExceptionally(error);
+        }
+        drain();
+      });
+    }
+  }
+}
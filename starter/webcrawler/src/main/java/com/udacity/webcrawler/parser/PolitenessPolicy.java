@@ -0,0 +1,75 @@
+package com.udacity.webcrawler.parser;
+
+import com.udacity.webcrawler.json.HostPoliteness;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The per-host limits enforced by {@link PolitePageFetcher}: a default for every host, plus
+ * overrides for specific hosts.
+ */
+final class PolitenessPolicy {
+  private final int maxConnections;
+  private final double maxRequestsPerSecond;
+  private final Map<String, HostPoliteness> overrides;
+
+  /**
+   * Creates a {@link PolitenessPolicy}.
+   *
+   * @param maxConnections       the default maximum number of concurrent downloads per host, or a
+   *                             value less than 1 for no limit.
+   * @param maxRequestsPerSecond the default maximum number of downloads started per second per
+   *                             host, or a value that is not positive for no limit.
+   * @param overrides            limits for specific hosts, keyed by lower-case host name. A
+   *                             negative limit in an override falls back to the default.
+   */
+  PolitenessPolicy(
+      int maxConnections, double maxRequestsPerSecond, Map<String, HostPoliteness> overrides) {
+    this.maxConnections = maxConnections;
+    this.maxRequestsPerSecond = maxRequestsPerSecond;
+    this.overrides = Objects.requireNonNull(overrides);
+  }
+
+  /**
+   * Returns a policy with no limits.
+   */
+  static PolitenessPolicy unlimited() {
+    return new PolitenessPolicy(0, 0, Map.of());
+  }
+
+  /**
+   * Returns true if no host has any limit.
+   */
+  boolean isUnlimited() {
+    return maxConnections(null) == Integer.MAX_VALUE
+        && maxRequestsPerSecond(null) == 0
+        && overrides.values().stream().allMatch(
+            o -> o.getMaxConnections() <= 0 && o.getMaxRequestsPerSecond() <= 0);
+  }
+
+  /**
+   * Returns the maximum number of concurrent downloads from the given host, which is
+   * {@link Integer#MAX_VALUE} if there is no limit.
+   */
+  int maxConnections(String host) {
+    HostPoliteness override = host == null ? null : overrides.get(host.toLowerCase(Locale.ROOT));
+    int limit = override == null || override.getMaxConnections() < 0
+        ? maxConnections
+        : override.getMaxConnections();
+    return limit < 1 ? Integer.MAX_VALUE : limit;
+  }
+
+  /**
+   * Returns the maximum number of downloads started per second from the given host, which is 0 if
+   * there is no limit.
+   */
+  double maxRequestsPerSecond(String host) {
+    HostPoliteness override = host == null ? null : overrides.get(host.toLowerCase(Locale.ROOT));
+    double limit = override == null || override.getMaxRequestsPerSecond() < 0
+        ? maxRequestsPerSecond
+        : override.getMaxRequestsPerSecond();
+    return limit > 0 ? limit : 0;
+  }
+}
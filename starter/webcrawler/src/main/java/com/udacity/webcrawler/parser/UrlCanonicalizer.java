@@ -0,0 +1,210 @@
+package com.udacity.webcrawler.parser;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Rewrites URLs into a canonical form, so that different spellings of the same page are only
+ * visited once.
+ *
+ * <p>A URL is canonicalized by:
+ * <ul>
+ *   <li>Lower-casing the scheme and host.</li>
+ *   <li>Removing the port if it is the default one for the scheme.</li>
+ *   <li>Removing the fragment.</li>
+ *   <li>Resolving {@code "."} and {@code ".."} path segments.</li>
+ *   <li>Using {@code "/"} as the path of a URL with a host but no path.</li>
+ *   <li>Removing the configured tracking parameters from the query, and sorting the rest.</li>
+ * </ul>
+ *
+ * <p>Trailing slashes are kept, since {@code "/x"} and {@code "/x/"} resolve relative links
+ * differently and so are not always the same page. Strings that are not valid URIs are returned
+ * unchanged.
+ *
+ * <p>Every link of every page goes through here, and the same links show up on page after page,
+ * so recent results are kept in a small lock-free cache. Instances are safe to use from many
+ * threads at once.
+ */
+public final class UrlCanonicalizer {
+  private static final int CACHE_SIZE = 1 << 14;
+
+  private static final Map<String, Integer> DEFAULT_PORTS =
+      Map.of("http", 80, "https", 443, "ftp", 21, "ws", 80, "wss", 443);
+
+  private static final UrlCanonicalizer STANDARD = new UrlCanonicalizer(List.of());
+
+  private final Set<String> trackingParameters = new HashSet<>();
+  private final List<String> trackingParameterPrefixes = new ArrayList<>();
+  private final AtomicReferenceArray<Entry> cache = new AtomicReferenceArray<>(CACHE_SIZE);
+
+  /**
+   * Creates a canonicalizer that removes the given query parameters.
+   *
+   * @param trackingParameters the names of the query parameters to remove. A name ending in
+   *                           {@code "*"} matches every parameter starting with the rest of it,
+   *                           for example {@code "utm_*"}.
+   */
+  public UrlCanonicalizer(Collection<String> trackingParameters) {
+    for (String parameter : trackingParameters) {
+      if (parameter.endsWith("*")) {
+        trackingParameterPrefixes.add(parameter.substring(0, parameter.length() - 1));
+      } else {
+        this.trackingParameters.add(parameter);
+      }
+    }
+  }
+
+  /**
+   * Returns a canonicalizer that does not remove any query parameters.
+   */
+  public static UrlCanonicalizer standard() {
+    return STANDARD;
+  }
+
+  /**
+   * Returns the canonical form of the given URL.
+   */
+  public String canonicalize(String url) {
+    int index = url.hashCode() & (CACHE_SIZE - 1);
+    Entry entry = cache.getPlain(index);
+    if (entry != null && entry.url.equals(url)) {
+      return entry.canonical;
+    }
+    String canonical = compute(url);
+    // A racing thread may overwrite the entry, which only costs a later recomputation.
+    cache.setPlain(index, new Entry(url, canonical));
+    return canonical;
+  }
+
+  private String compute(String url) {
+    URI uri;
+    try {
+      uri = new URI(url);
+    } catch (URISyntaxException e) {
+      return url;
+    }
+    String scheme = uri.getScheme();
+    if (scheme == null || uri.isOpaque()) {
+      // Relative references and URLs such as "mailto:" have no host or path to normalize.
+      int fragment = url.indexOf('#');
+      return fragment < 0 ? url : url.substring(0, fragment);
+    }
+    scheme = scheme.toLowerCase(Locale.ROOT);
+
+    StringBuilder canonical = new StringBuilder(url.length());
+    canonical.append(scheme).append(':');
+    String host = uri.getHost();
+    if (uri.getRawAuthority() != null || uri.getRawSchemeSpecificPart().startsWith("//")) {
+      canonical.append("//");
+      if (host == null) {
+        // An empty authority, as in "file:///", or one that is not a host name.
+        if (uri.getRawAuthority() != null) {
+          canonical.append(uri.getRawAuthority());
+        }
+      } else {
+        if (uri.getRawUserInfo() != null) {
+          canonical.append(uri.getRawUserInfo()).append('@');
+        }
+        canonical.append(host.toLowerCase(Locale.ROOT));
+        int port = uri.getPort();
+        if (port != -1 && port != DEFAULT_PORTS.getOrDefault(scheme, -1)) {
+          canonical.append(':').append(port);
+        }
+      }
+    }
+
+    String path = removeDotSegments(uri.getRawPath() == null ? "" : uri.getRawPath());
+    canonical.append(path.isEmpty() && host != null ? "/" : path);
+
+    String query = uri.getRawQuery();
+    if (query != null) {
+      query = canonicalizeQuery(query);
+      if (!query.isEmpty()) {
+        canonical.append('?').append(query);
+      }
+    }
+    return canonical.toString();
+  }
+
+  /**
+   * Removes the tracking parameters and empty parameters from the query, and sorts the rest.
+   */
+  private String canonicalizeQuery(String query) {
+    String[] parameters = query.split("&");
+    int kept = 0;
+    for (String parameter : parameters) {
+      if (!parameter.isEmpty() && !isTrackingParameter(parameter)) {
+        parameters[kept++] = parameter;
+      }
+    }
+    Arrays.sort(parameters, 0, kept);
+    return String.join("&", Arrays.asList(parameters).subList(0, kept));
+  }
+
+  private boolean isTrackingParameter(String parameter) {
+    if (trackingParameters.isEmpty() && trackingParameterPrefixes.isEmpty()) {
+      return false;
+    }
+    int equals = parameter.indexOf('=');
+    String name = equals < 0 ? parameter : parameter.substring(0, equals);
+    if (trackingParameters.contains(name)) {
+      return true;
+    }
+    for (String prefix : trackingParameterPrefixes) {
+      if (name.startsWith(prefix)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Resolves the {@code "."} and {@code ".."} segments of the path, as described in section 5.2.4
+   * of RFC 3986.
+   */
+  static String removeDotSegments(String path) {
+    if (!path.startsWith(".") && !path.contains("/.")) {
+      return path;
+    }
+    boolean absolute = path.startsWith("/");
+    String[] segments = (absolute ? path.substring(1) : path).split("/", -1);
+    Deque<String> output = new ArrayDeque<>();
+    for (int i = 0; i < segments.length; i++) {
+      String segment = segments[i];
+      boolean last = i == segments.length - 1;
+      if (segment.equals(".") || segment.equals("..")) {
+        if (segment.equals("..")) {
+          output.pollLast();
+        }
+        if (last) {
+          // "/a/b/.." is the directory "/a/", not the file "/a".
+          output.addLast("");
+        }
+      } else {
+        output.addLast(segment);
+      }
+    }
+    return (absolute ? "/" : "") + String.join("/", output);
+  }
+
+  private static final class Entry {
+    final String url;
+    final String canonical;
+
+    Entry(String url, String canonical) {
+      this.url = url;
+      this.canonical = canonical;
+    }
+  }
+}
@@ -0,0 +1,122 @@
+package com.udacity.webcrawler.parser;
+
+import java.util.Arrays;
+
+/**
+ * A map from {@link WordDictionary} word IDs to {@code int} counts, which does not box either.
+ *
+ * <p>IDs and counts are kept side by side in two arrays, with linear probing, so adding to the
+ * count of a word allocates nothing unless the map has to grow.
+ *
+ * <p>Instances are not safe to use from many threads at once.
+ */
+public final class WordCountMap {
+  private static final int INITIAL_CAPACITY = 16;
+  private static final int NO_WORD = -1;
+
+  private int[] ids = newIds(INITIAL_CAPACITY);
+  private int[] counts = new int[INITIAL_CAPACITY];
+  private int size;
+
+  /**
+   * Adds the given amount to the count of the word with the given ID, which starts at 0.
+   */
+  public void add(int id, int count) {
+    if (id < 0) {
+      throw new IllegalArgumentException("Word IDs cannot be negative: " + id);
+    }
+    int mask = ids.length - 1;
+    int index = spread(id) & mask;
+    for (int existing; (existing = ids[index]) != NO_WORD; index = (index + 1) & mask) {
+      if (existing == id) {
+        counts[index] += count;
+        return;
+      }
+    }
+    ids[index] = id;
+    counts[index] = count;
+    if (++size * 2 > ids.length) {
+      grow();
+    }
+  }
+
+  /**
+   * Returns the count of the word with the given ID, or 0 if it has not been added.
+   */
+  public int get(int id) {
+    int mask = ids.length - 1;
+    for (int index = spread(id) & mask; ids[index] != NO_WORD; index = (index + 1) & mask) {
+      if (ids[index] == id) {
+        return counts[index];
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * Returns the number of distinct words in the map.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns true if no word has been added.
+   */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Calls the given action with every word ID and its count, in no particular order.
+   */
+  public void forEach(IdCountConsumer action) {
+    for (int i = 0; i < ids.length; i++) {
+      if (ids[i] != NO_WORD) {
+        action.accept(ids[i], counts[i]);
+      }
+    }
+  }
+
+  private void grow() {
+    int[] oldIds = ids;
+    int[] oldCounts = counts;
+    ids = newIds(oldIds.length * 2);
+    counts = new int[oldIds.length * 2];
+    int mask = ids.length - 1;
+    for (int i = 0; i < oldIds.length; i++) {
+      int id = oldIds[i];
+      if (id == NO_WORD) {
+        continue;
+      }
+      int index = spread(id) & mask;
+      while (ids[index] != NO_WORD) {
+        index = (index + 1) & mask;
+      }
+      ids[index] = id;
+      counts[index] = oldCounts[i];
+    }
+  }
+
+  private static int[] newIds(int capacity) {
+    int[] ids = new int[capacity];
+    Arrays.fill(ids, NO_WORD);
+    return ids;
+  }
+
+  /**
+   * Scatters word IDs, which are dense and sequential, across the table.
+   */
+  private static int spread(int id) {
+    int hash = id * 0x9E3779B9;
+    return hash ^ (hash >>> 16);
+  }
+
+  /**
+   * An action that is given a word ID and its count.
+   */
+  @FunctionalInterface
+  public interface IdCountConsumer {
+    void accept(int id, int count);
+  }
+}
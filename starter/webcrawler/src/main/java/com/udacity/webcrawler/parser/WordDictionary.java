@@ -0,0 +1,166 @@
+package com.udacity.webcrawler.parser;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Assigns every distinct word a small, dense {@code int} ID, the first time it is seen.
+ *
+ * <p>The same few thousand words make up most of the text of every page. With a dictionary shared
+ * by every parser of a crawl, a page's words are looked up by the characters in the tokenizer's
+ * buffer, so a {@link String} is only ever created for a word the first time any page of the crawl
+ * has it. The counts of a crawl can then be kept in arrays indexed by word ID, and merging a
+ * page's counts into them does not hash or compare any strings.
+ *
+ * <p>Looking up a word that is already in the dictionary does not take a lock. Adding a new word
+ * does, and new words get rarer as a crawl goes on. Words are never removed, so every crawl has a
+ * dictionary of its own, which it drops when it is over.
+ *
+ * <p>Instances are safe to use from many threads at once.
+ */
+public final class WordDictionary {
+  private static final int INITIAL_CAPACITY = 1 << 10;
+
+  // Open-addressing table of the words, with linear probing. Replaced, never resized in place, so
+  // lookups that do not take the lock always see a consistent table.
+  private volatile AtomicReferenceArray<Entry> table =
+      new AtomicReferenceArray<>(INITIAL_CAPACITY);
+
+  // The words, indexed by ID. Written only while holding the lock.
+  private volatile String[] words = new String[INITIAL_CAPACITY / 2];
+  private volatile int size;
+
+  /**
+   * Returns the ID of the given word, adding it to the dictionary if it is not there yet.
+   */
+  public int id(String word) {
+    int hash = word.hashCode();
+    AtomicReferenceArray<Entry> table = this.table;
+    int mask = table.length() - 1;
+    for (int index = spread(hash) & mask; ; index = (index + 1) & mask) {
+      Entry entry = table.get(index);
+      if (entry == null) {
+        return add(hash, word);
+      }
+      if (entry.hash == hash && entry.word.equals(word)) {
+        return entry.id;
+      }
+    }
+  }
+
+  /**
+   * Returns the ID of the word in the first {@code length} characters of the given buffer, adding
+   * it to the dictionary if it is not there yet.
+   */
+  int id(char[] chars, int length) {
+    int hash = 0;
+    for (int i = 0; i < length; i++) {
+      hash = 31 * hash + chars[i];
+    }
+    AtomicReferenceArray<Entry> table = this.table;
+    int mask = table.length() - 1;
+    for (int index = spread(hash) & mask; ; index = (index + 1) & mask) {
+      Entry entry = table.get(index);
+      if (entry == null) {
+        return add(hash, new String(chars, 0, length));
+      }
+      if (entry.hash == hash && entry.word.length() == length && equals(entry.word, chars)) {
+        return entry.id;
+      }
+    }
+  }
+
+  /**
+   * Returns the word with the given ID.
+   *
+   * @throws IndexOutOfBoundsException if no word has the given ID.
+   */
+  public String word(int id) {
+    Objects.checkIndex(id, size);
+    return words[id];
+  }
+
+  /**
+   * Returns the number of words in the dictionary. Every ID is less than this.
+   */
+  public int size() {
+    return size;
+  }
+
+  private synchronized int add(int hash, String word) {
+    // Another thread may have added the word, or grown the table, since the lookup missed.
+    AtomicReferenceArray<Entry> table = this.table;
+    int mask = table.length() - 1;
+    int index = spread(hash) & mask;
+    for (Entry entry; (entry = table.get(index)) != null; index = (index + 1) & mask) {
+      if (entry.hash == hash && entry.word.equals(word)) {
+        return entry.id;
+      }
+    }
+
+    int id = size;
+    String[] words = this.words;
+    if (id == words.length) {
+      words = Arrays.copyOf(words, id * 2);
+      this.words = words;
+    }
+    words[id] = word;
+    size = id + 1;
+    // Publishing the entry last makes the word visible to anyone who finds its ID.
+    table.set(index, new Entry(word, hash, id));
+    if (size * 2 > table.length()) {
+      this.table = rehash(table);
+    }
+    return id;
+  }
+
+  private static AtomicReferenceArray<Entry> rehash(AtomicReferenceArray<Entry> table) {
+    AtomicReferenceArray<Entry> grown = new AtomicReferenceArray<>(table.length() * 2);
+    int mask = grown.length() - 1;
+    for (int i = 0; i < table.length(); i++) {
+      Entry entry = table.get(i);
+      if (entry == null) {
+        continue;
+      }
+      int index = spread(entry.hash) & mask;
+      while (grown.get(index) != null) {
+        index = (index + 1) & mask;
+      }
+      grown.set(index, entry);
+    }
+    return grown;
+  }
+
+  private static boolean equals(String word, char[] chars) {
+    for (int i = 0; i < word.length(); i++) {
+      if (word.charAt(i) != chars[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Scrambles a {@link String#hashCode()} before its lower bits pick the slot of a word. The hashes
+   * of short words fall in narrow, dense ranges, which linear probing would turn into long runs of
+   * full slots. The hash of a character range is computed the same way as
+   * {@link String#hashCode()}.
+   */
+  private static int spread(int hash) {
+    int scrambled = hash * 0x9E3779B9;
+    return scrambled ^ (scrambled >>> 16);
+  }
+
+  private static final class Entry {
+    final String word;
+    final int hash;
+    final int id;
+
+    Entry(String word, int hash, int id) {
+      this.word = word;
+      this.hash = hash;
+      this.id = id;
+    }
+  }
+}
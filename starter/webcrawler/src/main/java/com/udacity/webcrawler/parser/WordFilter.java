@@ -0,0 +1,382 @@
+package com.udacity.webcrawler.parser;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Decides whether a word matches any of the ignored word patterns, without running a regular
+ * expression for every pattern and every word.
+ *
+ * <p>Most ignored word rules are not really regular expressions. When the list is compiled, each
+ * pattern is sorted by what it really needs:
+ * <ul>
+ *   <li>A pattern made only of {@code "."} and quantifiers, such as {@code "^.{1,3}$"} or
+ *       {@code "^......$"}, only depends on the length of the word.</li>
+ *   <li>A literal word, or an alternation of literal words such as {@code "^(the|and|of)$"}, is
+ *       looked up in a hash set.</li>
+ *   <li>Any other pattern stays a regular expression. They are all combined into a single
+ *       alternation, so each word costs at most one regular expression match.</li>
+ * </ul>
+ *
+ * <p>A word is ignored if and only if one of the original patterns {@linkplain Matcher#matches()
+ * matches} all of it. Instances are safe to use from many threads at once. A {@link Checker} checks
+ * words that are ranges of a longer string, without copying them, from a single thread.
+ */
+final class WordFilter {
+  private static final String METACHARACTERS = "\\^$.|?*+()[]{}";
+
+  private final int[] minLengths;
+  private final int[] maxLengths;
+  private final String[] words;
+  private final Pattern combined;
+  private final List<Pattern> separate;
+
+  private WordFilter(
+      int[] minLengths,
+      int[] maxLengths,
+      String[] words,
+      Pattern combined,
+      List<Pattern> separate) {
+    this.minLengths = minLengths;
+    this.maxLengths = maxLengths;
+    this.words = words;
+    this.combined = combined;
+    this.separate = separate;
+  }
+
+  /**
+   * Compiles the given ignored word patterns.
+   */
+  static WordFilter compile(List<Pattern> patterns) {
+    List<int[]> lengths = new ArrayList<>();
+    Set<String> words = new HashSet<>();
+    List<Pattern> expressions = new ArrayList<>();
+    for (Pattern pattern : patterns) {
+      if (pattern.flags() == 0) {
+        int[] length = parseLengthRule(pattern.pattern());
+        if (length != null) {
+          lengths.add(length);
+          continue;
+        }
+        List<String> literals = parseLiterals(pattern.pattern());
+        if (literals != null) {
+          words.addAll(literals);
+          continue;
+        }
+      }
+      expressions.add(pattern);
+    }
+
+    int[] minLengths = new int[lengths.size()];
+    int[] maxLengths = new int[lengths.size()];
+    for (int i = 0; i < lengths.size(); i++) {
+      minLengths[i] = lengths.get(i)[0];
+      maxLengths[i] = lengths.get(i)[1];
+    }
+
+    // Back-references are numbered across the whole expression, so patterns that use them, or
+    // that otherwise cannot be combined, are matched on their own.
+    List<Pattern> separate = new ArrayList<>();
+    StringBuilder alternation = new StringBuilder();
+    for (Pattern pattern : expressions) {
+      if (pattern.flags() != 0 || hasBackReference(pattern.pattern())) {
+        separate.add(pattern);
+        continue;
+      }
+      if (alternation.length() > 0) {
+        alternation.append('|');
+      }
+      alternation.append("(?:").append(pattern.pattern()).append(')');
+    }
+    Pattern combined = null;
+    if (alternation.length() > 0) {
+      try {
+        combined = Pattern.compile(alternation.toString());
+      } catch (PatternSyntaxException e) {
+        // For example, the same named group in two patterns.
+        separate = expressions;
+      }
+    }
+    return new WordFilter(
+        minLengths, maxLengths, hashTable(words), combined, List.copyOf(separate));
+  }
+
+  /**
+   * Puts the words in an open-addressing hash table, so that they can be looked up by a range of
+   * a longer string.
+   */
+  private static String[] hashTable(Set<String> words) {
+    if (words.isEmpty()) {
+      return new String[0];
+    }
+    String[] table = new String[Integer.highestOneBit(words.size() * 2 - 1) << 1];
+    for (String word : words) {
+      int index = spread(word.hashCode()) & (table.length - 1);
+      while (table[index] != null) {
+        index = (index + 1) & (table.length - 1);
+      }
+      table[index] = word;
+    }
+    return table;
+  }
+
+  /**
+   * Returns true if the given word matches one of the ignored word patterns.
+   */
+  boolean isIgnored(String word) {
+    if (isIgnoredWithoutExpressions(word, 0, word.length())) {
+      return true;
+    }
+    if (combined != null && combined.matcher(word).matches()) {
+      return true;
+    }
+    for (Pattern pattern : separate) {
+      if (pattern.matcher(word).matches()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns a {@link Checker} for a single thread to use.
+   */
+  Checker checker() {
+    return new Checker();
+  }
+
+  /**
+   * Checks the length rules and literal words.
+   */
+  private boolean isIgnoredWithoutExpressions(String text, int start, int end) {
+    if (minLengths.length > 0) {
+      int length = length(text, start, end);
+      for (int i = 0; i < minLengths.length; i++) {
+        if (length >= minLengths[i] && length <= maxLengths[i]) {
+          return true;
+        }
+      }
+    }
+    if (words.length > 0) {
+      int hash = 0;
+      for (int i = start; i < end; i++) {
+        hash = 31 * hash + text.charAt(i);
+      }
+      int mask = words.length - 1;
+      for (int index = spread(hash) & mask; words[index] != null; index = (index + 1) & mask) {
+        String word = words[index];
+        if (word.length() == end - start && text.regionMatches(start, word, 0, end - start)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns the number of characters {@code "."} matches in the given range, or -1 if {@code "."}
+   * cannot match all of it.
+   */
+  private static int length(String text, int start, int end) {
+    int length = end - start;
+    for (int i = start; i < end; i++) {
+      char c = text.charAt(i);
+      if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+        return -1;
+      }
+      // A surrogate pair is a single code point, and so a single match of ".".
+      if (Character.isHighSurrogate(c)
+          && i + 1 < end
+          && Character.isLowSurrogate(text.charAt(i + 1))) {
+        length--;
+        i++;
+      }
+    }
+    return length;
+  }
+
+  /**
+   * Spreads the higher bits of a {@link String#hashCode()} into the lower ones, which pick the slot
+   * of the hash table.
+   */
+  private static int spread(int hash) {
+    return hash ^ (hash >>> 16);
+  }
+
+  /**
+   * Checks ranges of longer strings against a {@link WordFilter}, reusing its regular expression
+   * matchers from word to word. Instances are not safe to share between threads.
+   */
+  final class Checker {
+    private final Matcher combinedMatcher;
+    private final Matcher[] separateMatchers;
+
+    private Checker() {
+      combinedMatcher = combined == null ? null : combined.matcher("");
+      separateMatchers = new Matcher[separate.size()];
+      for (int i = 0; i < separateMatchers.length; i++) {
+        separateMatchers[i] = separate.get(i).matcher("");
+      }
+    }
+
+    /**
+     * Returns true if the characters of {@code text} from {@code start} (inclusive) to
+     * {@code end} (exclusive) match one of the ignored word patterns.
+     */
+    boolean isIgnored(String text, int start, int end) {
+      if (isIgnoredWithoutExpressions(text, start, end)) {
+        return true;
+      }
+      // Region bounds are opaque and anchoring by default, so matching a region of the text is the
+      // same as matching a copy of it.
+      if (combinedMatcher != null && combinedMatcher.reset(text).region(start, end).matches()) {
+        return true;
+      }
+      for (Matcher matcher : separateMatchers) {
+        if (matcher.reset(text).region(start, end).matches()) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  /**
+   * Reads a pattern made only of {@code "."}, optionally quantified, between optional anchors.
+   *
+   * @return the minimum and maximum length of the words it matches, or null if the pattern is not
+   *     of that form.
+   */
+  static int[] parseLengthRule(String regex) {
+    int i = regex.startsWith("^") ? 1 : 0;
+    int end = regex.endsWith("$") ? regex.length() - 1 : regex.length();
+    long min = 0;
+    long max = 0;
+    while (i < end) {
+      if (regex.charAt(i) != '.') {
+        return null;
+      }
+      i++;
+      long atomMin = 1;
+      long atomMax = 1;
+      if (i < end) {
+        char c = regex.charAt(i);
+        if (c == '?' || c == '*' || c == '+') {
+          atomMin = c == '+' ? 1 : 0;
+          atomMax = c == '?' ? 1 : Integer.MAX_VALUE;
+          i++;
+        } else if (c == '{') {
+          int close = regex.indexOf('}', i);
+          if (close < 0 || close >= end) {
+            return null;
+          }
+          String[] bounds = regex.substring(i + 1, close).split(",", -1);
+          try {
+            if (bounds.length == 1) {
+              atomMin = atomMax = Integer.parseInt(bounds[0]);
+            } else if (bounds.length == 2) {
+              atomMin = Integer.parseInt(bounds[0]);
+              atomMax = bounds[1].isEmpty() ? Integer.MAX_VALUE : Integer.parseInt(bounds[1]);
+            } else {
+              return null;
+            }
+          } catch (NumberFormatException e) {
+            return null;
+          }
+          if (atomMin < 0 || atomMax < atomMin) {
+            return null;
+          }
+          i = close + 1;
+        }
+        // A lazy or possessive quantifier, or a quantifier on a quantifier, is not handled here.
+        if (i < end && "?*+{".indexOf(regex.charAt(i)) >= 0) {
+          return null;
+        }
+      }
+      min = Math.min(min + atomMin, Integer.MAX_VALUE);
+      max = Math.min(max + atomMax, Integer.MAX_VALUE);
+    }
+    return new int[] {(int) min, (int) max};
+  }
+
+  /**
+   * Reads a literal word, or an alternation of literal words that may be wrapped in a group and
+   * anchored.
+   *
+   * @return the words the pattern matches, or null if the pattern is not of that form.
+   */
+  static List<String> parseLiterals(String regex) {
+    String body = regex;
+    int start = body.startsWith("^") ? 1 : 0;
+    int end = body.endsWith("$") && !isEscaped(body, body.length() - 1)
+        ? body.length() - 1
+        : body.length();
+    if (end - start >= 2
+        && body.charAt(start) == '('
+        && body.charAt(end - 1) == ')'
+        && !isEscaped(body, end - 1)) {
+      int contentStart = body.startsWith("(?:", start) ? start + 3 : start + 1;
+      if (body.startsWith("(?", start) && contentStart == start + 1) {
+        return null;
+      }
+      body = body.substring(contentStart, end - 1);
+    }
+
+    List<String> literals = new ArrayList<>();
+    StringBuilder literal = new StringBuilder();
+    int alternativeStart = 0;
+    for (int i = 0; i <= body.length(); i++) {
+      if (i == body.length() || body.charAt(i) == '|') {
+        literals.add(literal.toString());
+        literal.setLength(0);
+        alternativeStart = i + 1;
+        continue;
+      }
+      char c = body.charAt(i);
+      if (c == '\\') {
+        if (i + 1 >= body.length() || Character.isLetterOrDigit(body.charAt(i + 1))) {
+          return null;
+        }
+        literal.append(body.charAt(++i));
+      } else if (c == '^' && i == alternativeStart) {
+        continue;
+      } else if (c == '$' && (i + 1 == body.length() || body.charAt(i + 1) == '|')) {
+        continue;
+      } else if (METACHARACTERS.indexOf(c) >= 0) {
+        return null;
+      } else {
+        literal.append(c);
+      }
+    }
+    return literals;
+  }
+
+  /**
+   * Returns true if the character at the given index is preceded by an odd number of backslashes.
+   */
+  private static boolean isEscaped(String regex, int index) {
+    int backslashes = 0;
+    for (int i = index - 1; i >= 0 && regex.charAt(i) == '\\'; i--) {
+      backslashes++;
+    }
+    return backslashes % 2 == 1;
+  }
+
+  private static boolean hasBackReference(String regex) {
+    for (int i = 0; i + 1 < regex.length(); i++) {
+      if (regex.charAt(i) == '\\') {
+        char next = regex.charAt(i + 1);
+        if ((next >= '1' && next <= '9') || next == 'k') {
+          return true;
+        }
+        i++;
+      }
+    }
+    return false;
+  }
+}
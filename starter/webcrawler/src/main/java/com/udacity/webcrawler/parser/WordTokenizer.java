@@ -0,0 +1,113 @@
+package com.udacity.webcrawler.parser;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Splits the text of a page into the words that are counted, in a single pass over each piece of
+ * text, without creating garbage strings along the way.
+ *
+ * <p>The text is stripped of leading and trailing whitespace and split at runs of ASCII
+ * whitespace. Pieces that are blank, or that match an ignored word pattern, are dropped. Every
+ * character but ASCII letters, digits and underscores is then removed from the rest, which are
+ * lower-cased in the default locale. Ignored word patterns see a piece before its characters are
+ * removed, and a piece with no characters left is counted as the empty word.
+ *
+ * <p>Each word is built in a reusable buffer and counted straight from there, so a {@link String}
+ * is only created the first time the word is seen on the page. Instances are not safe to share
+ * between threads, so each parse uses its own.
+ */
+final class WordTokenizer {
+  private static volatile LowerCaseTable lowerCaseTable;
+
+  private final WordFilter.Checker ignoredWords;
+  private final char[] lowerCase;
+  private char[] buffer = new char[32];
+
+  /**
+   * Creates a tokenizer that drops the words matched by the given {@link WordFilter}.
+   */
+  WordTokenizer(WordFilter ignoredWords) {
+    this.ignoredWords = ignoredWords.checker();
+    this.lowerCase = LowerCaseTable.forLocale(Locale.getDefault());
+  }
+
+  /**
+   * Adds every word of the given text to the builder.
+   */
+  void addWords(String text, PageParser.Result.Builder builder) {
+    Objects.requireNonNull(builder);
+    int start = 0;
+    int end = text.length();
+    while (start < end && Character.isWhitespace(text.charAt(start))) {
+      start++;
+    }
+    while (end > start && Character.isWhitespace(text.charAt(end - 1))) {
+      end--;
+    }
+
+    int i = start;
+    while (i < end) {
+      while (i < end && isAsciiWhitespace(text.charAt(i))) {
+        i++;
+      }
+      if (i == end) {
+        return;
+      }
+      int pieceStart = i;
+      boolean blank = true;
+      int length = 0;
+      for (char c; i < end && !isAsciiWhitespace(c = text.charAt(i)); i++) {
+        blank &= Character.isWhitespace(c);
+        if (c < lowerCase.length && lowerCase[c] != 0) {
+          if (length == buffer.length) {
+            buffer = Arrays.copyOf(buffer, length * 2);
+          }
+          buffer[length++] = lowerCase[c];
+        }
+      }
+      if (!blank && !ignoredWords.isIgnored(text, pieceStart, i)) {
+        builder.addWord(buffer, length);
+      }
+    }
+  }
+
+  /**
+   * Returns true for the characters that the {@code "\s"} regular expression matches.
+   */
+  private static boolean isAsciiWhitespace(char c) {
+    return c == ' ' || (c >= '\t' && c <= '\r');
+  }
+
+  /**
+   * The lower-case form of each ASCII word character in a locale, or 0 for characters that are
+   * removed from words.
+   */
+  private static final class LowerCaseTable {
+    final Locale locale;
+    final char[] lowerCase = new char[128];
+
+    private LowerCaseTable(Locale locale) {
+      this.locale = locale;
+      for (char c = 0; c < lowerCase.length; c++) {
+        if (c == '_'
+            || (c >= '0' && c <= '9')
+            || (c >= 'a' && c <= 'z')
+            || (c >= 'A' && c <= 'Z')) {
+          // In a Turkish locale, for example, 'I' becomes a dotless i.
+          lowerCase[c] = String.valueOf(c).toLowerCase(locale).charAt(0);
+        }
+      }
+    }
+
+    static char[] forLocale(Locale locale) {
+      LowerCaseTable table = lowerCaseTable;
+      if (table == null || !table.locale.equals(locale)) {
+        table = new LowerCaseTable(locale);
+        lowerCaseTable = table;
+      }
+      return table.lowerCase;
+    }
+  }
+}
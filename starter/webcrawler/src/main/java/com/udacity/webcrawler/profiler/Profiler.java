@@ -27,6 +27,39 @@ public interface Profiler
    */
   <T> T wrap(Class<T> klass, T delegate);
 
+  /**
+   * Adds the given amount to a named counter. Counters are aggregated the same way as method
+   * timings, and are written out alongside them by {@link #writeData(Writer) writeData}.
+   *
+   * @param callingClass the class that owns the counter.
+   * @param counter      the name of the counter, unique within the calling class.
+   * @param delta        the amount to add to the counter.
+   */
+  void count(Class<?> callingClass, String counter, long delta);
+
+  /**
+   * Records an observed value for a named peak, such as the depth of a queue. Only the largest
+   * value recorded for each peak is kept, and it is written out alongside the counters.
+   *
+   * @param callingClass the class that owns the peak.
+   * @param counter      the name of the peak, unique within the calling class.
+   * @param value        the observed value.
+   */
+  void recordMax(Class<?> callingClass, String counter, long value);
+
+  /**
+   * Records the current value of a named series, such as a limit that changes during the run. Each
+   * value is kept with the time it was recorded, and the whole series is written out by
+   * {@link #writeData(Writer) writeData}. A value equal to the previous one is not recorded again.
+   *
+   * <p>Very long series are thinned out, so recording a value often is cheap and bounded.
+   *
+   * @param callingClass the class that owns the series.
+   * @param series       the name of the series, unique within the calling class.
+   * @param value        the current value.
+   */
+  void recordSample(Class<?> callingClass, String series, long value);
+
   /**
    * Formats the profile data as a string and writes it to the given {@link Path}.
    *
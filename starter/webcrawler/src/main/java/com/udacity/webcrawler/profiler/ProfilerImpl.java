@@ -7,6 +7,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.time.Clock;
+import java.time.Duration;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
@@ -45,6 +46,19 @@ final class ProfilerImpl implements Profiler {
     return (T) java.lang.reflect.Proxy.newProxyInstance(classLoader, interfaces, handler);
   }
   @Override
+  public void count(Class<?> callingClass, String counter, long delta) {
+    state.count(callingClass, counter, delta);
+  }
+  @Override
+  public void recordMax(Class<?> callingClass, String counter, long value) {
+    state.recordMax(callingClass, counter, value);
+  }
+  @Override
+  public void recordSample(Class<?> callingClass, String series, long value) {
+    state.recordSample(
+        callingClass, series, Duration.between(startTime.toInstant(), clock.instant()), value);
+  }
+  @Override
   public void writeData(Path path) throws IOException {
     try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
       writeData(writer);
@@ -4,10 +4,14 @@ import java.io.IOException;
 import java.io.Writer;
 import java.lang.reflect.Method;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 
 /**
@@ -15,7 +19,16 @@ import java.util.stream.Collectors;
  */
 final class ProfilingState
 {
+  /**
+   * The most samples kept for a single series. Once a series reaches this size, every other sample
+   * is dropped, halving its resolution.
+   */
+  private static final int MAX_SAMPLES = 1024;
+
   private final Map<String, Duration> data = new ConcurrentHashMap<>();
+  private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+  private final Map<String, LongAccumulator> peaks = new ConcurrentHashMap<>();
+  private final Map<String, Series> series = new ConcurrentHashMap<>();
 
   /**
    * Records the given method invocation data.
@@ -37,6 +50,51 @@ final class ProfilingState
     data.compute(key, (k, v) -> (v == null) ? elapsed : v.plus(elapsed));
   }
 
+  /**
+   * Adds the given amount to a named counter.
+   *
+   * @param callingClass the Java class that owns the counter.
+   * @param counter      the name of the counter.
+   * @param delta        the amount to add.
+   */
+  void count(Class<?> callingClass, String counter, long delta) {
+    Objects.requireNonNull(callingClass);
+    Objects.requireNonNull(counter);
+    counters.computeIfAbsent(formatCounter(callingClass, counter), k -> new LongAdder())
+        .add(delta);
+  }
+
+  /**
+   * Records a value for a named peak, which keeps the largest value recorded for it.
+   *
+   * @param callingClass the Java class that owns the peak.
+   * @param counter      the name of the peak.
+   * @param value        the observed value.
+   */
+  void recordMax(Class<?> callingClass, String counter, long value) {
+    Objects.requireNonNull(callingClass);
+    Objects.requireNonNull(counter);
+    peaks.computeIfAbsent(
+            formatCounter(callingClass, counter), k -> new LongAccumulator(Math::max, value))
+        .accumulate(value);
+  }
+
+  /**
+   * Records the value of a named series at the given time.
+   *
+   * @param callingClass the Java class that owns the series.
+   * @param name         the name of the series.
+   * @param elapsed      the time since profiling started.
+   * @param value        the current value.
+   */
+  void recordSample(Class<?> callingClass, String name, Duration elapsed, long value) {
+    Objects.requireNonNull(callingClass);
+    Objects.requireNonNull(name);
+    Objects.requireNonNull(elapsed);
+    series.computeIfAbsent(formatCounter(callingClass, name), k -> new Series())
+        .add(elapsed, value);
+  }
+
   /**
    * Writes the method invocation data to the given {@link Writer}.
    *
@@ -51,7 +109,13 @@ final class ProfilingState
             .stream()
             .sorted(Map.Entry.comparingByKey())
             .map(e -> e.getKey() + " took " + formatDuration(e.getValue()) + System.lineSeparator())
-            .collect(Collectors.toList());
+            .collect(Collectors.toCollection(ArrayList::new));
+    Map<String, Long> values = new TreeMap<>();
+    counters.forEach((k, v) -> values.put(k, v.sum()));
+    peaks.forEach((k, v) -> values.put(k, v.get()));
+    values.forEach((k, v) -> entries.add(k + " = " + v + System.lineSeparator()));
+    new TreeMap<>(series)
+        .forEach((k, v) -> entries.add(k + " over time: " + v + System.lineSeparator()));
 
     // We have to use a for-loop here instead of a Stream API method because Writer#write() can
     // throw an IOException, and lambdas are not allowed to throw checked exceptions.
@@ -73,6 +137,14 @@ final class ProfilingState
     return String.format("%s#%s", callingClass.getName(), method.getName());
   }
 
+  /**
+   * Formats the given counter name for writing to a text file.
+   */
+  private static String formatCounter(Class<?> callingClass, String counter)
+  {
+    return String.format("%s#%s", callingClass.getName(), counter);
+  }
+
   /**
    * Formats the given {@link Duration} for writing to a text file.
    */
@@ -81,4 +153,38 @@ final class ProfilingState
     return String.format(
         "%sm %ss %sms", duration.toMinutes(), duration.toSecondsPart(), duration.toMillisPart());
   }
+
+  /**
+   * The recorded values of a single series, in the order they were recorded.
+   */
+  private static final class Series {
+    private final List<Duration> times = new ArrayList<>();
+    private final List<Long> values = new ArrayList<>();
+
+    synchronized void add(Duration elapsed, long value) {
+      if (!values.isEmpty() && values.get(values.size() - 1) == value) {
+        return;
+      }
+      if (values.size() == MAX_SAMPLES) {
+        for (int i = values.size() - 2; i > 0; i -= 2) {
+          times.remove(i);
+          values.remove(i);
+        }
+      }
+      times.add(elapsed);
+      values.add(value);
+    }
+
+    @Override
+    public synchronized String toString() {
+      StringBuilder builder = new StringBuilder();
+      for (int i = 0; i < values.size(); i++) {
+        if (i > 0) {
+          builder.append(", ");
+        }
+        builder.append(formatDuration(times.get(i))).append(" = ").append(values.get(i));
+      }
+      return builder.toString();
+    }
+  }
 }
@@ -0,0 +1,39 @@
+package com.udacity.webcrawler;
+
+import org.junit.jupiter.api.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public final class BloomFilterVisitedUrlSetTest {
+
+  @Test
+  public void neverReportsAVisitedUrlAsNew() {
+    VisitedUrlSet set = new BloomFilterVisitedUrlSet(10_000, 0.01);
+
+    for (int i = 0; i < 10_000; i++) {
+      set.add("http://example.com/" + i);
+    }
+    for (int i = 0; i < 10_000; i++) {
+      assertThat(set.add("http://example.com/" + i)).isFalse();
+    }
+  }
+
+  @Test
+  public void falsePositiveRateIsCloseToConfigured() {
+    VisitedUrlSet set = new BloomFilterVisitedUrlSet(10_000, 0.01);
+    for (int i = 0; i < 10_000; i++) {
+      set.add("http://example.com/visited/" + i);
+    }
+
+    // Each probe adds its URL, so the filter ends up 10% over its expected size and the rate a
+    // little over 1%: about 15 false positives are expected.
+    int falsePositives = 0;
+    for (int i = 0; i < 1_000; i++) {
+      if (!set.add("http://example.com/unvisited/" + i)) {
+        falsePositives++;
+      }
+    }
+
+    assertThat(falsePositives).isLessThan(40);
+  }
+}
@@ -0,0 +1,75 @@
+package com.udacity.webcrawler;
+
+import com.udacity.webcrawler.parser.WordDictionary;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public final class ConcurrentWordCountsTest {
+
+  @Test
+  public void addsUpCountsFromManyThreads() throws Exception {
+    ConcurrentWordCounts counts = new ConcurrentWordCounts();
+    assertThat(counts.isEmpty()).isTrue();
+
+    int threads = 8;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        futures.add(executor.submit(() -> {
+          for (int id = 0; id < 10_000; id++) {
+            counts.add(id, 2);
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    assertThat(counts.isEmpty()).isFalse();
+    assertThat(counts.get(0)).isEqualTo(threads * 2);
+    assertThat(counts.get(1023)).isEqualTo(threads * 2);
+    assertThat(counts.get(1024)).isEqualTo(threads * 2);
+    assertThat(counts.get(9999)).isEqualTo(threads * 2);
+    assertThat(counts.get(10_000)).isEqualTo(0);
+    assertThat(counts.get(1_000_000)).isEqualTo(0);
+  }
+
+  @Test
+  public void visitsCountedWordsInOrderOfId() {
+    ConcurrentWordCounts counts = new ConcurrentWordCounts();
+    counts.add(5_000, 3);
+    counts.add(2, 1);
+    counts.add(70_000, 2);
+
+    List<Integer> ids = new ArrayList<>();
+    counts.forEach(100_000, (id, count) -> ids.add(id));
+    assertThat(ids).containsExactly(2, 5_000, 70_000).inOrder();
+
+    ids.clear();
+    counts.forEach(5_000, (id, count) -> ids.add(id));
+    assertThat(ids).containsExactly(2);
+  }
+
+  @Test
+  public void resolvesWordsWithTheDictionary() {
+    WordDictionary dictionary = new WordDictionary();
+    ConcurrentWordCounts counts = new ConcurrentWordCounts();
+    counts.add(dictionary.id("apple"), 3);
+    counts.add(dictionary.id("banana"), 1L + Integer.MAX_VALUE);
+    dictionary.id("cherry");
+
+    assertThat(counts.toMap(dictionary))
+        .containsExactly("apple", 3, "banana", Integer.MAX_VALUE);
+  }
+}
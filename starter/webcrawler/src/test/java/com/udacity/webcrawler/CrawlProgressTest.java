@@ -0,0 +1,50 @@
+package com.udacity.webcrawler;
+
+import com.udacity.webcrawler.json.CrawlResult;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public final class CrawlProgressTest {
+  private final CrawlProgress progress = new CrawlProgress(Clock.systemUTC(), 2);
+
+  @Test
+  public void snapshotOfTheCrawlRunning() {
+    SpaceSavingWordCounts counts = new SpaceSavingWordCounts(10);
+    counts.add("the", 3);
+    counts.add("fox", 1);
+    counts.add("dog", 2);
+
+    try (CrawlProgress.Tracking tracking =
+             progress.track(Instant.now().plusSeconds(60), counts, () -> 4)) {
+      CrawlResult snapshot = progress.snapshot();
+
+      assertThat(snapshot.getWordCounts()).containsExactly("the", 3, "dog", 2).inOrder();
+      assertThat(snapshot.getUrlsVisited()).isEqualTo(4);
+      assertThat(snapshot.isDeadlineExceeded()).isFalse();
+    }
+
+    assertThat(progress.snapshot().getWordCounts()).isEmpty();
+    assertThat(progress.snapshot().getUrlsVisited()).isEqualTo(0);
+  }
+
+  @Test
+  public void overlappingCrawlsHaveNoSnapshot() {
+    SpaceSavingWordCounts first = new SpaceSavingWordCounts(10);
+    SpaceSavingWordCounts second = new SpaceSavingWordCounts(10);
+    Instant deadline = Instant.now().plusSeconds(60);
+
+    try (CrawlProgress.Tracking firstTracking = progress.track(deadline, first, () -> 1)) {
+      try (CrawlProgress.Tracking secondTracking = progress.track(deadline, second, () -> 2)) {
+        assertThrows(IllegalStateException.class, progress::snapshot);
+      }
+
+      // The first crawl is still running once the second one is done.
+      assertThat(progress.snapshot().getUrlsVisited()).isEqualTo(1);
+    }
+  }
+}
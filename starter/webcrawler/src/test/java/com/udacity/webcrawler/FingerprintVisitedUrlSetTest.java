@@ -0,0 +1,77 @@
+package com.udacity.webcrawler;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public final class FingerprintVisitedUrlSetTest {
+
+  @ParameterizedTest
+  @ValueSource(booleans = {false, true})
+  public void addsEachUrlOnce(boolean offHeap) {
+    VisitedUrlSet set = new FingerprintVisitedUrlSet(1, offHeap);
+
+    assertThat(set.add("http://example.com/")).isTrue();
+    assertThat(set.add("http://example.com/a")).isTrue();
+    assertThat(set.add("http://example.com/")).isFalse();
+    assertThat(set.size()).isEqualTo(2);
+  }
+
+  @ParameterizedTest
+  @ValueSource(booleans = {false, true})
+  public void growsPastItsInitialSize(boolean offHeap) {
+    VisitedUrlSet set = new FingerprintVisitedUrlSet(1, offHeap);
+
+    for (int i = 0; i < 100_000; i++) {
+      assertThat(set.add("http://example.com/" + i)).isTrue();
+    }
+    for (int i = 0; i < 100_000; i++) {
+      assertThat(set.add("http://example.com/" + i)).isFalse();
+    }
+    assertThat(set.size()).isEqualTo(100_000);
+  }
+
+  @ParameterizedTest
+  @ValueSource(booleans = {false, true})
+  public void concurrentAddsReportEachUrlAsNewExactlyOnce(boolean offHeap) throws Exception {
+    VisitedUrlSet set = new FingerprintVisitedUrlSet(1, offHeap);
+    int threads = 8;
+    int urls = 50_000;
+    AtomicInteger added = new AtomicInteger();
+    CountDownLatch start = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        // Every thread adds the same URLs, so the table grows while they race on them.
+        futures.add(executor.submit(() -> {
+          start.await();
+          for (int i = 0; i < urls; i++) {
+            if (set.add("http://example.com/" + i)) {
+              added.incrementAndGet();
+            }
+          }
+          return null;
+        }));
+      }
+      start.countDown();
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    assertThat(added.get()).isEqualTo(urls);
+    assertThat(set.size()).isEqualTo(urls);
+  }
+}
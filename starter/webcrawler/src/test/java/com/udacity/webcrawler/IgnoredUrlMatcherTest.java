@@ -0,0 +1,109 @@
+package com.udacity.webcrawler;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public final class IgnoredUrlMatcherTest {
+
+  private static final List<String> RULES = List.of(
+      "https?://(www\\.)?ads\\.example\\.com/.*",
+      "http://example\\.com/private/.*",
+      "http://example\\.com/exact\\.html",
+      "^http://example\\.com/anchored$",
+      "http://example\\.com/docs/.*\\.pdf",
+      ".*-loop\\.html$",
+      ".*dead-.*",
+      "http://a\\.com/x|http://b\\.com/.*",
+      "http://(\\w+)\\.org/\\1/.*",
+      "http://example\\.com/re+peat/.*");
+
+  private static final List<String> URLS = List.of(
+      "http://ads.example.com/",
+      "https://www.ads.example.com/banner",
+      "http://www.ads.example.com",
+      "http://ads.example.com.evil.com/",
+      "http://example.com/private/",
+      "http://example.com/private",
+      "http://example.com/exact.html",
+      "http://example.com/exact.htm",
+      "http://example.com/exactXhtml",
+      "http://example.com/anchored",
+      "http://example.com/docs/a/b.pdf",
+      "http://example.com/docs/a/b.pdfx",
+      "http://other.com/docs/a/b.pdf",
+      "http://example.com/infinite-loop.html",
+      "file:///data/dead-end.html",
+      "http://a.com/x",
+      "http://a.com/xy",
+      "http://b.com/anything",
+      "http://foo.org/foo/bar",
+      "http://foo.org/bar/bar",
+      "http://example.com/reeeepeat/1",
+      "http://example.com/rpeat/1",
+      "http://example.com/private/line\nbreak",
+      "",
+      "not a url");
+
+  @Test
+  public void agreesWithMatchingEachPattern() {
+    List<Pattern> patterns = RULES.stream().map(Pattern::compile).collect(Collectors.toList());
+    IgnoredUrlMatcher matcher = IgnoredUrlMatcher.compile(patterns);
+
+    for (String url : URLS) {
+      boolean expected = patterns.stream().anyMatch(p -> p.matcher(url).matches());
+      // Twice, so the second answer comes from the per-host cache.
+      assertThat(matcher.matches(url)).isEqualTo(expected);
+      assertThat(matcher.matches(url)).isEqualTo(expected);
+    }
+  }
+
+  @Test
+  public void matchesEachRuleOnItsOwn() {
+    for (String rule : RULES) {
+      Pattern pattern = Pattern.compile(rule);
+      IgnoredUrlMatcher matcher = IgnoredUrlMatcher.compile(List.of(pattern));
+      for (String url : URLS) {
+        assertThat(matcher.matches(url)).isEqualTo(pattern.matcher(url).matches());
+      }
+    }
+  }
+
+  @Test
+  public void patternsWithFlagsAreKept() {
+    Pattern pattern = Pattern.compile("http://example\\.com/.*", Pattern.CASE_INSENSITIVE);
+    IgnoredUrlMatcher matcher = IgnoredUrlMatcher.compile(List.of(pattern));
+
+    assertThat(matcher.matches("HTTP://EXAMPLE.COM/")).isTrue();
+  }
+
+  @Test
+  public void handlesThousandsOfRules() {
+    List<Pattern> patterns =
+        Stream.concat(
+                Stream.iterate(0, i -> i + 1)
+                    .limit(2_000)
+                    .map(i -> "https?://host" + i + "\\.test/.*"),
+                Stream.iterate(0, i -> i + 1)
+                    .limit(2_000)
+                    .map(i -> "http://shared\\.test/section" + i + "/.*"))
+            .map(Pattern::compile)
+            .collect(Collectors.toList());
+    IgnoredUrlMatcher matcher = IgnoredUrlMatcher.compile(patterns);
+
+    assertThat(matcher.matches("https://host1999.test/page")).isTrue();
+    assertThat(matcher.matches("http://shared.test/section1234/page")).isTrue();
+    assertThat(matcher.matches("http://shared.test/section/page")).isFalse();
+    assertThat(matcher.matches("http://host2000.test/page")).isFalse();
+  }
+
+  @Test
+  public void emptyListMatchesNothing() {
+    assertThat(IgnoredUrlMatcher.compile(List.of()).matches("http://example.com/")).isFalse();
+  }
+}
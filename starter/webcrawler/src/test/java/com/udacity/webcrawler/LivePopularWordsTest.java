@@ -0,0 +1,69 @@
+package com.udacity.webcrawler;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public final class LivePopularWordsTest {
+
+  @Test
+  public void ranksLikeTheFinalSort() {
+    LivePopularWords popular = new LivePopularWords(3);
+    popular.offer("fox", 2);
+    popular.offer("the", 4);
+    popular.offer("jumped", 2);
+    popular.offer("brown", 2);
+    popular.offer("dog", 1);
+
+    assertThat(popular.snapshot().entrySet())
+        .containsExactly(Map.entry("the", 4), Map.entry("jumped", 2), Map.entry("brown", 2))
+        .inOrder();
+  }
+
+  @Test
+  public void keepsTheMostPopularWordsAsCountsGrow() {
+    int limit = 10;
+    LivePopularWords popular = new LivePopularWords(limit);
+    Map<String, Integer> counts = new HashMap<>();
+    Random random = new Random(11);
+    for (int i = 0; i < 50_000; i++) {
+      // A skewed vocabulary, so the popular words keep changing places with the ones below them.
+      String word = "word" + (int) Math.abs(random.nextGaussian() * 40);
+      int count = counts.merge(word, 1 + random.nextInt(3), Integer::sum);
+      if (popular.mayRank(count)) {
+        popular.offer(word, count);
+      }
+      if (i % 1_000 == 0) {
+        assertThat(popular.snapshot().entrySet())
+            .containsExactlyElementsIn(WordCounts.sort(counts, limit).entrySet())
+            .inOrder();
+      }
+    }
+    assertThat(popular.snapshot().entrySet())
+        .containsExactlyElementsIn(WordCounts.sort(counts, limit).entrySet())
+        .inOrder();
+  }
+
+  @Test
+  public void ignoresCountsLowerThanTheLastOne() {
+    LivePopularWords popular = new LivePopularWords(2);
+    popular.offer("the", 5);
+    // A thread that read an older count may offer it after a newer one.
+    popular.offer("the", 3);
+
+    assertThat(popular.snapshot()).containsExactly("the", 5);
+  }
+
+  @Test
+  public void keepsNothingWithoutALimit() {
+    LivePopularWords popular = new LivePopularWords(0);
+
+    assertThat(popular.mayRank(Long.MAX_VALUE)).isFalse();
+    popular.offer("the", 1);
+    assertThat(popular.snapshot()).isEmpty();
+  }
+}
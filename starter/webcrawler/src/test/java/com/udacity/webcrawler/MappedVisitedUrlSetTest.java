@@ -0,0 +1,97 @@
+package com.udacity.webcrawler;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public final class MappedVisitedUrlSetTest {
+
+  @TempDir
+  public Path directory;
+
+  @Test
+  public void addsEachUrlOnce() {
+    try (VisitedUrlSet set = new MappedVisitedUrlSet(directory, 1)) {
+      assertThat(set.add("http://example.com/")).isTrue();
+      assertThat(set.add("http://example.com/a")).isTrue();
+      assertThat(set.add("http://example.com/")).isFalse();
+      assertThat(set.size()).isEqualTo(2);
+    }
+  }
+
+  @Test
+  public void growsPastItsInitialSize() {
+    try (VisitedUrlSet set = new MappedVisitedUrlSet(directory, 1)) {
+      for (int i = 0; i < 200_000; i++) {
+        assertThat(set.add("http://example.com/" + i)).isTrue();
+      }
+      // Most of these miss the cache, so they are answered by the mapped files.
+      for (int i = 0; i < 200_000; i++) {
+        assertThat(set.add("http://example.com/" + i)).isFalse();
+      }
+      assertThat(set.size()).isEqualTo(200_000);
+    }
+  }
+
+  @Test
+  public void concurrentAddsReportEachUrlAsNewExactlyOnce() throws Exception {
+    int threads = 8;
+    int urls = 50_000;
+    AtomicInteger added = new AtomicInteger();
+    CountDownLatch start = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try (VisitedUrlSet set = new MappedVisitedUrlSet(directory, 1)) {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        // Every thread adds the same URLs, so the segments grow while they race on them.
+        futures.add(executor.submit(() -> {
+          start.await();
+          for (int i = 0; i < urls; i++) {
+            if (set.add("http://example.com/" + i)) {
+              added.incrementAndGet();
+            }
+          }
+          return null;
+        }));
+      }
+      start.countDown();
+      for (Future<?> future : futures) {
+        future.get();
+      }
+      assertThat(set.size()).isEqualTo(urls);
+    } finally {
+      executor.shutdownNow();
+    }
+
+    assertThat(added.get()).isEqualTo(urls);
+  }
+
+  @Test
+  public void closeDeletesTheFiles() throws Exception {
+    VisitedUrlSet set = new MappedVisitedUrlSet(directory, 1_000);
+    set.add("http://example.com/");
+    try (Stream<Path> files = Files.list(directory)) {
+      assertThat(files.count()).isEqualTo(1);
+    }
+
+    set.close();
+
+    try (Stream<Path> files = Files.list(directory)) {
+      assertThat(files.count()).isEqualTo(0);
+    }
+    // A crawl task still running after the crawl is over must not start visiting pages again.
+    assertThat(set.add("http://example.com/new")).isFalse();
+  }
+}
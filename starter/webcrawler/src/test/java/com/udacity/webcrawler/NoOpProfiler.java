@@ -17,6 +17,24 @@ public final class NoOpProfiler implements Profiler {
     return Objects.requireNonNull(delegate);
   }
 
+  @Override
+  public void count(Class<?> callingClass, String counter, long delta) {
+    Objects.requireNonNull(callingClass);
+    Objects.requireNonNull(counter);
+  }
+
+  @Override
+  public void recordMax(Class<?> callingClass, String counter, long value) {
+    Objects.requireNonNull(callingClass);
+    Objects.requireNonNull(counter);
+  }
+
+  @Override
+  public void recordSample(Class<?> callingClass, String series, long value) {
+    Objects.requireNonNull(callingClass);
+    Objects.requireNonNull(series);
+  }
+
   @Override
   public void writeData(Path path) {
     Objects.requireNonNull(path);
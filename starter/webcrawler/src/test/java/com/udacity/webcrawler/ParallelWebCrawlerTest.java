@@ -1,14 +1,33 @@
 package com.udacity.webcrawler;
 
+import com.google.inject.AbstractModule;
 import com.google.inject.Guice;
+import com.google.inject.Provides;
+import com.google.inject.util.Modules;
+import com.udacity.webcrawler.json.CrawlResult;
 import com.udacity.webcrawler.json.CrawlerConfiguration;
+import com.udacity.webcrawler.parser.PageFetcher;
+import com.udacity.webcrawler.parser.WordDictionary;
 import org.junit.jupiter.api.Test;
 
 import javax.inject.Inject;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 public final class ParallelWebCrawlerTest {
+  private static final String DATA_DIR = System.getProperty("testDataDir");
+
   @Inject
   private ParallelWebCrawler parallelWebCrawler;
 
@@ -19,4 +38,104 @@ public final class ParallelWebCrawlerTest {
         .injectMembers(this);
     assertThat(parallelWebCrawler.getMaxParallelism()).isGreaterThan(1);
   }
+
+  @Test
+  public void testClosedCrawlerRejectsCrawls() {
+    CrawlerConfiguration config = new CrawlerConfiguration.Builder().build();
+    Guice.createInjector(new WebCrawlerModule(config), new NoOpProfilerModule())
+        .injectMembers(this);
+
+    parallelWebCrawler.close();
+
+    assertThrows(IllegalStateException.class, () -> parallelWebCrawler.crawl(List.of()));
+  }
+
+  @Test
+  public void testStartingUrlsAreCrawledConcurrently() {
+    CrawlerConfiguration config =
+        new CrawlerConfiguration.Builder()
+            .setParallelism(2)
+            .setFetchConcurrency(4)
+            .setMaxDepth(1)
+            .addStartPages(Paths.get(DATA_DIR, "seed-1.html").toUri().toString())
+            .addStartPages(Paths.get(DATA_DIR, "seed-2.html").toUri().toString())
+            .addStartPages(Paths.get(DATA_DIR, "seed-3.html").toUri().toString())
+            .addStartPages(Paths.get(DATA_DIR, "seed-4.html").toUri().toString())
+            .build();
+    SlowFetcher fetcher = new SlowFetcher();
+    Guice.createInjector(
+            Modules.override(new WebCrawlerModule(config)).with(new AbstractModule() {
+              @Override
+              protected void configure() {
+                bind(PageFetcher.class).toInstance(fetcher);
+              }
+            }),
+            new NoOpProfilerModule())
+        .injectMembers(this);
+
+    CrawlResult result = parallelWebCrawler.crawl(config.getStartPages());
+
+    assertThat(result.getUrlsVisited()).isEqualTo(4);
+    assertThat(fetcher.maxInFlight.get()).isGreaterThan(1);
+  }
+
+  @Test
+  public void testThreadLocalWordCountsAreReleasedAfterEachCrawl() throws Exception {
+    CrawlerConfiguration config =
+        new CrawlerConfiguration.Builder()
+            .setParallelism(2)
+            .setWordCountAggregation("threadLocal")
+            .setMaxDepth(10)
+            .addStartPages(Paths.get(DATA_DIR, "test-page.html").toUri().toString())
+            .build();
+    List<WeakReference<ThreadLocalWordCounts>> crawlCounts = new CopyOnWriteArrayList<>();
+    Guice.createInjector(
+            Modules.override(new WebCrawlerModule(config)).with(new AbstractModule() {
+              @Provides
+              @WorkerPoolWordCounts
+              CrawlWordCounts provideCounts() {
+                ThreadLocalWordCounts counts = new ThreadLocalWordCounts();
+                crawlCounts.add(new WeakReference<>(counts));
+                return new ExactWordCounts(counts, new WordDictionary(), 0);
+              }
+            }),
+            new NoOpProfilerModule())
+        .injectMembers(this);
+
+    // Every crawl runs on the same pool, whose workers outlive it.
+    for (int i = 0; i < 3; i++) {
+      assertThat(parallelWebCrawler.crawl(config.getStartPages()).getUrlsVisited()).isEqualTo(3);
+    }
+
+    assertThat(crawlCounts).hasSize(3);
+    for (int i = 0; i < 50 && crawlCounts.stream().anyMatch(ref -> ref.get() != null); i++) {
+      System.gc();
+      Thread.sleep(20);
+    }
+    for (WeakReference<ThreadLocalWordCounts> counts : crawlCounts) {
+      assertThat(counts.get()).isNull();
+    }
+  }
+
+  /**
+   * Reads local pages slowly, and records how many were being read at the same time.
+   */
+  private static final class SlowFetcher implements PageFetcher {
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    @Override
+    public CompletableFuture<Page> fetch(URI uri) {
+      maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+      try {
+        Thread.sleep(200);
+        return CompletableFuture.completedFuture(
+            new Page(uri, Files.readAllBytes(Path.of(uri)), null));
+      } catch (IOException | InterruptedException e) {
+        return CompletableFuture.failedFuture(e);
+      } finally {
+        inFlight.decrementAndGet();
+      }
+    }
+  }
 }
@@ -0,0 +1,66 @@
+package com.udacity.webcrawler;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public final class SpaceSavingWordCountsTest {
+
+  @Test
+  public void countsExactlyUntilFull() {
+    SpaceSavingWordCounts counts = new SpaceSavingWordCounts(3);
+    assertThat(counts.isEmpty()).isTrue();
+
+    counts.add("the", 1);
+    counts.add("quick", 1);
+    counts.add("the", 1);
+
+    assertThat(counts.isEmpty()).isFalse();
+    assertThat(counts.toMap()).containsExactly("the", 2, "quick", 1);
+    assertThat(counts.errorBound()).isEqualTo(0);
+  }
+
+  @Test
+  public void newWordsTakeOverTheLowestCount() {
+    SpaceSavingWordCounts counts = new SpaceSavingWordCounts(2);
+    counts.add("the", 5);
+    counts.add("fox", 1);
+    counts.add("dog", 2);
+
+    // "dog" took over the count of "fox", and may have been seen only twice.
+    assertThat(counts.toMap()).containsExactly("the", 5, "dog", 3);
+    assertThat(counts.errorBound()).isEqualTo(3);
+  }
+
+  @Test
+  public void findsHeavyHittersWithinTheErrorBound() {
+    int capacity = 100;
+    SpaceSavingWordCounts counts = new SpaceSavingWordCounts(capacity);
+    Map<String, Integer> trueCounts = new HashMap<>();
+    Random random = new Random(7);
+    long total = 0;
+    for (int i = 0; i < 200_000; i++) {
+      // A few very common words, among many rare ones.
+      String word =
+          random.nextInt(4) == 0 ? "rare" + random.nextInt(50_000) : "common" + random.nextInt(10);
+      counts.add(word, 1);
+      trueCounts.merge(word, 1, Integer::sum);
+      total++;
+    }
+
+    int errorBound = counts.errorBound();
+    assertThat((long) errorBound).isAtMost(total / capacity);
+    Map<String, Integer> popular = counts.popularWords(10);
+    assertThat(popular).hasSize(10);
+    for (Map.Entry<String, Integer> entry : popular.entrySet()) {
+      assertThat(entry.getKey()).startsWith("common");
+      int trueCount = trueCounts.get(entry.getKey());
+      assertThat(entry.getValue()).isAtLeast(trueCount);
+      assertThat(entry.getValue()).isAtMost(trueCount + errorBound);
+    }
+  }
+}
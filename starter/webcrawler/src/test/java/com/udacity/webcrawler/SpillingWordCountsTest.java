@@ -0,0 +1,81 @@
+package com.udacity.webcrawler;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public final class SpillingWordCountsTest {
+
+  @TempDir
+  public Path directory;
+
+  @Test
+  public void mergesSpilledRunsIntoExactCounts() {
+    Map<String, Integer> expected = new HashMap<>();
+    Random random = new Random(3);
+    try (SpillingWordCounts counts = new SpillingWordCounts(directory, 1)) {
+      assertThat(counts.isEmpty()).isTrue();
+      for (int run = 0; run < 4; run++) {
+        for (int i = 0; i < 20_000; i++) {
+          // Words repeat within and across runs, and some are not ASCII.
+          String word = (i % 7 == 0 ? "\u00e9t\u00e9" : "word") + random.nextInt(5_000);
+          counts.add(word, 2);
+          expected.merge(word, 2, Integer::sum);
+        }
+        counts.spill();
+      }
+      counts.add("word1", 1);
+      expected.merge("word1", 1, Integer::sum);
+
+      assertThat(counts.runCount()).isEqualTo(4);
+      assertThat(counts.isEmpty()).isFalse();
+      assertThat(counts.toMap()).isEqualTo(expected);
+      assertThat(counts.popularWords(10).entrySet())
+          .containsExactlyElementsIn(WordCounts.sort(expected, 10).entrySet())
+          .inOrder();
+      assertThat(counts.errorBound()).isEqualTo(0);
+    }
+  }
+
+  @Test
+  public void snapshotsMergeTheRunsWrittenSoFar() {
+    SpillingWordCounts counts = new SpillingWordCounts(directory, 1);
+    counts.add("the", 3);
+    counts.add("fox", 1);
+    counts.spill();
+    counts.add("fox", 4);
+    counts.add("dog", 2);
+
+    assertThat(counts.popularWordsSoFar(2).entrySet())
+        .containsExactly(Map.entry("fox", 5), Map.entry("the", 3))
+        .inOrder();
+
+    counts.close();
+
+    assertThat(counts.popularWordsSoFar(2)).isEmpty();
+  }
+
+  @Test
+  public void deletesItsRunsWhenClosed() throws Exception {
+    SpillingWordCounts counts = new SpillingWordCounts(directory, 1);
+    counts.add("the", 3);
+    counts.spill();
+    try (Stream<Path> files = Files.list(directory)) {
+      assertThat(files.count()).isEqualTo(1);
+    }
+
+    counts.close();
+
+    try (Stream<Path> files = Files.list(directory)) {
+      assertThat(files.count()).isEqualTo(0);
+    }
+  }
+}
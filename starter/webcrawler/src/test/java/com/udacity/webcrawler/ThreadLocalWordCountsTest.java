@@ -0,0 +1,94 @@
+package com.udacity.webcrawler;
+
+import com.udacity.webcrawler.parser.WordCountMap;
+import com.udacity.webcrawler.parser.WordDictionary;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public final class ThreadLocalWordCountsTest {
+
+  @Test
+  public void addsUpCountsFromManyThreads() throws Exception {
+    ThreadLocalWordCounts counts = new ThreadLocalWordCounts();
+    assertThat(counts.isEmpty()).isTrue();
+
+    int threads = 8;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        futures.add(executor.submit(() -> {
+          WordCountMap.IdCountConsumer adder = counts.adderForCurrentThread();
+          for (int id = 0; id < 100_000; id++) {
+            adder.accept(id, 2);
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    assertThat(counts.isEmpty()).isFalse();
+    long[] snapshot = counts.snapshot(200_000);
+    assertThat(snapshot).hasLength(200_000);
+    assertThat(snapshot[0]).isEqualTo(threads * 2);
+    assertThat(snapshot[1024]).isEqualTo(threads * 2);
+    assertThat(snapshot[99_999]).isEqualTo(threads * 2);
+    assertThat(snapshot[100_000]).isEqualTo(0);
+  }
+
+  @Test
+  public void snapshotsCanBeTakenWhileCountsAreAdded() {
+    ThreadLocalWordCounts counts = new ThreadLocalWordCounts();
+    counts.add(3, 1);
+    assertThat(counts.snapshot(5)).asList().containsExactly(0L, 0L, 0L, 1L, 0L).inOrder();
+
+    counts.add(3, 2);
+    counts.add(50_000, 4);
+    long[] snapshot = counts.snapshot(50_001);
+    assertThat(snapshot[3]).isEqualTo(3);
+    assertThat(snapshot[50_000]).isEqualTo(4);
+  }
+
+  @Test
+  public void resolvesWordsWithTheDictionary() {
+    WordDictionary dictionary = new WordDictionary();
+    ThreadLocalWordCounts counts = new ThreadLocalWordCounts();
+    counts.add(dictionary.id("apple"), 3);
+    counts.add(dictionary.id("banana"), 1L + Integer.MAX_VALUE);
+    dictionary.id("cherry");
+
+    assertThat(counts.toMap(dictionary))
+        .containsExactly("apple", 3, "banana", Integer.MAX_VALUE);
+  }
+
+  @Test
+  public void closeReleasesTheCountsOfEveryThread() throws Exception {
+    ThreadLocalWordCounts counts = new ThreadLocalWordCounts();
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      executor.submit(() -> counts.add(1, 5)).get();
+      counts.add(2, 3);
+
+      counts.close();
+
+      assertThat(counts.isEmpty()).isTrue();
+      assertThat(counts.snapshot(3)).asList().containsExactly(0L, 0L, 0L).inOrder();
+      // The threads still have their tables, which drop anything added to them.
+      executor.submit(() -> counts.add(1, 5)).get();
+      assertThat(counts.snapshot(3)).asList().containsExactly(0L, 0L, 0L).inOrder();
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
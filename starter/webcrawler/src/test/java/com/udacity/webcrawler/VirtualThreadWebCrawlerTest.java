@@ -0,0 +1,65 @@
+package com.udacity.webcrawler;
+
+import com.google.inject.Guice;
+import com.google.inject.util.Modules;
+import com.udacity.webcrawler.json.CrawlResult;
+import com.udacity.webcrawler.json.CrawlerConfiguration;
+import com.udacity.webcrawler.parser.PageFetcher;
+import org.junit.jupiter.api.Test;
+
+import javax.inject.Inject;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.IntStream;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public final class VirtualThreadWebCrawlerTest {
+  @Inject
+  private VirtualThreadWebCrawler virtualThreadWebCrawler;
+
+  @Test
+  public void testMaxParallelism() {
+    CrawlerConfiguration config = new CrawlerConfiguration.Builder().build();
+    Guice.createInjector(new WebCrawlerModule(config), new NoOpProfilerModule())
+        .injectMembers(this);
+    assertThat(virtualThreadWebCrawler.getMaxParallelism())
+        .isGreaterThan(Runtime.getRuntime().availableProcessors());
+  }
+
+  @Test
+  public void testPlatformThreadsAreBoundedByFetchConcurrency() throws Exception {
+    CrawlerConfiguration config =
+        new CrawlerConfiguration.Builder()
+            .addStartPages(IntStream.range(0, 200)
+                .mapToObj(i -> "http://hang.test/" + i)
+                .toArray(String[]::new))
+            .setFetchConcurrency(2)
+            .setMaxDepth(1)
+            .setTimeoutSeconds(1)
+            .build();
+    // Every download hangs, so each URL holds on to its thread until the deadline. Virtual
+    // threads are not counted by Thread.activeCount().
+    int threadsBefore = Thread.activeCount();
+    CountDownLatch downloadsStarted = new CountDownLatch(2);
+    PageFetcher hangingFetcher = uri -> {
+      downloadsStarted.countDown();
+      return new CompletableFuture<>();
+    };
+    Guice.createInjector(
+            Modules.override(new WebCrawlerModule(config))
+                .with(binder -> binder.bind(PageFetcher.class).toInstance(hangingFetcher)),
+            new NoOpProfilerModule())
+        .injectMembers(this);
+
+    CompletableFuture<CrawlResult> crawl =
+        CompletableFuture.supplyAsync(() -> virtualThreadWebCrawler.crawl(config.getStartPages()));
+    downloadsStarted.await();
+    // Give the crawl time to submit every starting URL.
+    Thread.sleep(300);
+    int threadsDuringCrawl = Thread.activeCount();
+    crawl.join();
+
+    assertThat(threadsDuringCrawl).isLessThan(threadsBefore + 20);
+  }
+}
@@ -0,0 +1,67 @@
+package com.udacity.webcrawler;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public final class VisitedPagesTest {
+
+  @Test
+  public void fetchesEachPageOnce() {
+    VisitedPages pages = new VisitedPages(new FingerprintVisitedUrlSet(1, false), 3, true);
+
+    VisitedPages.Visit visit = pages.visit("http://a.test/", 2);
+    assertThat(visit.needsFetch()).isTrue();
+    assertThat(visit.fetched(List.of("http://a.test/x"))).isEqualTo(2);
+
+    assertThat(pages.visit("http://a.test/", 2)).isNull();
+    assertThat(pages.visit("http://a.test/", 1)).isNull();
+    assertThat(pages.size()).isEqualTo(1);
+  }
+
+  @Test
+  public void followsLinksAgainFromShallowerPath() {
+    VisitedPages pages = new VisitedPages(new FingerprintVisitedUrlSet(1, false), 3, true);
+    pages.visit("http://a.test/", 1).fetched(List.of("http://a.test/x"));
+
+    VisitedPages.Visit revisit = pages.visit("http://a.test/", 3);
+
+    assertThat(revisit.needsFetch()).isFalse();
+    assertThat(revisit.getLinks()).containsExactly("http://a.test/x");
+    assertThat(revisit.getDepth()).isEqualTo(3);
+    assertThat(pages.visit("http://a.test/", 2)).isNull();
+    assertThat(pages.size()).isEqualTo(1);
+  }
+
+  @Test
+  public void shallowerPathDuringDownloadRaisesItsDepth() {
+    VisitedPages pages = new VisitedPages(new FingerprintVisitedUrlSet(1, false), 3, true);
+    VisitedPages.Visit visit = pages.visit("http://a.test/", 1);
+
+    // Reached again while the first visit is still downloading the page.
+    assertThat(pages.visit("http://a.test/", 2)).isNull();
+
+    assertThat(visit.fetched(List.of("http://a.test/x"))).isEqualTo(2);
+  }
+
+  @Test
+  public void pageReachedWithTheMostDepthIsNotFollowedAgain() {
+    VisitedPages pages = new VisitedPages(new FingerprintVisitedUrlSet(1, false), 3, true);
+    pages.visit("http://a.test/", 3).fetched(List.of("http://a.test/x"));
+    pages.visit("http://b.test/", 1).fetched(List.of("http://b.test/x"));
+
+    assertThat(pages.visit("http://a.test/", 2)).isNull();
+    assertThat(pages.visit("http://b.test/", 3).getLinks()).containsExactly("http://b.test/x");
+    assertThat(pages.visit("http://b.test/", 3)).isNull();
+  }
+
+  @Test
+  public void canBeTurnedOff() {
+    VisitedPages pages = new VisitedPages(new FingerprintVisitedUrlSet(1, false), 3, false);
+    pages.visit("http://a.test/", 1).fetched(List.of("http://a.test/x"));
+
+    assertThat(pages.visit("http://a.test/", 3)).isNull();
+  }
+}
@@ -1,17 +1,35 @@
 package com.udacity.webcrawler;
 
+import com.google.inject.AbstractModule;
 import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Provides;
+import com.google.inject.util.Modules;
 import com.udacity.webcrawler.json.CrawlResult;
 import com.udacity.webcrawler.json.CrawlerConfiguration;
+import com.udacity.webcrawler.parser.PageFetcher;
+import com.udacity.webcrawler.parser.PageParser;
+import com.udacity.webcrawler.parser.WordDictionary;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 
 import javax.inject.Inject;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Paths;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Stream;
 
 import static com.google.common.truth.Truth.assertThat;
@@ -32,6 +50,10 @@ public final class WebCrawlerTest {
     return classes.stream();
   }
 
+  static Stream<Class<?>> provideConcurrentCrawlers() throws Exception {
+    return provideTestParameters().filter(c -> !c.equals(SequentialWebCrawler.class));
+  }
+
   @Test
   public void testOverrideToSequential() {
     CrawlerConfiguration config =
@@ -56,6 +78,18 @@ public final class WebCrawlerTest {
     assertThat(crawler.getClass()).isAssignableTo(ParallelWebCrawler.class);
   }
 
+  @Test
+  public void testOverrideToPipelined() {
+    CrawlerConfiguration config =
+        new CrawlerConfiguration.Builder()
+            .setImplementationOverride(PipelinedWebCrawler.class.getName())
+            .setParallelism(12)
+            .build();
+    Guice.createInjector(new WebCrawlerModule(config), new NoOpProfilerModule())
+        .injectMembers(this);
+    assertThat(crawler.getClass()).isAssignableTo(PipelinedWebCrawler.class);
+  }
+
   @Test
   public void testSequentialParallelism() {
     CrawlerConfiguration config =
@@ -78,6 +112,17 @@ public final class WebCrawlerTest {
     assertThat(crawler.getClass()).isAssignableTo(ParallelWebCrawler.class);
   }
 
+  @Test
+  public void testParallelismAboveCoreCount() {
+    CrawlerConfiguration config =
+        new CrawlerConfiguration.Builder()
+            .setParallelism(Runtime.getRuntime().availableProcessors() + 1)
+            .build();
+    Guice.createInjector(new WebCrawlerModule(config), new NoOpProfilerModule())
+        .injectMembers(this);
+    assertThat(crawler.getClass()).isAssignableTo(VirtualThreadWebCrawler.class);
+  }
+
   @ParameterizedTest
   @MethodSource("provideTestParameters")
   public void zeroMaxDepth(Class<?> crawlerClass) {
@@ -154,6 +199,200 @@ public final class WebCrawlerTest {
         .inOrder();
   }
 
+  @Test
+  public void testEachCrawlHasItsOwnWordDictionary() {
+    CrawlerConfiguration config = new CrawlerConfiguration.Builder().build();
+    Injector injector =
+        Guice.createInjector(new WebCrawlerModule(config), new NoOpProfilerModule());
+
+    CrawlWordCounts first = injector.getInstance(CrawlWordCounts.class);
+    CrawlWordCounts second = injector.getInstance(CrawlWordCounts.class);
+
+    // A crawl's pages share its dictionary, which no later crawl sees.
+    assertThat(first.pageDictionary()).isSameInstanceAs(first.pageDictionary());
+    assertThat(first.pageDictionary()).isNotSameInstanceAs(second.pageDictionary());
+  }
+
+  @ParameterizedTest
+  @MethodSource("provideTestParameters")
+  public void testReturnsAtDeadlineWhenDownloadsHang(Class<?> crawlerClass) {
+    CrawlerConfiguration config =
+        new CrawlerConfiguration.Builder()
+            .setImplementationOverride(crawlerClass.getName())
+            .setMaxDepth(10)
+            .setPopularWordCount(3)
+            .setTimeoutSeconds(1)
+            .addStartPages("http://hang.test/a", "http://hang.test/b")
+            .build();
+    // Every download hangs until it is cancelled.
+    PageFetcher hangingFetcher = uri -> new CompletableFuture<>();
+    Guice.createInjector(
+            Modules.override(new WebCrawlerModule(config))
+                .with(binder -> binder.bind(PageFetcher.class).toInstance(hangingFetcher)),
+            new NoOpProfilerModule())
+        .injectMembers(this);
+    assertThat(crawler.getClass()).isAssignableTo(crawlerClass);
+
+    Instant start = Instant.now();
+    CrawlResult result = crawler.crawl(config.getStartPages());
+    Duration elapsed = Duration.between(start, Instant.now());
+
+    // The timeout, the crawlers' 250 ms of slack for pages in flight, and some scheduling leeway.
+    assertThat(elapsed).isLessThan(config.getTimeout().plusMillis(250).plusMillis(750));
+    assertThat(result.isDeadlineExceeded()).isTrue();
+    assertThat(result.getWordCounts()).isEmpty();
+  }
+
+  @ParameterizedTest
+  @MethodSource("provideConcurrentCrawlers")
+  public void testNothingIsWrittenOnceTheResultIsBuilt(Class<?> crawlerClass) {
+    CrawlerConfiguration config =
+        new CrawlerConfiguration.Builder()
+            .setImplementationOverride(crawlerClass.getName())
+            .setMaxDepth(10)
+            .setPopularWordCount(3)
+            .setTimeoutSeconds(1)
+            .addStartPages("http://slow.test/a", "http://slow.test/b")
+            .build();
+    // By this clock the deadline never passes, so the crawlers' own deadline checks do not stop
+    // a download that completes after the crawl is cut short.
+    Clock frozen = Clock.fixed(Instant.now(), ZoneOffset.UTC);
+    List<SlowDownload> downloads = new CopyOnWriteArrayList<>();
+    List<LateWriteCounts> counts = new CopyOnWriteArrayList<>();
+    Guice.createInjector(
+            Modules.override(new WebCrawlerModule(config)).with(new AbstractModule() {
+              @Override
+              protected void configure() {
+                bind(Clock.class).toInstance(frozen);
+                bind(PageFetcher.class).toInstance(uri -> {
+                  SlowDownload download = new SlowDownload(uri);
+                  downloads.add(download);
+                  return download;
+                });
+              }
+
+              @Provides
+              CrawlWordCounts provideCounts() {
+                LateWriteCounts crawlCounts = new LateWriteCounts(downloads);
+                counts.add(crawlCounts);
+                return crawlCounts;
+              }
+
+              @Provides
+              @WorkerPoolWordCounts
+              CrawlWordCounts provideWorkerPoolCounts() {
+                return provideCounts();
+              }
+            }),
+            new NoOpProfilerModule())
+        .injectMembers(this);
+    assertThat(crawler.getClass()).isAssignableTo(crawlerClass);
+
+    CrawlResult result = crawler.crawl(config.getStartPages());
+
+    assertThat(result.isDeadlineExceeded()).isTrue();
+    assertThat(downloads).isNotEmpty();
+    assertThat(counts).hasSize(1);
+    assertThat(counts.get(0).lateWrites.get()).isEqualTo(0);
+  }
+
+  @ParameterizedTest
+  @MethodSource("provideTestParameters")
+  public void testSnapshotWhenIdle(Class<?> crawlerClass) {
+    CrawlerConfiguration config =
+        new CrawlerConfiguration.Builder()
+            .setImplementationOverride(crawlerClass.getName())
+            .setMaxDepth(10)
+            .setPopularWordCount(3)
+            .addStartPages(Paths.get(DATA_DIR, "test-page.html").toUri().toString())
+            .build();
+    Guice.createInjector(new WebCrawlerModule(config), new NoOpProfilerModule())
+        .injectMembers(this);
+
+    assertThat(crawler.snapshot().getUrlsVisited()).isEqualTo(0);
+    assertThat(crawler.snapshot().getWordCounts()).isEmpty();
+
+    crawler.crawl(config.getStartPages());
+
+    // The crawl is no longer tracked once its result is built.
+    assertThat(crawler.snapshot().getUrlsVisited()).isEqualTo(0);
+    assertThat(crawler.snapshot().getWordCounts()).isEmpty();
+  }
+
+  @ParameterizedTest
+  @MethodSource("provideTestParameters")
+  public void testApproximateWordCounts(Class<?> crawlerClass) {
+    CrawlerConfiguration config =
+        new CrawlerConfiguration.Builder()
+            .setImplementationOverride(crawlerClass.getName())
+            .setApproximateWordCountCapacity(1_000)
+            .setMaxDepth(10)
+            .setPopularWordCount(3)
+            .addStartPages(Paths.get(DATA_DIR, "test-page.html").toUri().toString())
+            .build();
+    Guice.createInjector(new WebCrawlerModule(config), new NoOpProfilerModule())
+        .injectMembers(this);
+
+    CrawlResult result = crawler.crawl(config.getStartPages());
+
+    // The test pages have far fewer words than the capacity, so the counts are exact.
+    assertThat(result.getWordCountErrorBound()).isEqualTo(0);
+    assertThat(result.getWordCounts().entrySet())
+        .containsExactly(
+            Map.entry("the", 4),
+            Map.entry("jumped", 2),
+            Map.entry("brown", 2))
+        .inOrder();
+  }
+
+  @ParameterizedTest
+  @MethodSource("provideTestParameters")
+  public void testSpilledWordCounts(Class<?> crawlerClass) {
+    CrawlerConfiguration config =
+        new CrawlerConfiguration.Builder()
+            .setImplementationOverride(crawlerClass.getName())
+            .setWordCountSpillHeapUsage(0.01)
+            .setMaxDepth(10)
+            .setPopularWordCount(3)
+            .addStartPages(Paths.get(DATA_DIR, "test-page.html").toUri().toString())
+            .build();
+    Guice.createInjector(new WebCrawlerModule(config), new NoOpProfilerModule())
+        .injectMembers(this);
+
+    CrawlResult result = crawler.crawl(config.getStartPages());
+
+    assertThat(result.getWordCounts().entrySet())
+        .containsExactly(
+            Map.entry("the", 4),
+            Map.entry("jumped", 2),
+            Map.entry("brown", 2))
+        .inOrder();
+  }
+
+  @Test
+  public void testThreadLocalWordCountAggregation() {
+    CrawlerConfiguration config =
+        new CrawlerConfiguration.Builder()
+            .setImplementationOverride(ParallelWebCrawler.class.getName())
+            .setWordCountAggregation("threadLocal")
+            .setMaxDepth(10)
+            .setPopularWordCount(3)
+            .addStartPages(Paths.get(DATA_DIR, "test-page.html").toUri().toString())
+            .build();
+    Guice.createInjector(new WebCrawlerModule(config), new NoOpProfilerModule())
+        .injectMembers(this);
+
+    CrawlResult result = crawler.crawl(config.getStartPages());
+
+    assertThat(result.getUrlsVisited()).isEqualTo(3);
+    assertThat(result.getWordCounts().entrySet())
+        .containsExactly(
+            Map.entry("the", 4),
+            Map.entry("jumped", 2),
+            Map.entry("brown", 2))
+        .inOrder();
+  }
+
   @ParameterizedTest
   @MethodSource("provideTestParameters")
   public void respectsIgnoredUrls(Class<?> crawlerClass) {
@@ -323,4 +562,202 @@ public final class WebCrawlerTest {
             Map.entry("brown", 4))
         .inOrder();
   }
-}
\ No newline at end of file
+
+  @ParameterizedTest
+  @MethodSource("provideTestParameters")
+  public void manyStartingUrlsWithSharedLinks(Class<?> crawlerClass) {
+    CrawlerConfiguration config =
+        new CrawlerConfiguration.Builder()
+            .setImplementationOverride(crawlerClass.getName())
+            .setMaxDepth(10)
+            .setPopularWordCount(4)
+            .addStartPages(Paths.get(DATA_DIR, "seed-1.html").toUri().toString())
+            .addStartPages(Paths.get(DATA_DIR, "seed-2.html").toUri().toString())
+            .addStartPages(Paths.get(DATA_DIR, "seed-3.html").toUri().toString())
+            .addStartPages(Paths.get(DATA_DIR, "seed-4.html").toUri().toString())
+            .build();
+    Guice.createInjector(new WebCrawlerModule(config), new NoOpProfilerModule())
+        .injectMembers(this);
+    assertThat(crawler.getClass()).isAssignableTo(crawlerClass);
+
+    CrawlResult result = crawler.crawl(config.getStartPages());
+
+    assertThat(result.getUrlsVisited()).isEqualTo(5);
+    assertThat(result.getWordCounts().entrySet())
+        .containsExactly(
+            Map.entry("cherry", 5),
+            Map.entry("apple", 4),
+            Map.entry("link", 4),
+            Map.entry("banana", 3))
+        .inOrder();
+  }
+
+  @ParameterizedTest
+  @MethodSource("provideTestParameters")
+  public void pageFirstReachedDeepIsFollowedFromShallowerPath(Class<?> crawlerClass) {
+    // depth-b.html is reached from depth-long.html through depth-a.html, and directly from
+    // depth-short.html. Whichever path reaches it first, its link to depth-c.html must be followed
+    // from the shorter one. A sequential crawl always takes the longer path first.
+    CrawlerConfiguration config =
+        new CrawlerConfiguration.Builder()
+            .setImplementationOverride(crawlerClass.getName())
+            .setMaxDepth(3)
+            .setPopularWordCount(4)
+            .addStartPages(Paths.get(DATA_DIR, "depth-long.html").toUri().toString())
+            .addStartPages(Paths.get(DATA_DIR, "depth-short.html").toUri().toString())
+            .build();
+    Guice.createInjector(new WebCrawlerModule(config), new NoOpProfilerModule())
+        .injectMembers(this);
+    assertThat(crawler.getClass()).isAssignableTo(crawlerClass);
+
+    CrawlResult result = crawler.crawl(config.getStartPages());
+
+    assertThat(result.getUrlsVisited()).isEqualTo(5);
+    assertThat(result.getWordCounts().entrySet())
+        .containsExactly(
+            Map.entry("bravo", 3),
+            Map.entry("charlie", 2),
+            Map.entry("alpha", 2),
+            Map.entry("short", 1))
+        .inOrder();
+  }
+
+  @ParameterizedTest
+  @MethodSource("provideTestParameters")
+  public void differentSpellingsOfAUrlAreVisitedOnce(Class<?> crawlerClass) {
+    CrawlerConfiguration config =
+        new CrawlerConfiguration.Builder()
+            .setImplementationOverride(crawlerClass.getName())
+            .setMaxDepth(10)
+            .setPopularWordCount(3)
+            .addStartPages(Paths.get(DATA_DIR, "aliases.html").toUri().toString())
+            .build();
+    Guice.createInjector(new WebCrawlerModule(config), new NoOpProfilerModule())
+        .injectMembers(this);
+    assertThat(crawler.getClass()).isAssignableTo(crawlerClass);
+
+    CrawlResult result = crawler.crawl(config.getStartPages());
+
+    assertThat(result.getUrlsVisited()).isEqualTo(2);
+    assertThat(result.getWordCounts().entrySet())
+        .containsExactly(
+            Map.entry("cherry", 4),
+            Map.entry("apple", 3),
+            Map.entry("link", 3))
+        .inOrder();
+  }
+
+  @ParameterizedTest
+  @MethodSource("provideTestParameters")
+  public void repeatedAndConcurrentCrawlsAreIndependent(Class<?> crawlerClass) {
+    CrawlerConfiguration config =
+        new CrawlerConfiguration.Builder()
+            .setImplementationOverride(crawlerClass.getName())
+            .setMaxDepth(10)
+            .setPopularWordCount(3)
+            .addStartPages(Paths.get(DATA_DIR, "test-page.html").toUri().toString())
+            .build();
+    Guice.createInjector(new WebCrawlerModule(config), new NoOpProfilerModule())
+        .injectMembers(this);
+    assertThat(crawler.getClass()).isAssignableTo(crawlerClass);
+
+    try (WebCrawler crawler = this.crawler) {
+      CrawlResult first = crawler.crawl(config.getStartPages());
+      CrawlResult second = crawler.crawl(config.getStartPages());
+      CompletableFuture<CrawlResult> concurrent =
+          CompletableFuture.supplyAsync(() -> crawler.crawl(config.getStartPages()));
+      CrawlResult third = crawler.crawl(config.getStartPages());
+
+      for (CrawlResult result : List.of(first, second, third, concurrent.join())) {
+        assertThat(result.getUrlsVisited()).isEqualTo(3);
+        assertThat(result.getWordCounts().entrySet())
+            .containsExactly(
+                Map.entry("the", 4),
+                Map.entry("jumped", 2),
+                Map.entry("brown", 2))
+            .inOrder();
+      }
+    }
+  }
+
+  /**
+   * A download that takes no notice of timeouts, so it is still in flight when the crawl is cut
+   * short, until it is completed or its thread is interrupted.
+   */
+  private static final class SlowDownload extends CompletableFuture<PageFetcher.Page> {
+    private final URI uri;
+
+    SlowDownload(URI uri) {
+      this.uri = uri;
+    }
+
+    @Override
+    public PageFetcher.Page get(long timeout, TimeUnit unit)
+        throws InterruptedException, ExecutionException {
+      return get();
+    }
+
+    void finish() {
+      byte[] body = "<p>late words</p><a href=\"http://slow.test/c\">link</a>"
+          .getBytes(StandardCharsets.UTF_8);
+      complete(new PageFetcher.Page(uri, body, StandardCharsets.UTF_8.name()));
+    }
+  }
+
+  /**
+   * Word counts that complete the downloads still in flight while the crawl result is being built,
+   * and record every page added after that.
+   */
+  private static final class LateWriteCounts implements CrawlWordCounts {
+    private final CrawlWordCounts counts =
+        new ExactWordCounts(new ConcurrentWordCounts(), new WordDictionary(), 0);
+    private final List<SlowDownload> downloads;
+    private final AtomicInteger lateWrites = new AtomicInteger();
+    private volatile boolean resultBuilt;
+
+    LateWriteCounts(List<SlowDownload> downloads) {
+      this.downloads = downloads;
+    }
+
+    @Override
+    public WordDictionary pageDictionary() {
+      return counts.pageDictionary();
+    }
+
+    @Override
+    public void add(PageParser.Result page) {
+      if (resultBuilt) {
+        lateWrites.incrementAndGet();
+      }
+      counts.add(page);
+    }
+
+    @Override
+    public boolean isEmpty() {
+      return counts.isEmpty();
+    }
+
+    @Override
+    public Map<String, Integer> toMap() {
+      return counts.toMap();
+    }
+
+    @Override
+    public Map<String, Integer> popularWords(int popularWordCount) {
+      resultBuilt = true;
+      downloads.forEach(SlowDownload::finish);
+      try {
+        // Gives the crawler's threads time to merge the pages they just downloaded.
+        Thread.sleep(250);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return counts.popularWords(popularWordCount);
+    }
+
+    @Override
+    public int errorBound() {
+      return counts.errorBound();
+    }
+  }
+}
@@ -1,9 +1,14 @@
 package com.udacity.webcrawler;
 
+import com.udacity.webcrawler.parser.WordDictionary;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Random;
 
 import static com.google.common.truth.Truth.assertWithMessage;
 
@@ -82,4 +87,60 @@ public final class WordCountsTest {
             Map.entry("quick", 1),
             Map.entry("fox", 1))
         .inOrder();  }
+
+  @Test
+  public void testSortByWordId() {
+    WordDictionary dictionary = new WordDictionary();
+    ConcurrentWordCounts counts = new ConcurrentWordCounts();
+    // A word from an earlier crawl that this one has not counted.
+    dictionary.id("earlier");
+    counts.add(dictionary.id("the"), 2);
+    for (String word : new String[] {"quick", "brown", "fox", "jumped", "over", "lazy", "dog"}) {
+      counts.add(dictionary.id(word), 1);
+    }
+
+    Map<String, Integer> result = WordCounts.sort(counts, dictionary, 4);
+
+    assertWithMessage("Returned the wrong words, or they are in the wrong order")
+        .that(result.entrySet())
+        .containsExactly(
+            Map.entry("the", 2),
+            Map.entry("jumped", 1),
+            Map.entry("brown", 1),
+            Map.entry("quick", 1))
+        .inOrder();
+  }
+
+  @Test
+  public void testTopWordsOfLargeVocabulary() {
+    WordDictionary dictionary = new WordDictionary();
+    ConcurrentWordCounts counts = new ConcurrentWordCounts();
+    Map<String, Integer> unsortedCounts = new HashMap<>();
+    Random random = new Random(42);
+    // Enough words to pick the popular ones in parallel, with many ties on count and length.
+    for (int i = 0; i < 100_000; i++) {
+      String word = Integer.toString(random.nextInt(1_000_000), 36);
+      int count = 1 + random.nextInt(50);
+      unsortedCounts.merge(word, count, Integer::sum);
+      counts.add(dictionary.id(word), count);
+    }
+    List<Map.Entry<String, Integer>> expected = new ArrayList<>(unsortedCounts.entrySet());
+    expected.sort(
+        Comparator.<Map.Entry<String, Integer>>comparingInt(entry -> -entry.getValue())
+            .thenComparingInt(entry -> -entry.getKey().length())
+            .thenComparing(Map.Entry::getKey));
+
+    for (int popularWordCount : new int[] {1, 10, 1_000, 50_000, 200_000}) {
+      List<Map.Entry<String, Integer>> top =
+          expected.subList(0, Math.min(popularWordCount, expected.size()));
+      assertWithMessage("Returned the wrong top %s words", popularWordCount)
+          .that(WordCounts.sort(unsortedCounts, popularWordCount).entrySet())
+          .containsExactlyElementsIn(top)
+          .inOrder();
+      assertWithMessage("Returned the wrong top %s words by word ID", popularWordCount)
+          .that(WordCounts.sort(counts, dictionary, popularWordCount).entrySet())
+          .containsExactlyElementsIn(top)
+          .inOrder();
+    }
+  }
 }
@@ -18,13 +18,30 @@ public final class ConfigurationLoaderTest {
         "\"startPages\": [\"http://example.com\", \"http://example.com/foo\"], " +
         "\"ignoredUrls\": [\"http://example\\\\.com/.*\"], " +
         "\"ignoredWords\": [\"^.{1,3}$\"], " +
+        "\"trackingUrlParameters\": [\"utm_*\", \"fbclid\"], " +
         "\"parallelism\": 4, " +
+        "\"fetchConcurrency\": 64, " +
+        "\"adaptiveFetchConcurrency\": true, " +
+        "\"visitedUrlSet\": \"bloom\", " +
+        "\"visitedUrlSetOffHeap\": true, " +
+        "\"visitedUrlSetDirectory\": \"/var/tmp/crawler\", " +
+        "\"expectedUrlCount\": 5000000, " +
+        "\"visitedUrlFalsePositiveRate\": 0.01, " +
+        "\"depthCorrectRevisits\": false, " +
+        "\"wordCountAggregation\": \"threadLocal\", " +
+        "\"approximateWordCountCapacity\": 10000, " +
+        "\"wordCountSpillHeapUsage\": 0.75, " +
+        "\"wordCountSpillDirectory\": \"/var/tmp/counts\", " +
+        "\"maxConnectionsPerHost\": 2, " +
+        "\"maxRequestsPerSecondPerHost\": 0.5, " +
+        "\"hostPolitenessOverrides\": {\"Example.com\": {\"maxConnections\": 8}}, " +
         "\"implementationOverride\": \"fully.qualified.OverrideClass\", " +
         "\"maxDepth\": 100, " +
         "\"timeoutSeconds\": 10, " +
         "\"popularWordCount\": 5, " +
         "\"profileOutputPath\": \"profileOutput.txt\", " +
-        "\"resultPath\": \"resultPath.json\" " +
+        "\"resultPath\": \"resultPath.json\", " +
+        "\"resultSnapshotIntervalSeconds\": 30 " +
         " }";
 
     Reader reader = new StringReader(json);
@@ -41,13 +58,33 @@ public final class ConfigurationLoaderTest {
     assertThat(config.getIgnoredUrls().get(0).pattern()).isEqualTo("http://example\\.com/.*");
     assertThat(config.getIgnoredWords()).hasSize(1);
     assertThat(config.getIgnoredWords().get(0).pattern()).isEqualTo("^.{1,3}$");
+    assertThat(config.getTrackingUrlParameters()).containsExactly("utm_*", "fbclid").inOrder();
     assertThat(config.getParallelism()).isEqualTo(4);
+    assertThat(config.getFetchConcurrency()).isEqualTo(64);
+    assertThat(config.isAdaptiveFetchConcurrency()).isTrue();
+    assertThat(config.getVisitedUrlSet()).isEqualTo("bloom");
+    assertThat(config.isVisitedUrlSetOffHeap()).isTrue();
+    assertThat(config.getVisitedUrlSetDirectory()).isEqualTo("/var/tmp/crawler");
+    assertThat(config.getExpectedUrlCount()).isEqualTo(5_000_000);
+    assertThat(config.getVisitedUrlFalsePositiveRate()).isEqualTo(0.01);
+    assertThat(config.isDepthCorrectRevisits()).isFalse();
+    assertThat(config.getWordCountAggregation()).isEqualTo("threadLocal");
+    assertThat(config.getApproximateWordCountCapacity()).isEqualTo(10_000);
+    assertThat(config.getWordCountSpillHeapUsage()).isEqualTo(0.75);
+    assertThat(config.getWordCountSpillDirectory()).isEqualTo("/var/tmp/counts");
+    assertThat(config.getMaxConnectionsPerHost()).isEqualTo(2);
+    assertThat(config.getMaxRequestsPerSecondPerHost()).isEqualTo(0.5);
+    assertThat(config.getHostPolitenessOverrides().keySet()).containsExactly("example.com");
+    HostPoliteness override = config.getHostPolitenessOverrides().get("example.com");
+    assertThat(override.getMaxConnections()).isEqualTo(8);
+    assertThat(override.getMaxRequestsPerSecond()).isEqualTo(-1.0);
     assertThat(config.getImplementationOverride()).isEqualTo("fully.qualified.OverrideClass");
     assertThat(config.getMaxDepth()).isEqualTo(100);
     assertThat(config.getTimeout()).isEqualTo(Duration.ofSeconds(10));
     assertThat(config.getPopularWordCount()).isEqualTo(5);
     assertThat(config.getProfileOutputPath()).isEqualTo("profileOutput.txt");
     assertThat(config.getResultPath()).isEqualTo("resultPath.json");
+    assertThat(config.getResultSnapshotInterval()).isEqualTo(Duration.ofSeconds(30));
   }
 
   @Test
@@ -70,12 +107,41 @@ public final class ConfigurationLoaderTest {
     assertThat(config.getStartPages()).isEmpty();
     assertThat(config.getIgnoredUrls()).isEmpty();
     assertThat(config.getIgnoredWords()).isEmpty();
+    assertThat(config.getTrackingUrlParameters()).isEmpty();
     assertThat(config.getParallelism()).isEqualTo(-1);
+    assertThat(config.getFetchConcurrency()).isEqualTo(-1);
+    assertThat(config.isAdaptiveFetchConcurrency()).isFalse();
+    assertThat(config.getVisitedUrlSet()).isEqualTo("fingerprint");
+    assertThat(config.isVisitedUrlSetOffHeap()).isFalse();
+    assertThat(config.isDepthCorrectRevisits()).isTrue();
+    assertThat(config.getWordCountAggregation()).isEqualTo("shared");
+    assertThat(config.getApproximateWordCountCapacity()).isEqualTo(0);
+    assertThat(config.getWordCountSpillHeapUsage()).isEqualTo(0.0);
+    assertThat(config.getWordCountSpillDirectory()).isEmpty();
+    assertThat(config.getVisitedUrlSetDirectory()).isEmpty();
+    assertThat(config.getMaxConnectionsPerHost()).isEqualTo(-1);
+    assertThat(config.getMaxRequestsPerSecondPerHost()).isEqualTo(-1.0);
+    assertThat(config.getHostPolitenessOverrides()).isEmpty();
     assertThat(config.getImplementationOverride()).isEmpty();
     assertThat(config.getMaxDepth()).isEqualTo(100);
     assertThat(config.getTimeout()).isEqualTo(Duration.ofSeconds(10));
     assertThat(config.getPopularWordCount()).isEqualTo(5);
     assertThat(config.getProfileOutputPath()).isEmpty();
     assertThat(config.getResultPath()).isEmpty();
+    assertThat(config.getResultSnapshotInterval()).isEqualTo(Duration.ZERO);
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testDepthCorrectRevisitsDefaultsOffForCompactVisitedUrlSets() {
+    CrawlerConfiguration bloom = ConfigurationLoader.read(
+        new StringReader("{ \"visitedUrlSet\": \"bloom\" }"));
+    CrawlerConfiguration offHeap = ConfigurationLoader.read(
+        new StringReader("{ \"visitedUrlSetOffHeap\": true }"));
+    CrawlerConfiguration explicit = ConfigurationLoader.read(
+        new StringReader("{ \"visitedUrlSet\": \"disk\", \"depthCorrectRevisits\": true }"));
+
+    assertThat(bloom.isDepthCorrectRevisits()).isFalse();
+    assertThat(offHeap.isDepthCorrectRevisits()).isFalse();
+    assertThat(explicit.isDepthCorrectRevisits()).isTrue();
+  }
+}
@@ -2,15 +2,23 @@ package com.udacity.webcrawler.json;
 
 import com.udacity.webcrawler.testing.CloseableStringWriter;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 import static com.google.common.truth.Truth.assertThat;
 import static com.google.common.truth.Truth.assertWithMessage;
 
 public final class CrawlResultWriterTest {
+
+  @TempDir
+  public Path directory;
+
   @Test
   public void testBasicJsonFormatting() throws Exception {
     // We are using a LinkedHashMap because the iteration order of the map matters.
@@ -22,6 +30,7 @@ public final class CrawlResultWriterTest {
         new CrawlResult.Builder()
             .setUrlsVisited(17)
             .setWordCounts(counts)
+            .setWordCountErrorBound(3)
             .build();
 
     CrawlResultWriter resultWriter = new CrawlResultWriter(result);
@@ -45,5 +54,21 @@ public final class CrawlResultWriterTest {
             ".*}.*", Pattern.DOTALL);
 
     assertThat(written).matches(expected);
+    assertThat(written).containsMatch("\"wordCountErrorBound\"\\s*:\\s*3");
+  }
+
+  @Test
+  public void replaceOverwritesTheExistingFile() throws Exception {
+    Path path = directory.resolve("result.json");
+    Files.writeString(path, "{\"urlsVisited\":1}");
+
+    new CrawlResultWriter(new CrawlResult.Builder().setUrlsVisited(5).build()).replace(path);
+
+    String written = Files.readString(path);
+    assertThat(written).containsMatch("\"urlsVisited\"\\s*:\\s*5");
+    assertThat(written).doesNotContain("\"urlsVisited\":1");
+    try (Stream<Path> files = Files.list(directory)) {
+      assertThat(files.count()).isEqualTo(1);
+    }
   }
 }
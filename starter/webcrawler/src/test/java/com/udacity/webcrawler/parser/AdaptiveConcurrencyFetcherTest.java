@@ -0,0 +1,121 @@
+package com.udacity.webcrawler.parser;
+
+import com.udacity.webcrawler.NoOpProfiler;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public final class AdaptiveConcurrencyFetcherTest {
+
+  @Test
+  public void startsAtInitialLimit() {
+    ManualPageFetcher delegate = new ManualPageFetcher();
+    AdaptiveConcurrencyFetcher fetcher =
+        new AdaptiveConcurrencyFetcher(delegate, 2, 8, new NoOpProfiler());
+
+    for (int i = 0; i < 5; i++) {
+      fetcher.fetch(URI.create("http://example.test/" + i));
+    }
+
+    assertThat(fetcher.getLimit()).isEqualTo(2);
+    assertThat(delegate.startedCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void growsWhileSaturatedAndStable() {
+    ManualPageFetcher delegate = new ManualPageFetcher();
+    AdaptiveConcurrencyFetcher fetcher =
+        new AdaptiveConcurrencyFetcher(delegate, 2, 4, new NoOpProfiler());
+
+    for (int i = 0; i < 100; i++) {
+      fetcher.fetch(URI.create("http://example.test/" + i));
+    }
+    for (int i = 0; i < 50; i++) {
+      delegate.finish(i);
+    }
+
+    assertThat(fetcher.getLimit()).isEqualTo(4);
+  }
+
+  @Test
+  public void doesNotGrowWhenLimitIsUnused() {
+    ManualPageFetcher delegate = new ManualPageFetcher();
+    AdaptiveConcurrencyFetcher fetcher =
+        new AdaptiveConcurrencyFetcher(delegate, 2, 8, new NoOpProfiler());
+
+    for (int i = 0; i < 20; i++) {
+      fetcher.fetch(URI.create("http://example.test/" + i));
+      delegate.finish(i);
+    }
+
+    assertThat(fetcher.getLimit()).isEqualTo(2);
+  }
+
+  @Test
+  public void backsOffOnOverload() {
+    ManualPageFetcher delegate = new ManualPageFetcher();
+    AdaptiveConcurrencyFetcher fetcher =
+        new AdaptiveConcurrencyFetcher(delegate, 8, 8, new NoOpProfiler());
+    for (int i = 0; i < 8; i++) {
+      fetcher.fetch(URI.create("http://example.test/" + i));
+    }
+
+    delegate.fail(0, new FetchException("Too Many Requests", 429));
+    assertThat(fetcher.getLimit()).isEqualTo(4);
+
+    // Failures that say nothing about load leave the limit alone.
+    delegate.fail(1, new FetchException("Not Found", 404));
+    assertThat(fetcher.getLimit()).isEqualTo(4);
+  }
+
+  @Test
+  public void backsOffOnTimeout() {
+    ManualPageFetcher delegate = new ManualPageFetcher();
+    AdaptiveConcurrencyFetcher fetcher =
+        new AdaptiveConcurrencyFetcher(delegate, 8, 8, new NoOpProfiler());
+    fetcher.fetch(URI.create("http://example.test/"));
+
+    delegate.fail(0, new HttpTimeoutException("request timed out"));
+
+    assertThat(fetcher.getLimit()).isEqualTo(4);
+  }
+
+  @Test
+  public void backsOffWhenDownloadsAreCancelledAfterTheRequestTimeout() throws Exception {
+    ManualPageFetcher delegate = new ManualPageFetcher();
+    AdaptiveConcurrencyFetcher fetcher =
+        new AdaptiveConcurrencyFetcher(delegate, 8, 8, new NoOpProfiler(), Duration.ofMillis(50));
+    CompletableFuture<PageFetcher.Page> download =
+        fetcher.fetch(URI.create("http://example.test/"));
+
+    // The caller's own deadline for the download expires first, and it gives up.
+    Thread.sleep(100);
+    download.cancel(true);
+
+    assertThat(fetcher.getLimit()).isEqualTo(4);
+  }
+
+  @Test
+  public void ignoresDownloadsCancelledBeforeTheRequestTimeout() {
+    ManualPageFetcher delegate = new ManualPageFetcher();
+    AdaptiveConcurrencyFetcher fetcher =
+        new AdaptiveConcurrencyFetcher(delegate, 8, 8, new NoOpProfiler(), Duration.ofMinutes(1));
+    List<CompletableFuture<PageFetcher.Page>> downloads = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      downloads.add(fetcher.fetch(URI.create("http://example.test/" + i)));
+    }
+
+    // The crawl's deadline has passed, which says nothing about the network.
+    downloads.forEach(download -> download.cancel(true));
+
+    assertThat(fetcher.getLimit()).isEqualTo(8);
+    assertThat(delegate.startedCount()).isEqualTo(8);
+  }
+}
@@ -0,0 +1,74 @@
+package com.udacity.webcrawler.parser;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.zip.GZIPOutputStream;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public final class HttpClientPageFetcherTest {
+  private static final String PAGE = "<p>the quick brown fox</p>";
+
+  private final PageFetcher fetcher = new HttpClientPageFetcher(Duration.ofSeconds(5));
+  private HttpServer server;
+
+  @BeforeEach
+  public void startServer() throws Exception {
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/gzip", exchange -> {
+      ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+      try (OutputStream out = new GZIPOutputStream(compressed)) {
+        out.write(PAGE.getBytes(StandardCharsets.UTF_8));
+      }
+      exchange.getResponseHeaders().add("Content-Type", "text/html; charset=UTF-8");
+      exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+      exchange.sendResponseHeaders(200, compressed.size());
+      try (OutputStream out = exchange.getResponseBody()) {
+        compressed.writeTo(out);
+      }
+    });
+    server.createContext("/missing", exchange -> {
+      exchange.sendResponseHeaders(404, -1);
+      exchange.close();
+    });
+    server.start();
+  }
+
+  @AfterEach
+  public void stopServer() {
+    server.stop(0);
+  }
+
+  @Test
+  public void decompressesGzipResponses() throws Exception {
+    PageFetcher.Page page = fetcher.fetch(uri("/gzip")).get();
+
+    assertThat(new String(page.getBody(), StandardCharsets.UTF_8)).isEqualTo(PAGE);
+    assertThat(page.getCharset().orElse(null)).isEqualTo("UTF-8");
+    assertThat(page.getUri()).isEqualTo(uri("/gzip"));
+  }
+
+  @Test
+  public void failsOnHttpErrors() {
+    ExecutionException e =
+        assertThrows(ExecutionException.class, () -> fetcher.fetch(uri("/missing")).get());
+
+    assertThat(e).hasCauseThat().isInstanceOf(FetchException.class);
+    assertThat(((FetchException) e.getCause()).getStatusCode()).isEqualTo(404);
+  }
+
+  private URI uri(String path) {
+    return URI.create("http://127.0.0.1:" + server.getAddress().getPort() + path);
+  }
+}
@@ -0,0 +1,61 @@
+package com.udacity.webcrawler.parser;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A fake {@link PageFetcher} that records every download it is asked to start, and leaves it to
+ * the test to finish them.
+ */
+final class ManualPageFetcher implements PageFetcher {
+  private final List<URI> started = new ArrayList<>();
+  private final List<CompletableFuture<Page>> downloads = new ArrayList<>();
+
+  @Override
+  public synchronized CompletableFuture<Page> fetch(URI uri) {
+    CompletableFuture<Page> download = new CompletableFuture<>();
+    started.add(uri);
+    downloads.add(download);
+    return download;
+  }
+
+  /**
+   * Returns the URIs of the downloads started so far, in the order they were started.
+   */
+  synchronized List<URI> started() {
+    return List.copyOf(started);
+  }
+
+  /**
+   * Returns the number of downloads started so far.
+   */
+  synchronized int startedCount() {
+    return started.size();
+  }
+
+  /**
+   * Completes the download with the given index successfully.
+   */
+  void finish(int index) {
+    CompletableFuture<Page> download;
+    URI uri;
+    synchronized (this) {
+      download = downloads.get(index);
+      uri = started.get(index);
+    }
+    download.complete(new Page(uri, new byte[0], null));
+  }
+
+  /**
+   * Fails the download with the given index.
+   */
+  void fail(int index, Throwable error) {
+    CompletableFuture<Page> download;
+    synchronized (this) {
+      download = downloads.get(index);
+    }
+    download.completeExceptionally(error);
+  }
+}
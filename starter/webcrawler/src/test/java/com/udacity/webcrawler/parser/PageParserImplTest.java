@@ -3,8 +3,11 @@ package com.udacity.webcrawler.parser;
 import org.junit.jupiter.api.Test;
 
 import java.nio.file.Paths;
+import java.time.Clock;
 import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.regex.Pattern;
 
 import static com.google.common.truth.Truth.assertThat;
@@ -45,4 +48,20 @@ public final class PageParserImplTest {
     assertThat(result.getWordCounts()).containsEntry("over", 1);
     assertThat(result.getWordCounts()).containsEntry("lazy", 1);
   }
-}
\ No newline at end of file
+
+  @Test
+  public void abandonsDownloadAtDeadline() {
+    CompletableFuture<PageFetcher.Page> download = new CompletableFuture<>();
+    Clock clock = Clock.systemUTC();
+    Instant deadline = clock.instant().plusMillis(100);
+
+    PageParser.Result result =
+        new PageParserImpl(testPage, Duration.ZERO, List.of(), uri -> download, clock, deadline)
+            .parse();
+
+    assertThat(clock.instant().isBefore(deadline.plusSeconds(1))).isTrue();
+    assertThat(download.isCancelled()).isTrue();
+    assertThat(result.getLinks()).isEmpty();
+    assertThat(result.getWordCounts()).isEmpty();
+  }
+}
@@ -0,0 +1,133 @@
+package com.udacity.webcrawler.parser;
+
+import com.udacity.webcrawler.NoOpProfiler;
+import com.udacity.webcrawler.json.HostPoliteness;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public final class PolitePageFetcherTest {
+
+  @Test
+  public void limitsConnectionsPerHostButNotAcrossHosts() throws Exception {
+    ManualPageFetcher delegate = new ManualPageFetcher();
+    PageFetcher fetcher =
+        new PolitePageFetcher(delegate, new PolitenessPolicy(1, 0, Map.of()), new NoOpProfiler());
+
+    CompletableFuture<PageFetcher.Page> first = fetcher.fetch(URI.create("http://a.test/1"));
+    CompletableFuture<PageFetcher.Page> second = fetcher.fetch(URI.create("http://a.test/2"));
+    fetcher.fetch(URI.create("http://b.test/1"));
+
+    assertThat(delegate.started())
+        .containsExactly(URI.create("http://a.test/1"), URI.create("http://b.test/1"))
+        .inOrder();
+
+    delegate.finish(0);
+
+    assertThat(first.get(1, TimeUnit.SECONDS).getUri()).isEqualTo(URI.create("http://a.test/1"));
+    assertThat(delegate.started()).contains(URI.create("http://a.test/2"));
+    assertThat(second.isDone()).isFalse();
+  }
+
+  @Test
+  public void cancelledRequestsLeaveTheQueue() {
+    ManualPageFetcher delegate = new ManualPageFetcher();
+    PageFetcher fetcher =
+        new PolitePageFetcher(delegate, new PolitenessPolicy(1, 0, Map.of()), new NoOpProfiler());
+
+    fetcher.fetch(URI.create("http://a.test/1"));
+    fetcher.fetch(URI.create("http://a.test/2")).cancel(true);
+    fetcher.fetch(URI.create("http://a.test/3"));
+    delegate.finish(0);
+
+    assertThat(delegate.started())
+        .containsExactly(URI.create("http://a.test/1"), URI.create("http://a.test/3"))
+        .inOrder();
+  }
+
+  @Test
+  public void idleHostsAreEvicted() throws Exception {
+    ManualPageFetcher delegate = new ManualPageFetcher();
+    PolitePageFetcher fetcher =
+        new PolitePageFetcher(delegate, new PolitenessPolicy(1, 0, Map.of()), new NoOpProfiler());
+
+    CompletableFuture<PageFetcher.Page> first = fetcher.fetch(URI.create("http://a.test/1"));
+    fetcher.fetch(URI.create("http://b.test/1"));
+    delegate.finish(0);
+    first.get(1, TimeUnit.SECONDS);
+    fetcher.evictIdleHosts();
+
+    // b.test still has a download in flight.
+    assertThat(fetcher.hostCount()).isEqualTo(1);
+
+    // A host crawled again gets a new queue, which still enforces its limits.
+    fetcher.fetch(URI.create("http://a.test/2"));
+    fetcher.fetch(URI.create("http://a.test/3"));
+    assertThat(delegate.started())
+        .containsExactly(
+            URI.create("http://a.test/1"), URI.create("http://b.test/1"),
+            URI.create("http://a.test/2"))
+        .inOrder();
+    assertThat(fetcher.hostCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void hostsAreNotEvictedBeforeTheirRateLimitAllowsAnotherDownload() throws Exception {
+    ManualPageFetcher delegate = new ManualPageFetcher();
+    PolitePageFetcher fetcher =
+        new PolitePageFetcher(delegate, new PolitenessPolicy(0, 1, Map.of()), new NoOpProfiler());
+
+    CompletableFuture<PageFetcher.Page> first = fetcher.fetch(URI.create("http://a.test/1"));
+    delegate.finish(0);
+    first.get(1, TimeUnit.SECONDS);
+    fetcher.evictIdleHosts();
+
+    // Otherwise a new queue would start the next download from the host right away.
+    assertThat(fetcher.hostCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void spacesRequestsToTheSameHost() throws Exception {
+    ManualPageFetcher delegate = new ManualPageFetcher();
+    HostPoliteness unlimitedHost =
+        new HostPoliteness.Builder().setMaxRequestsPerSecond(0).build();
+    PageFetcher fetcher =
+        new PolitePageFetcher(
+            delegate,
+            new PolitenessPolicy(0, 5, Map.of("fast.test", unlimitedHost)),
+            new NoOpProfiler());
+
+    long start = System.nanoTime();
+    for (int i = 0; i < 3; i++) {
+      fetcher.fetch(URI.create("http://slow.test/" + i));
+      fetcher.fetch(URI.create("http://fast.test/" + i));
+    }
+
+    // The unlimited host is not held back by the rate-limited one.
+    assertThat(delegate.startedCount()).isEqualTo(4);
+
+    while (delegate.startedCount() < 6) {
+      Thread.sleep(10);
+    }
+    // At 5 requests per second, the third request to the host starts at least 400ms after the
+    // first.
+    assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isAtLeast(390L);
+  }
+
+  @Test
+  public void overridesFallBackToDefaults() {
+    HostPoliteness onlyRate = new HostPoliteness.Builder().setMaxRequestsPerSecond(2).build();
+    PolitenessPolicy policy = new PolitenessPolicy(3, 0, Map.of("example.com", onlyRate));
+
+    assertThat(policy.maxConnections("EXAMPLE.com")).isEqualTo(3);
+    assertThat(policy.maxRequestsPerSecond("example.com")).isEqualTo(2.0);
+    assertThat(policy.maxRequestsPerSecond("other.com")).isEqualTo(0.0);
+    assertThat(policy.isUnlimited()).isFalse();
+    assertThat(PolitenessPolicy.unlimited().isUnlimited()).isTrue();
+  }
+}
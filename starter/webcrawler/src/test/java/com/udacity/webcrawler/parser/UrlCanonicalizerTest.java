@@ -0,0 +1,95 @@
+package com.udacity.webcrawler.parser;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public final class UrlCanonicalizerTest {
+
+  @Test
+  public void spellingsOfTheSamePageHaveOneCanonicalForm() {
+    UrlCanonicalizer canonicalizer = UrlCanonicalizer.standard();
+
+    for (String url : List.of(
+        "http://a.com/x",
+        "http://a.com/x#top",
+        "HTTP://A.com:80/x",
+        "http://a.com/y/../x",
+        "http://a.com/./x")) {
+      assertThat(canonicalizer.canonicalize(url)).isEqualTo("http://a.com/x");
+    }
+  }
+
+  @Test
+  public void keepsWhatDistinguishesPages() {
+    UrlCanonicalizer canonicalizer = UrlCanonicalizer.standard();
+
+    assertThat(canonicalizer.canonicalize("http://a.com/x/")).isEqualTo("http://a.com/x/");
+    assertThat(canonicalizer.canonicalize("https://a.com:8443/X"))
+        .isEqualTo("https://a.com:8443/X");
+    assertThat(canonicalizer.canonicalize("https://a.com:80/")).isEqualTo("https://a.com:80/");
+    assertThat(canonicalizer.canonicalize("http://user@a.com/")).isEqualTo("http://user@a.com/");
+  }
+
+  @Test
+  public void addsTheRootPath() {
+    assertThat(UrlCanonicalizer.standard().canonicalize("http://a.com")).isEqualTo("http://a.com/");
+  }
+
+  @Test
+  public void resolvesDotSegments() {
+    assertThat(UrlCanonicalizer.removeDotSegments("/a/b/c/./../../g")).isEqualTo("/a/g");
+    assertThat(UrlCanonicalizer.removeDotSegments("/a/b/..")).isEqualTo("/a/");
+    assertThat(UrlCanonicalizer.removeDotSegments("/..")).isEqualTo("/");
+    assertThat(UrlCanonicalizer.removeDotSegments("/a//b/.")).isEqualTo("/a//b/");
+    assertThat(UrlCanonicalizer.removeDotSegments("/.well-known/x")).isEqualTo("/.well-known/x");
+  }
+
+  @Test
+  public void sortsQueryParameters() {
+    assertThat(UrlCanonicalizer.standard().canonicalize("http://a.com/?b=2&a=1&&c"))
+        .isEqualTo("http://a.com/?a=1&b=2&c");
+    assertThat(UrlCanonicalizer.standard().canonicalize("http://a.com/?"))
+        .isEqualTo("http://a.com/");
+  }
+
+  @Test
+  public void removesTrackingParameters() {
+    UrlCanonicalizer canonicalizer = new UrlCanonicalizer(List.of("utm_*", "fbclid"));
+
+    assertThat(canonicalizer.canonicalize("http://a.com/x?utm_source=feed&id=7&fbclid=abc"))
+        .isEqualTo("http://a.com/x?id=7");
+    assertThat(canonicalizer.canonicalize("http://a.com/x?utm_medium=email&fbclid"))
+        .isEqualTo("http://a.com/x");
+    assertThat(canonicalizer.canonicalize("http://a.com/x?fbclid_extra=1"))
+        .isEqualTo("http://a.com/x?fbclid_extra=1");
+  }
+
+  @Test
+  public void keepsLocalFileUrlsInTheirUsualForm() {
+    assertThat(UrlCanonicalizer.standard().canonicalize("file:///data/./page.html#x"))
+        .isEqualTo("file:///data/page.html");
+  }
+
+  @Test
+  public void leavesOtherStringsAlone() {
+    UrlCanonicalizer canonicalizer = UrlCanonicalizer.standard();
+
+    assertThat(canonicalizer.canonicalize("")).isEqualTo("");
+    assertThat(canonicalizer.canonicalize("not a url")).isEqualTo("not a url");
+    assertThat(canonicalizer.canonicalize("mailto:someone@a.com"))
+        .isEqualTo("mailto:someone@a.com");
+  }
+
+  @Test
+  public void cachedResultsMatch() {
+    UrlCanonicalizer canonicalizer = UrlCanonicalizer.standard();
+
+    String first = canonicalizer.canonicalize("HTTP://A.com/x#1");
+    String second = canonicalizer.canonicalize("HTTP://A.com/x#1");
+
+    assertThat(second).isSameInstanceAs(first);
+  }
+}
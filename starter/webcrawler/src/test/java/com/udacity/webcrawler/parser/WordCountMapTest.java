@@ -0,0 +1,41 @@
+package com.udacity.webcrawler.parser;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public final class WordCountMapTest {
+
+  @Test
+  public void addsUpCounts() {
+    WordCountMap counts = new WordCountMap();
+    counts.add(0, 1);
+    counts.add(7, 2);
+    counts.add(0, 3);
+
+    assertThat(counts.size()).isEqualTo(2);
+    assertThat(counts.get(0)).isEqualTo(4);
+    assertThat(counts.get(7)).isEqualTo(2);
+    assertThat(counts.get(1)).isEqualTo(0);
+  }
+
+  @Test
+  public void growsPastItsInitialCapacity() {
+    WordCountMap counts = new WordCountMap();
+    for (int round = 1; round <= 3; round++) {
+      for (int id = 0; id < 10_000; id++) {
+        counts.add(id, id);
+      }
+    }
+
+    Map<Integer, Integer> visited = new HashMap<>();
+    counts.forEach(visited::put);
+    assertThat(counts.size()).isEqualTo(10_000);
+    assertThat(visited).hasSize(10_000);
+    assertThat(visited).containsEntry(9999, 3 * 9999);
+    assertThat(counts.get(1234)).isEqualTo(3 * 1234);
+  }
+}
@@ -0,0 +1,96 @@
+package com.udacity.webcrawler.parser;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public final class WordDictionaryTest {
+
+  @Test
+  public void assignsDenseIds() {
+    WordDictionary dictionary = new WordDictionary();
+
+    assertThat(dictionary.id("apple")).isEqualTo(0);
+    assertThat(dictionary.id("banana")).isEqualTo(1);
+    assertThat(dictionary.id("apple")).isEqualTo(0);
+    assertThat(dictionary.size()).isEqualTo(2);
+    assertThat(dictionary.word(1)).isEqualTo("banana");
+  }
+
+  @Test
+  public void looksUpWordsByCharacterRange() {
+    WordDictionary dictionary = new WordDictionary();
+    int word = dictionary.id("word");
+    char[] buffer = "wordsmith".toCharArray();
+
+    assertThat(dictionary.id(buffer, 4)).isEqualTo(word);
+    int wordsmith = dictionary.id(buffer, 9);
+    assertThat(dictionary.id("wordsmith")).isEqualTo(wordsmith);
+    assertThat(dictionary.word(dictionary.id(buffer, 0))).isEmpty();
+  }
+
+  @Test
+  public void growsPastItsInitialCapacity() {
+    WordDictionary dictionary = new WordDictionary();
+    for (int i = 0; i < 100_000; i++) {
+      assertThat(dictionary.id("word" + i)).isEqualTo(i);
+    }
+    for (int i = 0; i < 100_000; i++) {
+      assertThat(dictionary.id(("word" + i).toCharArray(), ("word" + i).length())).isEqualTo(i);
+      assertThat(dictionary.word(i)).isEqualTo("word" + i);
+    }
+  }
+
+  @Test
+  public void handlesWordsWithCloseHashes() {
+    // The hashes of short words are dense; without scrambling them, adding these took minutes.
+    WordDictionary dictionary = new WordDictionary();
+    for (int i = 0; i < 1_000_000; i++) {
+      assertThat(dictionary.id(Integer.toString(i, 36))).isEqualTo(i);
+    }
+    assertThat(dictionary.id("lfls")).isEqualTo(Integer.parseInt("lfls", 36));
+  }
+
+  @Test
+  public void concurrentLookupsAgreeOnIds() throws Exception {
+    WordDictionary dictionary = new WordDictionary();
+    int threads = 8;
+    int words = 20_000;
+    CountDownLatch start = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<int[]>> futures = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        int offset = t;
+        futures.add(executor.submit(() -> {
+          start.await();
+          int[] ids = new int[words];
+          // Each thread adds the words in a different order, so they race to add each one.
+          for (int i = 0; i < words; i++) {
+            int word = (i * 7 + offset * 997) % words;
+            ids[word] = dictionary.id("word" + word);
+          }
+          return ids;
+        }));
+      }
+      start.countDown();
+      int[] expected = futures.get(0).get();
+      for (Future<int[]> future : futures) {
+        assertThat(future.get()).isEqualTo(expected);
+      }
+      assertThat(dictionary.size()).isEqualTo(words);
+      for (int word = 0; word < words; word++) {
+        assertThat(dictionary.word(expected[word])).isEqualTo("word" + word);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,103 @@
+package com.udacity.webcrawler.parser;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public final class WordFilterTest {
+
+  private static final List<String> RULES = List.of(
+      "^.{1,3}$",
+      "^......$",
+      ".{9,}",
+      ".+",
+      "",
+      "^$",
+      "the",
+      "^(and|or|of)$",
+      "(?:is|was)",
+      "^it$|^at$",
+      "a\\.b|c\\$",
+      "[0-9]+",
+      "(\\w)\\1+",
+      "(?i)hello",
+      ".{2}x",
+      ".{1,3}?",
+      "(and|or)?",
+      "(?<n>ab)");
+
+  private static final List<String> WORDS = List.of(
+      "",
+      "a",
+      "ab",
+      "abc",
+      "abcd",
+      "abcdef",
+      "abcdefghi",
+      "the",
+      "there",
+      "and",
+      "of",
+      "was",
+      "it",
+      "at",
+      "a.b",
+      "axb",
+      "c$",
+      "2024",
+      "aaaa",
+      "HELLO",
+      "abx",
+      "\uD83D\uDE00",
+      "\uD83D\uDE00\uD83D\uDE00\uD83D\uDE00\uD83D\uDE00",
+      "ab\u2028",
+      "ab\ncd");
+
+  @Test
+  public void agreesWithMatchingEachPattern() {
+    List<Pattern> patterns = RULES.stream().map(Pattern::compile).collect(Collectors.toList());
+    WordFilter filter = WordFilter.compile(patterns);
+
+    for (String word : WORDS) {
+      boolean expected = patterns.stream().anyMatch(p -> p.matcher(word).matches());
+      assertThat(filter.isIgnored(word)).isEqualTo(expected);
+    }
+  }
+
+  @Test
+  public void matchesEachRuleOnItsOwn() {
+    for (String rule : RULES) {
+      Pattern pattern = Pattern.compile(rule);
+      WordFilter filter = WordFilter.compile(List.of(pattern));
+      for (String word : WORDS) {
+        assertThat(filter.isIgnored(word)).isEqualTo(pattern.matcher(word).matches());
+      }
+    }
+  }
+
+  @Test
+  public void recognizesLengthRules() {
+    assertThat(WordFilter.parseLengthRule("^.{1,3}$")).asList().containsExactly(1, 3).inOrder();
+    assertThat(WordFilter.parseLengthRule("^...$")).asList().containsExactly(3, 3).inOrder();
+    assertThat(WordFilter.parseLengthRule(".?.+"))
+        .asList()
+        .containsExactly(1, Integer.MAX_VALUE)
+        .inOrder();
+    assertThat(WordFilter.parseLengthRule(".{1,3}?")).isNull();
+    assertThat(WordFilter.parseLengthRule("\\w{1,3}")).isNull();
+  }
+
+  @Test
+  public void recognizesLiteralAlternations() {
+    assertThat(WordFilter.parseLiterals("^(the|a|an)$")).containsExactly("the", "a", "an");
+    assertThat(WordFilter.parseLiterals("(?:x\\.y)")).containsExactly("x.y");
+    assertThat(WordFilter.parseLiterals("^one$|^two$")).containsExactly("one", "two");
+    assertThat(WordFilter.parseLiterals("(a|b)?")).isNull();
+    assertThat(WordFilter.parseLiterals("(?i)the")).isNull();
+    assertThat(WordFilter.parseLiterals("a\\d")).isNull();
+  }
+}
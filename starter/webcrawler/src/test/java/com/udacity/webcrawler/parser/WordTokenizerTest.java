@@ -0,0 +1,93 @@
+package com.udacity.webcrawler.parser;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public final class WordTokenizerTest {
+
+  private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+  private static final Pattern NON_WORD_CHARACTERS = Pattern.compile("\\W");
+
+  private static final List<String> TEXTS = List.of(
+      "",
+      "   ",
+      "The quick brown fox jumped over the lazy dog.",
+      "  leading and trailing  ",
+      "tabs\tand\nnew\u000Blines\fand\rreturns",
+      "\u2003em-spaced\u2003 words\u2003",
+      "\u001Cseparated\u001C",
+      "non\u00A0breaking space",
+      "dashes \u2014 and -- ellipses ... count as empty words",
+      "Don't split_on under_scores or n0mb3rs!",
+      "caf\u00E9 na\u00EFve \uD83D\uDE00smile\uD83D\uDE00",
+      "repeat repeat REPEAT Repeat",
+      "Ice IGLOO \u0130stanbul",
+      "a ab abc abcd abcde abcdef");
+
+  @Test
+  public void countsTheSameWordsAsSplittingWithRegularExpressions() {
+    List<List<Pattern>> ignoredWordLists = List.of(
+        List.of(),
+        List.of(Pattern.compile("^.{1,3}$")),
+        List.of(Pattern.compile("^(the|and|or)$"), Pattern.compile("[A-Z].*")));
+    for (List<Pattern> ignoredWords : ignoredWordLists) {
+      for (String text : TEXTS) {
+        assertThat(tokenize(text, ignoredWords)).isEqualTo(reference(text, ignoredWords));
+      }
+    }
+  }
+
+  @Test
+  public void lowerCasesInTheDefaultLocale() {
+    Locale locale = Locale.getDefault();
+    try {
+      Locale.setDefault(Locale.forLanguageTag("tr"));
+      for (String text : TEXTS) {
+        assertThat(tokenize(text, List.of())).isEqualTo(reference(text, List.of()));
+      }
+    } finally {
+      Locale.setDefault(locale);
+    }
+  }
+
+  @Test
+  public void reusesWordsSeenEarlierOnThePage() {
+    WordTokenizer tokenizer = new WordTokenizer(WordFilter.compile(List.of()));
+    PageParser.Result.Builder builder = new PageParser.Result.Builder();
+    for (int i = 0; i < 1_000; i++) {
+      tokenizer.addWords("word" + i + " Word" + i, builder);
+    }
+
+    Map<String, Integer> counts = builder.build().getWordCounts();
+    assertThat(counts).hasSize(1_000);
+    assertThat(counts).containsEntry("word999", 2);
+  }
+
+  private static Map<String, Integer> tokenize(String text, List<Pattern> ignoredWords) {
+    PageParser.Result.Builder builder = new PageParser.Result.Builder();
+    new WordTokenizer(WordFilter.compile(ignoredWords)).addWords(text, builder);
+    return builder.build().getWordCounts();
+  }
+
+  /**
+   * The words the parser counted before it had a tokenizer of its own.
+   */
+  private static Map<String, Integer> reference(String text, List<Pattern> ignoredWords) {
+    Map<String, Integer> counts = new HashMap<>();
+    Arrays.stream(WHITESPACE.split(text.strip()))
+        .filter(s -> !s.isBlank())
+        .filter(s -> ignoredWords.stream().noneMatch(p -> p.matcher(s).matches()))
+        .map(s -> NON_WORD_CHARACTERS.matcher(s).replaceAll(""))
+        .map(String::toLowerCase)
+        .forEach(word -> counts.merge(word, 1, Integer::sum));
+    return counts;
+  }
+}
@@ -136,6 +136,48 @@ public final class ProfilerImplTest {
     assertThat(written).contains("0m 1s 0ms");
   }
 
+  @Test
+  public void testCounters() throws Exception {
+    profiler.count(ProfilerImplTest.class, "widgets", 2);
+    profiler.count(ProfilerImplTest.class, "widgets", 3);
+
+    CloseableStringWriter writer = new CloseableStringWriter();
+    profiler.writeData(writer);
+    assertWithMessage("Counter increments should be aggregated")
+        .that(writer.toString())
+        .contains("com.udacity.webcrawler.profiler.ProfilerImplTest#widgets = 5");
+  }
+
+  @Test
+  public void testPeaks() throws Exception {
+    profiler.recordMax(ProfilerImplTest.class, "depth", 3);
+    profiler.recordMax(ProfilerImplTest.class, "depth", 7);
+    profiler.recordMax(ProfilerImplTest.class, "depth", 2);
+
+    CloseableStringWriter writer = new CloseableStringWriter();
+    profiler.writeData(writer);
+    assertWithMessage("Only the largest recorded value should be kept")
+        .that(writer.toString())
+        .contains("com.udacity.webcrawler.profiler.ProfilerImplTest#depth = 7");
+  }
+
+  @Test
+  public void testSamples() throws Exception {
+    profiler.recordSample(ProfilerImplTest.class, "limit", 4);
+    clock.tick(Duration.ofSeconds(2));
+    profiler.recordSample(ProfilerImplTest.class, "limit", 4);
+    clock.tick(Duration.ofSeconds(1));
+    profiler.recordSample(ProfilerImplTest.class, "limit", 8);
+
+    CloseableStringWriter writer = new CloseableStringWriter();
+    profiler.writeData(writer);
+    assertWithMessage("Samples should be written with their times, skipping repeated values")
+        .that(writer.toString())
+        .contains(
+            "com.udacity.webcrawler.profiler.ProfilerImplTest#limit over time: "
+                + "0m 0s 0ms = 4, 0m 3s 0ms = 8");
+  }
+
   /**
    * A test interface that does not have any {@link Profiled} methods.
    */